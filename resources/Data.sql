@@ -1,3 +1,4 @@
+/* Indexes and later schema changes are applied by the app at startup (src/main/resources/db/migration) */
 /* Setting up PROD DB */
 create database prod;
 use prod;
@@ -1,13 +1,112 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.config.ZoneConfig;
+import com.parkit.parkingsystem.dao.ImportReport;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.ReportDAO;
+import com.parkit.parkingsystem.dao.TicketImporter;
+import com.parkit.parkingsystem.dao.TicketSummaryDAO;
+import com.parkit.parkingsystem.report.ParkingReport;
+import com.parkit.parkingsystem.report.ReportEngine;
+import com.parkit.parkingsystem.report.TicketSummaryService;
+import com.parkit.parkingsystem.service.GateServer;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.LoadGenerator;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSystemContext;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
-    public static void main(String args[]){
+
+    private static final int DEFAULT_GATE_SERVER_PORT = 9400;
+    private static final int MAX_GATES = 64;
+    private static final int DEFAULT_IMPORT_PARTITIONS = 4;
+    private static final int IMPORT_BATCH_SIZE = 1_000;
+    private static final int DEFAULT_LOAD_GATES = 8;
+    private static final int LOAD_PARKED_VEHICLES_PER_GATE = 100;
+
+    /**
+     * Without arguments, runs the interactive shell. With {@code --server [port]}, also serves
+     * remote gates on a local socket, the shell being one more gate of the same parking service.
+     * With {@code --import <file> [partitions]}, bulk loads historical tickets and exits; running it
+     * again resumes an interrupted import. With {@code --report <firstDay> <lastDay> [csv|json]},
+     * prints the revenue and occupancy of those days and exits. With
+     * {@code --rebuild-summary <firstDay> <lastDay>}, recomputes the ticket summaries of those days,
+     * after an import for instance, and exits. With {@code --load <vehiclesPerSecond> <seconds> [gates]},
+     * drives that many vehicles per second through the parking service over in-memory DAOs, prints
+     * the throughput and latencies reached and exits.
+     */
+    public static void main(String args[]) throws Exception {
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        ZoneConfig.apply();
+        if (args.length > 0 && "--server".equals(args[0])) {
+            int port = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_GATE_SERVER_PORT;
+            InputReaderUtil inputReaderUtil = new InputReaderUtil();
+            ParkingSystemContext context = new ParkingSystemContext(inputReaderUtil);
+            GateServer gateServer = new GateServer(context.getParkingService(), port, MAX_GATES);
+            gateServer.start();
+            InteractiveShell.loadInterface(inputReaderUtil, context.getParkingService());
+            gateServer.stop();
+            context.close();
+        } else if (args.length > 1 && "--import".equals(args[0])) {
+            int partitions = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_IMPORT_PARTITIONS;
+            TicketImporter ticketImporter = new TicketImporter(partitions, IMPORT_BATCH_SIZE);
+            if (new SchemaMigrator(ticketImporter.dataBaseConfig).migrate() != SchemaMigrator.getLatestVersion()) {
+                DataBaseConfig.closeConnectionPools();
+                throw new IllegalStateException("Unable to migrate the schema of the database");
+            }
+            ImportReport report = ticketImporter.importTickets(Paths.get(args[1]));
+            System.out.println(report);
+            DataBaseConfig.closeConnectionPools();
+        } else if (args.length > 2 && "--report".equals(args[0])) {
+            ReportEngine reportEngine = new ReportEngine(new ReportDAO(), ZoneConfig.getZone());
+            ParkingReport report = reportEngine.report(LocalDate.parse(args[1]), LocalDate.parse(args[2]));
+            Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            if (args.length > 3 && "json".equals(args[3])) {
+                report.writeJson(out);
+            } else {
+                report.writeCsv(out);
+            }
+            if (!report.isComplete()) {
+                logger.error("Some tickets could not be read, the report is incomplete");
+            }
+            DataBaseConfig.closeConnectionPools();
+        } else if (args.length > 2 && "--rebuild-summary".equals(args[0])) {
+            TicketSummaryDAO ticketSummaryDAO = new TicketSummaryDAO();
+            if (new SchemaMigrator(ticketSummaryDAO.dataBaseConfig).migrate() != SchemaMigrator.getLatestVersion()) {
+                DataBaseConfig.closeConnectionPools();
+                throw new IllegalStateException("Unable to migrate the schema of the database");
+            }
+            TicketSummaryService ticketSummaryService = new TicketSummaryService(ticketSummaryDAO, new ReportDAO(),
+                    ZoneConfig.getZone(), 1);
+            if (!ticketSummaryService.rebuild(LocalDate.parse(args[1]), LocalDate.parse(args[2]))) {
+                logger.error("Unable to rebuild the ticket summaries");
+            }
+            DataBaseConfig.closeConnectionPools();
+        } else if (args.length > 2 && "--load".equals(args[0])) {
+            int gates = (args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_LOAD_GATES;
+            int spots = gates * LOAD_PARKED_VEHICLES_PER_GATE;
+            InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO();
+            InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(
+                    EmbeddedStore.parseSpots("CAR:" + spots + ",BIKE:" + spots), ticketDAO);
+            LoadGenerator loadGenerator = new LoadGenerator(new ParkingService(null, parkingSpotDAO, ticketDAO),
+                    gates, LOAD_PARKED_VEHICLES_PER_GATE);
+            System.out.println(loadGenerator.run(Integer.parseInt(args[1]), Long.parseLong(args[2]) * 1000));
+        } else {
+            InteractiveShell.loadInterface();
+        }
     }
 }
@@ -0,0 +1,452 @@
+package com.parkit.parkingsystem.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded pool of JDBC connections.
+ *
+ * Connections handed out by {@link #borrow()} are proxies: calling close() on them gives the
+ * physical connection back to the pool instead of closing the TCP session.
+ *
+ * Each physical connection may also keep a LRU cache of its prepared statements, keyed by SQL.
+ * Closing a statement prepared through a handle then only clears its parameters and puts it
+ * back in the cache, so the next DAO call with the same SQL skips the parse and plan, on the
+ * server too when server-side prepared statements are enabled.
+ *
+ */
+public class ConnectionPool {
+
+  private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+  /**
+   * Opens a new physical connection.
+   */
+  public interface ConnectionFactory {
+    Connection create() throws SQLException;
+  }
+
+  /**
+   * Connections used less than this many milliseconds ago are not validated again on borrow.
+   */
+  private static final long VALIDATION_INTERVAL_MILLIS = 500;
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+  private final String name;
+  private final ConnectionFactory connectionFactory;
+  private final int minSize;
+  private final int maxSize;
+  private final long borrowTimeoutMillis;
+  private final long idleTimeoutMillis;
+  private final int statementCacheSize;
+
+  private final LinkedBlockingDeque<PooledEntry> idleEntries = new LinkedBlockingDeque<>();
+  private final Semaphore permits;
+  private final AtomicInteger totalConnections = new AtomicInteger();
+  private final ScheduledExecutorService evictor;
+  private volatile boolean closed;
+
+  private final LongAdder borrowCount = new LongAdder();
+  private final LongAdder createdCount = new LongAdder();
+  private final LongAdder destroyedCount = new LongAdder();
+  private final LongAdder timeoutCount = new LongAdder();
+  private final LongAdder validationFailureCount = new LongAdder();
+  private final LongAdder statementHitCount = new LongAdder();
+  private final LongAdder statementMissCount = new LongAdder();
+
+  /**
+   * Creates the pool without statement cache.
+   *
+   * @see #ConnectionPool(String, ConnectionFactory, int, int, long, long, int)
+   */
+  public ConnectionPool(String name, ConnectionFactory connectionFactory, int minSize, int maxSize,
+      long borrowTimeoutMillis, long idleTimeoutMillis) {
+    this(name, connectionFactory, minSize, maxSize, borrowTimeoutMillis, idleTimeoutMillis, 0);
+  }
+
+  /**
+   * Creates the pool, opens the minimum number of connections and starts the idle evictor.
+   *
+   * @param name the name of the pool, used in logs and in the evictor thread name
+   * @param connectionFactory opens the physical connections
+   * @param minSize the number of connections kept open even when idle
+   * @param maxSize the maximum number of connections open at the same time
+   * @param borrowTimeoutMillis how long {@link #borrow()} waits for a free connection
+   * @param idleTimeoutMillis how long a connection above the minimum size may stay idle
+   * @param statementCacheSize the number of prepared statements cached per connection, 0 for none
+   */
+  public ConnectionPool(String name, ConnectionFactory connectionFactory, int minSize, int maxSize,
+      long borrowTimeoutMillis, long idleTimeoutMillis, int statementCacheSize) {
+    if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+      throw new IllegalArgumentException(
+          "Invalid pool size: min=" + minSize + ", max=" + maxSize);
+    }
+    this.name = name;
+    this.connectionFactory = connectionFactory;
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.borrowTimeoutMillis = borrowTimeoutMillis;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.statementCacheSize = statementCacheSize;
+    this.permits = new Semaphore(maxSize, true);
+
+    fillToMinimum();
+
+    evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "pool-evictor-" + name);
+      thread.setDaemon(true);
+      return thread;
+    });
+    long period = Math.max(1000, idleTimeoutMillis / 2);
+    evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Borrows a connection, waiting at most the borrow timeout for one to become available.
+   *
+   * @return a connection that must be closed to be given back to the pool
+   * @throws SQLException if the pool is closed, exhausted or a connection cannot be opened
+   */
+  public Connection borrow() throws SQLException {
+    if (closed) {
+      throw new SQLException("Connection pool " + name + " is closed");
+    }
+    try {
+      if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        timeoutCount.increment();
+        throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+            + " ms waiting for a connection from pool " + name);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection", e);
+    }
+
+    try {
+      PooledEntry entry = takeValidEntry();
+      entry.lastUsedMillis = System.currentTimeMillis();
+      borrowCount.increment();
+      return entry.newHandle();
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  private PooledEntry takeValidEntry() throws SQLException {
+    PooledEntry entry;
+    while ((entry = idleEntries.pollFirst()) != null) {
+      if (isValid(entry)) {
+        return entry;
+      }
+      validationFailureCount.increment();
+      destroy(entry);
+    }
+    return createEntry();
+  }
+
+  private boolean isValid(PooledEntry entry) {
+    if (System.currentTimeMillis() - entry.lastUsedMillis < VALIDATION_INTERVAL_MILLIS) {
+      return true;
+    }
+    try {
+      return entry.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private PooledEntry createEntry() throws SQLException {
+    Connection connection = connectionFactory.create();
+    totalConnections.incrementAndGet();
+    createdCount.increment();
+    logger.debug("Create DB connection");
+    return new PooledEntry(connection);
+  }
+
+  private void destroy(PooledEntry entry) {
+    totalConnections.decrementAndGet();
+    destroyedCount.increment();
+    try {
+      entry.connection.close();
+    } catch (SQLException e) {
+      logger.error("Error while closing connection", e);
+    }
+  }
+
+  /**
+   * Called when a handle is closed: resets the connection state and puts it back in the pool.
+   */
+  private void giveBack(PooledEntry entry) {
+    try {
+      boolean reusable = !closed && !entry.connection.isClosed();
+      if (reusable && !entry.connection.getAutoCommit()) {
+        entry.connection.rollback();
+        entry.connection.setAutoCommit(true);
+      }
+      if (reusable) {
+        entry.lastUsedMillis = System.currentTimeMillis();
+        // Most recently used first, so that the coldest connections are the ones evicted.
+        idleEntries.offerFirst(entry);
+      } else {
+        destroy(entry);
+      }
+    } catch (SQLException e) {
+      logger.error("Error while returning connection to pool {}", name, e);
+      destroy(entry);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private void fillToMinimum() {
+    while (!closed && totalConnections.get() < minSize) {
+      try {
+        idleEntries.offerLast(createEntry());
+      } catch (SQLException e) {
+        logger.error("Unable to open connection for pool {}", name, e);
+        return;
+      }
+    }
+  }
+
+  void evictIdleConnections() {
+    long now = System.currentTimeMillis();
+    Iterator<PooledEntry> iterator = idleEntries.descendingIterator();
+    while (iterator.hasNext() && totalConnections.get() > minSize) {
+      PooledEntry entry = iterator.next();
+      if (now - entry.lastUsedMillis > idleTimeoutMillis && idleEntries.remove(entry)) {
+        destroy(entry);
+      }
+    }
+    fillToMinimum();
+  }
+
+  /**
+   * Closes every idle connection and refuses further borrows. Borrowed connections are closed
+   * when they are given back.
+   */
+  public void close() {
+    closed = true;
+    evictor.shutdownNow();
+    PooledEntry entry;
+    while ((entry = idleEntries.pollFirst()) != null) {
+      destroy(entry);
+    }
+  }
+
+  /**
+   * @return a snapshot of the pool counters
+   */
+  public PoolStats getStats() {
+    int total = totalConnections.get();
+    int idle = idleEntries.size();
+    return new PoolStats(name, total, idle, total - idle, maxSize, permits.getQueueLength(),
+        borrowCount.sum(), createdCount.sum(), destroyedCount.sum(), timeoutCount.sum(),
+        validationFailureCount.sum(), statementHitCount.sum(), statementMissCount.sum());
+  }
+
+  /**
+   * A physical connection owned by the pool.
+   */
+  private final class PooledEntry {
+    private final Connection connection;
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+
+    /**
+     * The idle prepared statements of the connection, least recently used first. Only used by
+     * the thread borrowing the connection.
+     */
+    private final Map<String, PreparedStatement> statements =
+        new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > statementCacheSize) {
+              closeStatement(eldest.getValue());
+              return true;
+            }
+            return false;
+          }
+        };
+
+    private PooledEntry(Connection connection) {
+      this.connection = connection;
+    }
+
+    private Connection newHandle() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+          new Class<?>[] {Connection.class}, new Handle(this));
+    }
+  }
+
+  private static void closeStatement(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      logger.error("Error while closing cached prepared statement", e);
+    }
+  }
+
+  /**
+   * The connection seen by the DAOs. It is only usable until it is closed.
+   */
+  private final class Handle implements InvocationHandler {
+    private final PooledEntry entry;
+    private boolean released;
+
+    private Handle(PooledEntry entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!released) {
+            released = true;
+            giveBack(entry);
+          }
+          return null;
+        case "isClosed":
+          return released || entry.connection.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled[" + entry.connection + "]";
+        default:
+          if (released) {
+            throw new SQLException("Connection has already been returned to the pool");
+          }
+          if ("prepareStatement".equals(method.getName()) && isCacheable(args)) {
+            return prepareCachedStatement((Connection) proxy, method, args);
+          }
+          try {
+            return method.invoke(entry.connection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    }
+
+    /**
+     * Only {@code prepareStatement(sql)} and {@code prepareStatement(sql, autoGeneratedKeys)} are
+     * cached.
+     */
+    private boolean isCacheable(Object[] args) {
+      return statementCacheSize > 0
+          && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer));
+    }
+
+    private PreparedStatement prepareCachedStatement(Connection proxy, Method method,
+        Object[] args) throws Throwable {
+      String key = (args.length == 1) ? (String) args[0] : args[1] + ":" + args[0];
+      // Taken out of the cache while in use, so that the same SQL prepared twice gets two
+      // statements.
+      PreparedStatement statement = entry.statements.remove(key);
+      if (statement != null && !statement.isClosed()) {
+        statementHitCount.increment();
+      } else {
+        statementMissCount.increment();
+        try {
+          statement = (PreparedStatement) method.invoke(entry.connection, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+      return (PreparedStatement) Proxy.newProxyInstance(
+          PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+          new StatementHandle(entry, proxy, key, statement));
+    }
+  }
+
+  /**
+   * A cached prepared statement seen by the DAOs. Closing it puts it back in the cache.
+   */
+  private final class StatementHandle implements InvocationHandler {
+    private final PooledEntry entry;
+    private final Connection connection;
+    private final String key;
+    private final PreparedStatement statement;
+    private boolean closed;
+
+    private StatementHandle(PooledEntry entry, Connection connection, String key,
+        PreparedStatement statement) {
+      this.entry = entry;
+      this.connection = connection;
+      this.key = key;
+      this.statement = statement;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!closed) {
+            closed = true;
+            recycle();
+          }
+          return null;
+        case "isClosed":
+          return closed || statement.isClosed();
+        case "getConnection":
+          return connection;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Cached[" + statement + "]";
+        default:
+          if (closed) {
+            throw new SQLException("Statement has already been closed");
+          }
+          try {
+            return method.invoke(statement, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    }
+
+    private void recycle() {
+      try {
+        if (connection.isClosed() || statement.isClosed()) {
+          closeStatement(statement);
+          return;
+        }
+        statement.clearParameters();
+        statement.clearBatch();
+        PreparedStatement previous = entry.statements.put(key, statement);
+        if (previous != null && previous != statement) {
+          closeStatement(previous);
+        }
+      } catch (SQLException e) {
+        logger.error("Error while recycling prepared statement", e);
+        closeStatement(statement);
+      }
+    }
+  }
+}
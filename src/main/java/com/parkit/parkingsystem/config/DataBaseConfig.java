@@ -1,26 +1,212 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.Phase;
+import com.parkit.parkingsystem.model.ParkingSpot;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    /**
+     * One pool per database and user, shared by every DataBaseConfig (and so every DAO) using it.
+     */
+    private static final ConcurrentMap<String, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
+
+    /**
+     * Set this system property to the comma separated JDBC URLs of read replicas of the database, to serve the
+     * reads that tolerate bounded staleness from them. A replica more than replicaMaxLagMillis behind (5 s by
+     * default) stops serving reads until it catches up.
+     */
+    private static final String REPLICAS_PROPERTY = "parkingsystem.db.replicas";
+    private static final String REPLICA_MAX_LAG_MILLIS_PROPERTY = "parkingsystem.db.replicaMaxLagMillis";
+    private static final long DEFAULT_REPLICA_MAX_LAG_MILLIS = 5_000;
+    private static final long REPLICA_HEARTBEAT_MILLIS = 1_000;
+
+    /**
+     * One replica set per primary database and user, shared like the pools.
+     */
+    private static final ConcurrentMap<String, ReplicaSet> replicaSets = new ConcurrentHashMap<>();
+
+    /**
+     * Borrows a connection from the pool. Closing it (see {@link #closeConnection(Connection)})
+     * gives it back to the pool.
+     */
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+        long start = Metrics.start();
+        try {
+            return getConnectionPool().borrow();
+        } catch (SQLException e) {
+            Metrics.fail(Phase.DB_CONNECT);
+            throw e;
+        } finally {
+            Metrics.stop(Phase.DB_CONNECT, start);
+        }
+    }
+
+    /**
+     * Borrows a connection for a read that tolerates bounded staleness: recurring user checks and reports. It comes
+     * from a read replica in sync with the primary if there is one, from the primary otherwise. Gate claims and
+     * writes, the reads they depend on, and the resyncs that replace in-memory state such as the spot index and
+     * occupancy counts, must use {@link #getConnection()}.
+     */
+    public Connection getReadConnection() throws ClassNotFoundException, SQLException {
+        ReplicaSet replicaSet = getReplicaSet();
+        if (replicaSet != null) {
+            Connection connection = replicaSet.borrow();
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return getConnection();
+    }
+
+    /**
+     * @return the read replicas of this database, their lag checked from first use, null if there are none
+     */
+    public ReplicaSet getReplicaSet() {
+        List<String> replicaUrls = getReplicaUrls();
+        if (replicaUrls.isEmpty()) {
+            return null;
+        }
+        String key = getUser() + "@" + getUrl();
+        ReplicaSet replicaSet = replicaSets.get(key);
+        if (replicaSet == null) {
+            replicaSet = replicaSets.computeIfAbsent(key, k -> {
+                List<DataBaseConfig> replicas = new ArrayList<>();
+                for (String replicaUrl : replicaUrls) {
+                    replicas.add(new ReplicaDataBaseConfig(this, replicaUrl));
+                }
+                ReplicaSet created = new ReplicaSet(this, replicas, getReplicaMaxLagMillis());
+                created.start(REPLICA_HEARTBEAT_MILLIS);
+                return created;
+            });
+        }
+        return replicaSet;
+    }
+
+    /**
+     * @return the pool serving this configuration, created on first use
+     */
+    public ConnectionPool getConnectionPool() throws ClassNotFoundException {
+        String key = getUser() + "@" + getUrl();
+        ConnectionPool pool = connectionPools.get(key);
+        if (pool == null) {
+            Class.forName(getDriverClassName());
+            pool = connectionPools.computeIfAbsent(key, k -> new ConnectionPool(k,
+                    () -> DriverManager.getConnection(getUrl(), getUser(), getPassword()),
+                    getPoolMinSize(), getPoolMaxSize(),
+                    getPoolBorrowTimeoutMillis(), getPoolIdleTimeoutMillis(),
+                    getStatementCacheSize()));
+        }
+        return pool;
+    }
+
+    /**
+     * @return the counters of the pool serving this configuration
+     */
+    public PoolStats getPoolStats() throws ClassNotFoundException {
+        return getConnectionPool().getStats();
+    }
+
+    /**
+     * Closes every pool. Meant to be called once when the application shuts down.
+     */
+    public static void closeConnectionPools() {
+        for (ReplicaSet replicaSet : replicaSets.values()) {
+            replicaSet.stop();
+        }
+        replicaSets.clear();
+        for (ConnectionPool pool : connectionPools.values()) {
+            logger.info("{}", pool.getStats());
+            pool.close();
+        }
+        connectionPools.clear();
+    }
+
+    /**
+     * @return the site whose spots and tickets this database stores
+     */
+    public String getSite() {
+        return ParkingSpot.DEFAULT_SITE;
+    }
+
+    protected String getDriverClassName() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    protected String getUrl() {
+        // Server-side prepared statements: a statement reused from the pool cache is not parsed again.
+        // Cursor fetch: a statement with a fetch size streams its rows instead of loading them all.
+        return "jdbc:mysql://localhost:3306/prod?useServerPrepStmts=true&useCursorFetch=true";
+    }
+
+    protected String getUser() {
+        return "root";
+    }
+
+    protected String getPassword() {
+        return "rootroot";
+    }
+
+    protected int getPoolMinSize() {
+        return 2;
+    }
+
+    protected int getPoolMaxSize() {
+        return 10;
+    }
+
+    protected long getPoolBorrowTimeoutMillis() {
+        return 5_000;
+    }
+
+    protected long getPoolIdleTimeoutMillis() {
+        return 10 * 60 * 1000;
+    }
+
+    /**
+     * @return the number of prepared statements cached per pooled connection, enough for every DBConstants query
+     */
+    protected int getStatementCacheSize() {
+        return 32;
+    }
+
+    /**
+     * @return the JDBC URLs of the read replicas of this database, empty if there are none
+     */
+    protected List<String> getReplicaUrls() {
+        String replicaUrls = System.getProperty(REPLICAS_PROPERTY);
+        if (replicaUrls == null || replicaUrls.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> urls = new ArrayList<>();
+        for (String url : replicaUrls.split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+
+    protected long getReplicaMaxLagMillis() {
+        return Long.getLong(REPLICA_MAX_LAG_MILLIS_PROPERTY, DEFAULT_REPLICA_MAX_LAG_MILLIS);
     }
 
     public void closeConnection(Connection con){
         if(con!=null){
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.debug("Closing DB connection");
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
@@ -31,7 +217,7 @@ public class DataBaseConfig {
         if(ps!=null){
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -42,7 +228,7 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
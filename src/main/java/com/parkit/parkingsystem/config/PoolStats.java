@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Snapshot of the counters of a {@link ConnectionPool}.
+ *
+ */
+public class PoolStats {
+  private final String poolName;
+  private final int totalConnections;
+  private final int idleConnections;
+  private final int activeConnections;
+  private final int maxConnections;
+  private final int waitingThreads;
+  private final long borrowCount;
+  private final long createdCount;
+  private final long destroyedCount;
+  private final long timeoutCount;
+  private final long validationFailureCount;
+  private final long statementHitCount;
+  private final long statementMissCount;
+
+  public PoolStats(String poolName, int totalConnections, int idleConnections,
+      int activeConnections, int maxConnections, int waitingThreads, long borrowCount,
+      long createdCount, long destroyedCount, long timeoutCount, long validationFailureCount,
+      long statementHitCount, long statementMissCount) {
+    this.poolName = poolName;
+    this.totalConnections = totalConnections;
+    this.idleConnections = idleConnections;
+    this.activeConnections = activeConnections;
+    this.maxConnections = maxConnections;
+    this.waitingThreads = waitingThreads;
+    this.borrowCount = borrowCount;
+    this.createdCount = createdCount;
+    this.destroyedCount = destroyedCount;
+    this.timeoutCount = timeoutCount;
+    this.validationFailureCount = validationFailureCount;
+    this.statementHitCount = statementHitCount;
+    this.statementMissCount = statementMissCount;
+  }
+
+  public String getPoolName() {
+    return poolName;
+  }
+
+  public int getTotalConnections() {
+    return totalConnections;
+  }
+
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  public int getActiveConnections() {
+    return activeConnections;
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public int getWaitingThreads() {
+    return waitingThreads;
+  }
+
+  public long getBorrowCount() {
+    return borrowCount;
+  }
+
+  public long getCreatedCount() {
+    return createdCount;
+  }
+
+  public long getDestroyedCount() {
+    return destroyedCount;
+  }
+
+  public long getTimeoutCount() {
+    return timeoutCount;
+  }
+
+  public long getValidationFailureCount() {
+    return validationFailureCount;
+  }
+
+  public long getStatementHitCount() {
+    return statementHitCount;
+  }
+
+  public long getStatementMissCount() {
+    return statementMissCount;
+  }
+
+  /**
+   * @return the share of prepared statements served from the statement cache, 0 if none was
+   *         prepared
+   */
+  public double getStatementHitRatio() {
+    long prepared = statementHitCount + statementMissCount;
+    return (prepared == 0) ? 0 : (double) statementHitCount / prepared;
+  }
+
+  @Override
+  public String toString() {
+    return "PoolStats[" + poolName + ": total=" + totalConnections + ", idle=" + idleConnections
+        + ", active=" + activeConnections + ", max=" + maxConnections + ", waiting="
+        + waitingThreads + ", borrowed=" + borrowCount + ", created=" + createdCount
+        + ", destroyed=" + destroyedCount + ", timeouts=" + timeoutCount
+        + ", validationFailures=" + validationFailureCount + ", statementHits="
+        + statementHitCount + ", statementMisses=" + statementMissCount + "]";
+  }
+}
@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.config;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read replica of a primary database: same driver, credentials and pool settings, another URL.
+ *
+ */
+class ReplicaDataBaseConfig extends DataBaseConfig {
+
+  private final DataBaseConfig primary;
+  private final String url;
+
+  ReplicaDataBaseConfig(DataBaseConfig primary, String url) {
+    this.primary = primary;
+    this.url = url;
+  }
+
+  @Override
+  public String getSite() {
+    return primary.getSite();
+  }
+
+  @Override
+  protected String getDriverClassName() {
+    return primary.getDriverClassName();
+  }
+
+  @Override
+  protected String getUrl() {
+    return url;
+  }
+
+  @Override
+  protected String getUser() {
+    return primary.getUser();
+  }
+
+  @Override
+  protected String getPassword() {
+    return primary.getPassword();
+  }
+
+  @Override
+  protected int getPoolMinSize() {
+    return primary.getPoolMinSize();
+  }
+
+  @Override
+  protected int getPoolMaxSize() {
+    return primary.getPoolMaxSize();
+  }
+
+  @Override
+  protected long getPoolBorrowTimeoutMillis() {
+    return primary.getPoolBorrowTimeoutMillis();
+  }
+
+  @Override
+  protected long getPoolIdleTimeoutMillis() {
+    return primary.getPoolIdleTimeoutMillis();
+  }
+
+  @Override
+  protected int getStatementCacheSize() {
+    return primary.getStatementCacheSize();
+  }
+
+  /**
+   * @return none: replicas are not chained
+   */
+  @Override
+  protected List<String> getReplicaUrls() {
+    return Collections.emptyList();
+  }
+}
@@ -0,0 +1,180 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * The read replicas of a primary database, serving the reads that tolerate bounded staleness.
+ *
+ * Lag is measured with a heartbeat: every period, the primary's {@code replica_heartbeat} row is
+ * stamped with the current time and read back from each replica. A replica is in sync when the
+ * stamp it holds is at most the maximum lag old, so the maximum lag should be a few heartbeat
+ * periods. Connections are borrowed round robin from the replicas in sync; when none is, or when
+ * a replica cannot be reached, {@link DataBaseConfig#getReadConnection()} falls back to the
+ * primary.
+ *
+ */
+public class ReplicaSet {
+
+  private static final Logger logger = LogManager.getLogger("ReplicaSet");
+
+  private final DataBaseConfig primary;
+  private final List<DataBaseConfig> replicas;
+  private final long maxLagMillis;
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private volatile List<DataBaseConfig> replicasInSync = Collections.emptyList();
+  private ScheduledExecutorService heartbeatExecutor;
+
+  /**
+   * @param primary the database the replicas copy
+   * @param replicas the read replicas, out of sync until the first heartbeat check
+   * @param maxLagMillis how far behind the primary a replica may be and still serve reads
+   */
+  public ReplicaSet(DataBaseConfig primary, List<DataBaseConfig> replicas, long maxLagMillis) {
+    this.primary = primary;
+    this.replicas = new ArrayList<>(replicas);
+    this.maxLagMillis = maxLagMillis;
+  }
+
+  /**
+   * Borrows a connection from a replica in sync.
+   *
+   * @return the connection, null if no replica is in sync or the chosen one cannot be reached
+   */
+  public Connection borrow() {
+    List<DataBaseConfig> inSync = replicasInSync;
+    if (inSync.isEmpty()) {
+      return null;
+    }
+    DataBaseConfig replica =
+        inSync.get((nextReplica.getAndIncrement() & Integer.MAX_VALUE) % inSync.size());
+    try {
+      return replica.getConnection();
+    } catch (Exception e) {
+      logger.warn("Read replica {} unreachable, reading from the primary until it catches up",
+          replica.getUrl(), e);
+      markOutOfSync(replica);
+      return null;
+    }
+  }
+
+  private synchronized void markOutOfSync(DataBaseConfig replica) {
+    List<DataBaseConfig> inSync = new ArrayList<>(replicasInSync);
+    if (inSync.remove(replica)) {
+      replicasInSync = Collections.unmodifiableList(inSync);
+    }
+  }
+
+  /**
+   * @return the replicas currently serving reads
+   */
+  public int getReplicasInSync() {
+    return replicasInSync.size();
+  }
+
+  /**
+   * Stamps the heartbeat on the primary, then measures the lag of each replica and updates the
+   * replicas serving reads.
+   *
+   * @return the number of replicas in sync
+   */
+  public synchronized int checkLag() {
+    long now = System.currentTimeMillis();
+    stampHeartbeat(now);
+    List<DataBaseConfig> inSync = new ArrayList<>();
+    for (DataBaseConfig replica : replicas) {
+      long lagMillis = now - readHeartbeat(replica);
+      boolean wasInSync = replicasInSync.contains(replica);
+      if (lagMillis <= maxLagMillis) {
+        inSync.add(replica);
+        if (!wasInSync) {
+          logger.info("Read replica {} in sync, {} ms behind", replica.getUrl(), lagMillis);
+        }
+      } else if (wasInSync) {
+        logger.warn("Read replica {} is {} ms behind, reading from the primary until it catches up",
+            replica.getUrl(), lagMillis);
+      }
+    }
+    replicasInSync = Collections.unmodifiableList(inSync);
+    return inSync.size();
+  }
+
+  private void stampHeartbeat(long now) {
+    Connection con = null;
+    try {
+      con = primary.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_REPLICA_HEARTBEAT);
+      ps.setLong(1, now);
+      ps.executeUpdate();
+      primary.closePreparedStatement(ps);
+    } catch (Exception ex) {
+      logger.error("Error stamping the replica heartbeat", ex);
+    } finally {
+      primary.closeConnection(con);
+    }
+  }
+
+  /**
+   * @return the heartbeat the replica holds, 0 if it cannot be read
+   */
+  private long readHeartbeat(DataBaseConfig replica) {
+    Connection con = null;
+    try {
+      con = replica.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_REPLICA_HEARTBEAT);
+      ResultSet rs = ps.executeQuery();
+      long beatTime = rs.next() ? rs.getLong(1) : 0;
+      replica.closeResultSet(rs);
+      replica.closePreparedStatement(ps);
+      return beatTime;
+    } catch (Exception ex) {
+      logger.debug("Error reading the heartbeat of {}", replica.getUrl(), ex);
+      return 0;
+    } finally {
+      replica.closeConnection(con);
+    }
+  }
+
+  /**
+   * Checks the lag now, then every period, in a background daemon thread.
+   *
+   * @param periodMillis the delay between two heartbeats
+   */
+  public synchronized void start(long periodMillis) {
+    stop();
+    checkLag();
+    heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "replica-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+    heartbeatExecutor.scheduleWithFixedDelay(() -> {
+      try {
+        checkLag();
+      } catch (RuntimeException e) {
+        logger.error("Error checking the replica lag", e);
+      }
+    }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the heartbeat, if started. Reads then go to the replicas last found in sync.
+   */
+  public synchronized void stop() {
+    if (heartbeatExecutor != null) {
+      heartbeatExecutor.shutdownNow();
+      heartbeatExecutor = null;
+    }
+  }
+}
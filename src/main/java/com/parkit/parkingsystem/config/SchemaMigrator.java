@@ -0,0 +1,264 @@
+package com.parkit.parkingsystem.config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Brings the schema of a database up to date when the application starts.
+ *
+ * Migrations are the {@code db/migration/V<version>__<description>.sql} resources listed in
+ * {@link #MIGRATIONS}, applied in order. The version of each applied migration is recorded in the
+ * {@code schema_version} table, so each one runs once per database. A migration must never be
+ * changed once released: add a new one instead. A statement preceded by a {@code -- @mysql} line
+ * only runs on MySQL, for features embedded test databases do not have.
+ *
+ * Processes starting together migrate one after the other: on MySQL under a named lock held for
+ * the whole run, elsewhere (embedded databases, only opened by this process) under a JVM lock.
+ * Each statement applied is recorded in {@code schema_migration_progress} until its migration is
+ * complete, so a run that failed part-way resumes after the last statement that succeeded.
+ *
+ */
+public class SchemaMigrator {
+
+  private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+  /**
+   * The migrations, in version order.
+   */
+  private static final String[] MIGRATIONS = {
+      "V1__create_tables.sql",
+      "V2__add_lookup_indexes.sql",
+      "V3__create_ticket_archive.sql",
+      "V4__add_parking_level.sql",
+      "V5__create_import_checkpoint.sql",
+      "V6__create_ticket_summary.sql",
+      "V7__create_replica_heartbeat.sql",
+      "V8__partition_ticket_archive_by_month.sql"};
+
+  private static final String MYSQL_ONLY = "-- @mysql";
+
+  private static final String CREATE_SCHEMA_VERSION =
+      "create table if not exists schema_version(VERSION int PRIMARY KEY,"
+          + " DESCRIPTION varchar(100) NOT NULL, APPLIED_ON DATETIME NOT NULL)";
+  private static final String GET_SCHEMA_VERSION = "select max(VERSION) from schema_version";
+  private static final String SAVE_SCHEMA_VERSION =
+      "insert into schema_version(VERSION, DESCRIPTION, APPLIED_ON) values(?,?,?)";
+
+  private static final String CREATE_MIGRATION_PROGRESS =
+      "create table if not exists schema_migration_progress(VERSION int PRIMARY KEY,"
+          + " STATEMENTS int NOT NULL)";
+  private static final String GET_MIGRATION_PROGRESS =
+      "select STATEMENTS from schema_migration_progress where VERSION = ?";
+  private static final String UPDATE_MIGRATION_PROGRESS =
+      "update schema_migration_progress set STATEMENTS = ? where VERSION = ?";
+  private static final String INSERT_MIGRATION_PROGRESS =
+      "insert into schema_migration_progress(STATEMENTS, VERSION) values(?,?)";
+  private static final String DELETE_MIGRATION_PROGRESS =
+      "delete from schema_migration_progress where VERSION = ?";
+
+  private static final String LOCK_NAME = "parkingsystem.schema_migration";
+  private static final int LOCK_TIMEOUT_SECONDS = 300;
+  private static final String GET_LOCK = "select GET_LOCK(?, ?)";
+  private static final String RELEASE_LOCK = "select RELEASE_LOCK(?)";
+  private static final Object LOCAL_LOCK = new Object();
+
+  private final DataBaseConfig dataBaseConfig;
+
+  public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+    this.dataBaseConfig = dataBaseConfig;
+  }
+
+  /**
+   * @return the version of the latest migration
+   */
+  public static int getLatestVersion() {
+    return MIGRATIONS.length;
+  }
+
+  /**
+   * Applies every migration not applied yet.
+   *
+   * @return the schema version, -1 if a migration failed
+   */
+  public int migrate() {
+    return migrate(getLatestVersion());
+  }
+
+  /**
+   * Applies the migrations not applied yet, up to the given version.
+   *
+   * @param targetVersion the version to stop at
+   * @return the schema version, -1 if a migration failed
+   */
+  public int migrate(int targetVersion) {
+    Connection con = null;
+    boolean locked = false;
+    try {
+      con = dataBaseConfig.getConnection();
+      boolean mysql = "MySQL".equalsIgnoreCase(con.getMetaData().getDatabaseProductName());
+      if (!mysql) {
+        synchronized (LOCAL_LOCK) {
+          return apply(con, targetVersion, false);
+        }
+      }
+      locked = lock(con);
+      if (!locked) {
+        logger.error("Schema migration lock not granted within {} s", LOCK_TIMEOUT_SECONDS);
+        return -1;
+      }
+      return apply(con, targetVersion, true);
+    } catch (Exception ex) {
+      logger.error("Error migrating the database schema", ex);
+      return -1;
+    } finally {
+      if (locked) {
+        unlock(con);
+      }
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  private int apply(Connection con, int targetVersion, boolean mysql)
+      throws IOException, SQLException {
+    Statement statement = con.createStatement();
+    statement.execute(CREATE_SCHEMA_VERSION);
+    statement.execute(CREATE_MIGRATION_PROGRESS);
+    ResultSet rs = statement.executeQuery(GET_SCHEMA_VERSION);
+    int version = rs.next() ? rs.getInt(1) : 0;
+    dataBaseConfig.closeResultSet(rs);
+    while (version < Math.min(targetVersion, MIGRATIONS.length)) {
+      String migration = MIGRATIONS[version];
+      version++;
+      List<String> statements = readStatements(migration, mysql);
+      int applied = getProgress(con, version);
+      if (applied > 0) {
+        logger.info("Resuming schema migration {} after statement {}", migration, applied);
+      } else {
+        logger.info("Applying schema migration {}", migration);
+      }
+      for (int i = applied; i < statements.size(); i++) {
+        statement.execute(statements.get(i));
+        saveProgress(con, version, i + 1);
+      }
+      PreparedStatement ps = con.prepareStatement(SAVE_SCHEMA_VERSION);
+      ps.setInt(1, version);
+      ps.setString(2, migration);
+      ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+      ps.execute();
+      dataBaseConfig.closePreparedStatement(ps);
+      ps = con.prepareStatement(DELETE_MIGRATION_PROGRESS);
+      ps.setInt(1, version);
+      ps.execute();
+      dataBaseConfig.closePreparedStatement(ps);
+    }
+    statement.close();
+    return version;
+  }
+
+  /**
+   * @return the number of statements of the migration applied by a run that failed part-way
+   */
+  private int getProgress(Connection con, int version) throws SQLException {
+    PreparedStatement ps = con.prepareStatement(GET_MIGRATION_PROGRESS);
+    ps.setInt(1, version);
+    ResultSet rs = ps.executeQuery();
+    int applied = rs.next() ? rs.getInt(1) : 0;
+    dataBaseConfig.closeResultSet(rs);
+    dataBaseConfig.closePreparedStatement(ps);
+    return applied;
+  }
+
+  private void saveProgress(Connection con, int version, int applied) throws SQLException {
+    PreparedStatement ps = con.prepareStatement(UPDATE_MIGRATION_PROGRESS);
+    ps.setInt(1, applied);
+    ps.setInt(2, version);
+    int updateRowCount = ps.executeUpdate();
+    dataBaseConfig.closePreparedStatement(ps);
+    if (updateRowCount == 0) {
+      ps = con.prepareStatement(INSERT_MIGRATION_PROGRESS);
+      ps.setInt(1, applied);
+      ps.setInt(2, version);
+      ps.execute();
+      dataBaseConfig.closePreparedStatement(ps);
+    }
+  }
+
+  /**
+   * @return the named lock of the migrations is held by the connection
+   */
+  private boolean lock(Connection con) throws SQLException {
+    PreparedStatement ps = con.prepareStatement(GET_LOCK);
+    ps.setString(1, LOCK_NAME);
+    ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+    ResultSet rs = ps.executeQuery();
+    boolean locked = rs.next() && rs.getInt(1) == 1;
+    dataBaseConfig.closeResultSet(rs);
+    dataBaseConfig.closePreparedStatement(ps);
+    return locked;
+  }
+
+  private void unlock(Connection con) {
+    try {
+      PreparedStatement ps = con.prepareStatement(RELEASE_LOCK);
+      ps.setString(1, LOCK_NAME);
+      ps.executeQuery().close();
+      dataBaseConfig.closePreparedStatement(ps);
+    } catch (Exception ex) {
+      logger.error("Error releasing the schema migration lock", ex);
+    }
+  }
+
+  /**
+   * Splits a migration into statements, each ending with a semicolon at the end of a line.
+   * Comment lines, starting with two dashes, are skipped.
+   *
+   * @param mysql whether the statements marked as MySQL only are kept
+   */
+  static List<String> readStatements(String migration, boolean mysql) throws IOException {
+    InputStream in = SchemaMigrator.class.getResourceAsStream("/db/migration/" + migration);
+    if (in == null) {
+      throw new IOException("Missing schema migration " + migration);
+    }
+    List<String> statements = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      StringBuilder statement = new StringBuilder();
+      boolean mysqlOnly = false;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String trimmed = line.trim();
+        if (trimmed.equalsIgnoreCase(MYSQL_ONLY)) {
+          mysqlOnly = true;
+        }
+        if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+          continue;
+        }
+        statement.append(trimmed).append(' ');
+        if (trimmed.endsWith(";")) {
+          if (mysql || !mysqlOnly) {
+            statements.add(statement.substring(0, statement.lastIndexOf(";")).trim());
+          }
+          statement.setLength(0);
+          mysqlOnly = false;
+        }
+      }
+      if (statement.toString().trim().length() > 0 && (mysql || !mysqlOnly)) {
+        statements.add(statement.toString().trim());
+      }
+    }
+    return statements;
+  }
+}
@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The database (or schema) of one site of a multi-site deployment. Each site gets its own
+ * connection pool, pools being shared per database and user.
+ *
+ */
+public class SiteDataBaseConfig extends DataBaseConfig {
+
+  private final String site;
+  private final String url;
+  private final String user;
+  private final String password;
+  private final List<String> replicaUrls;
+
+  /**
+   * @param site the site whose spots and tickets the database stores
+   * @param url the JDBC URL of the database, or of the schema, of the site
+   * @param user the DB user
+   * @param password the DB password
+   */
+  public SiteDataBaseConfig(String site, String url, String user, String password) {
+    this(site, url, user, password, Collections.<String>emptyList());
+  }
+
+  /**
+   * @param site the site whose spots and tickets the database stores
+   * @param url the JDBC URL of the database, or of the schema, of the site
+   * @param user the DB user
+   * @param password the DB password
+   * @param replicaUrls the JDBC URLs of the read replicas of that database
+   */
+  public SiteDataBaseConfig(String site, String url, String user, String password,
+      List<String> replicaUrls) {
+    this.site = site;
+    this.url = url;
+    this.user = user;
+    this.password = password;
+    this.replicaUrls = Collections.unmodifiableList(new ArrayList<>(replicaUrls));
+  }
+
+  @Override
+  public String getSite() {
+    return site;
+  }
+
+  @Override
+  protected String getUrl() {
+    return url;
+  }
+
+  @Override
+  protected String getUser() {
+    return user;
+  }
+
+  @Override
+  protected String getPassword() {
+    return password;
+  }
+
+  @Override
+  protected List<String> getReplicaUrls() {
+    return replicaUrls;
+  }
+}
@@ -0,0 +1,60 @@
+package com.parkit.parkingsystem.config;
+
+import java.time.ZoneId;
+import java.util.TimeZone;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The time zone of the parking, in which times are stored in the database, days are cut for the
+ * tariffs and reports, and imported date-times are read.
+ *
+ * It is applied once at startup, before any connection is opened: the JDBC drivers convert
+ * between epoch millis and DATETIME columns in the JVM default zone, so the default is set to it.
+ *
+ */
+public final class ZoneConfig {
+
+  private static final Logger logger = LogManager.getLogger("ZoneConfig");
+
+  /**
+   * The zone id, such as Europe/Paris. The JVM default zone if not set.
+   */
+  public static final String ZONE_PROPERTY = "parkingsystem.zone";
+
+  private static volatile ZoneId zone = ZoneId.systemDefault();
+
+  private ZoneConfig() {
+  }
+
+  /**
+   * Applies the zone of the {@value #ZONE_PROPERTY} system property.
+   *
+   * @return the zone applied
+   */
+  public static ZoneId apply() {
+    String zoneId = System.getProperty(ZONE_PROPERTY);
+    return apply((zoneId == null || zoneId.trim().isEmpty()) ? ZoneId.systemDefault()
+        : ZoneId.of(zoneId.trim()));
+  }
+
+  /**
+   * Makes the given zone the one of the parking and the JVM default.
+   *
+   * @param parkingZone the zone of the parking
+   * @return the zone applied
+   */
+  public static ZoneId apply(ZoneId parkingZone) {
+    TimeZone.setDefault(TimeZone.getTimeZone(parkingZone));
+    zone = parkingZone;
+    logger.info("Parking time zone {}", parkingZone);
+    return parkingZone;
+  }
+
+  /**
+   * @return the zone of the parking, the JVM default one until a zone is applied
+   */
+  public static ZoneId getZone() {
+    return zone;
+  }
+}
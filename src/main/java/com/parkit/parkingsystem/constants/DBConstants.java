@@ -4,12 +4,64 @@ public class DBConstants {
 
   public static final String GET_NEXT_PARKING_SPOT =
       "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+  public static final String GET_PARKING_SPOTS =
+      "select PARKING_NUMBER, AVAILABLE, TYPE, PARKING_LEVEL from parking";
   public static final String UPDATE_PARKING_SPOT =
       "update parking set available = ? where PARKING_NUMBER = ?";
+  public static final String CLAIM_PARKING_SPOT =
+      "update parking set available = false where PARKING_NUMBER = ? and AVAILABLE = true";
 
   public static final String SAVE_TICKET =
       "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
   public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
   public static final String GET_TICKET =
-      "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
+      "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, p.PARKING_LEVEL from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
+  public static final String GET_ARCHIVED_TICKET =
+      "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, p.PARKING_LEVEL from ticket_archive t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
+  public static final String GET_OPEN_TICKETS =
+      "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, p.PARKING_LEVEL, t.VEHICLE_REG_NUMBER from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME is null order by t.IN_TIME";
+
+  public static final String IS_RECURRENT_USER =
+      "select exists(select 1 from ticket where VEHICLE_REG_NUMBER = ? and OUT_TIME is not null)";
+  public static final String IS_ARCHIVED_RECURRENT_USER =
+      "select exists(select 1 from ticket_archive where VEHICLE_REG_NUMBER = ?)";
+  public static final String GET_RECURRENT_USERS =
+      "select VEHICLE_REG_NUMBER from ticket where OUT_TIME is not null union select VEHICLE_REG_NUMBER from ticket_archive";
+
+  public static final String GET_LAST_ARCHIVABLE_TICKET =
+      "select max(ID) from (select ID from ticket where OUT_TIME < ? order by ID limit ?) batch";
+  public static final String ARCHIVE_TICKETS =
+      "insert into ticket_archive(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, ARCHIVE_MONTH) select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, year(OUT_TIME) * 100 + month(OUT_TIME) from ticket where OUT_TIME < ? and ID <= ?";
+  public static final String DELETE_ARCHIVED_TICKETS =
+      "delete from ticket where OUT_TIME < ? and ID <= ?";
+  public static final String GET_ARCHIVE_PARTITIONS =
+      "select PARTITION_NAME from information_schema.PARTITIONS where TABLE_SCHEMA = database() and TABLE_NAME = 'ticket_archive' order by PARTITION_ORDINAL_POSITION";
+  public static final String GET_OLDEST_ARCHIVE_MONTH = "select min(ARCHIVE_MONTH) from ticket_archive";
+
+  public static final String GET_TICKETS_IN_RANGE =
+      "select p.TYPE, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, t.PARKING_NUMBER from ticket t,parking p where p.parking_number = t.parking_number and t.IN_TIME < ? and (t.OUT_TIME is null or t.OUT_TIME >= ?)"
+          + " union all select p.TYPE, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, t.PARKING_NUMBER from ticket_archive t,parking p where p.parking_number = t.parking_number and t.IN_TIME < ? and t.OUT_TIME >= ?";
+
+  public static final String IMPORT_TICKETS =
+      "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values";
+  public static final String IMPORT_TICKET_VALUES = "(?,?,?,?,?)";
+  public static final String GET_IMPORT_CHECKPOINTS =
+      "select PARTITION_NUMBER, LINE_NUMBER from import_checkpoint where SOURCE = ?";
+  public static final String SAVE_IMPORT_CHECKPOINT =
+      "insert into import_checkpoint(SOURCE, PARTITION_NUMBER, LINE_NUMBER) values(?,?,?)";
+  public static final String UPDATE_IMPORT_CHECKPOINT =
+      "update import_checkpoint set LINE_NUMBER = ? where SOURCE = ? and PARTITION_NUMBER = ?";
+
+  public static final String ADD_TICKET_SUMMARY =
+      "insert into ticket_summary(SUMMARY_DAY, SUMMARY_HOUR, TYPE, TICKET_COUNT, REVENUE, DURATION_MILLIS) values(?,?,?,?,?,?)"
+          + " on duplicate key update TICKET_COUNT = TICKET_COUNT + values(TICKET_COUNT), REVENUE = REVENUE + values(REVENUE), DURATION_MILLIS = DURATION_MILLIS + values(DURATION_MILLIS)";
+  public static final String GET_TICKET_SUMMARIES =
+      "select SUMMARY_DAY, SUMMARY_HOUR, TYPE, TICKET_COUNT, REVENUE, DURATION_MILLIS from ticket_summary where SUMMARY_DAY between ? and ? order by SUMMARY_DAY, SUMMARY_HOUR, TYPE";
+  public static final String DELETE_TICKET_SUMMARIES =
+      "delete from ticket_summary where SUMMARY_DAY between ? and ?";
+
+  public static final String UPDATE_REPLICA_HEARTBEAT =
+      "update replica_heartbeat set BEAT_TIME = ? where ID = 1";
+  public static final String GET_REPLICA_HEARTBEAT =
+      "select BEAT_TIME from replica_heartbeat where ID = 1";
 }
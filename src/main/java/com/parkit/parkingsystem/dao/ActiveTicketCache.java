@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * The tickets of the vehicles currently parked (no out time), by vehicle registration number.
+ *
+ * It is written through by {@link JdbcTicketDAO}: saved tickets are added and updated tickets are
+ * removed, so that an exiting vehicle usually finds its ticket without querying the DB. It stores
+ * and returns copies, so a caller changing its ticket never changes the cached one.
+ *
+ */
+public class ActiveTicketCache {
+
+  private final ConcurrentMap<String, Ticket> openTickets = new ConcurrentHashMap<>();
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+
+  /**
+   * Replaces the content of the cache.
+   *
+   * @param tickets the open tickets, oldest first so that the latest one wins for a vehicle
+   */
+  public void load(Collection<Ticket> tickets) {
+    openTickets.clear();
+    for (Ticket ticket : tickets) {
+      put(ticket);
+    }
+  }
+
+  /**
+   * @param vehicleRegNumber the vehicle registration number
+   * @return a copy of the open ticket of that vehicle, null if it is not in the cache
+   */
+  public Ticket get(String vehicleRegNumber) {
+    Ticket ticket = openTickets.get(vehicleRegNumber);
+    if (ticket == null) {
+      missCount.increment();
+      return null;
+    }
+    hitCount.increment();
+    return copy(ticket);
+  }
+
+  /**
+   * Adds the ticket if it is still open.
+   *
+   * @param ticket the ticket that has just been saved
+   */
+  public void put(Ticket ticket) {
+    if (!ticket.hasOutTime()) {
+      openTickets.put(ticket.getVehicleRegNumber(), copy(ticket));
+    }
+  }
+
+  /**
+   * Replaces the cached ticket of the same visit, if still there.
+   *
+   * @param ticket the ticket that has just been given its ID
+   */
+  public void refresh(Ticket ticket) {
+    openTickets.computeIfPresent(ticket.getVehicleRegNumber(),
+        (vehicleRegNumber, cached) -> (cached.getInTimeMillis() == ticket.getInTimeMillis())
+            ? copy(ticket) : cached);
+  }
+
+  /**
+   * @param vehicleRegNumber the registration number of the vehicle that has left
+   */
+  public void remove(String vehicleRegNumber) {
+    openTickets.remove(vehicleRegNumber);
+  }
+
+  public int size() {
+    return openTickets.size();
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  private static Ticket copy(Ticket ticket) {
+    ParkingSpot parkingSpot = ticket.getParkingSpot();
+    Ticket copy = new Ticket();
+    copy.setId(ticket.getId());
+    if (parkingSpot != null) {
+      copy.setParkingSpot(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(),
+          parkingSpot.isAvailable(), parkingSpot.getSite(), parkingSpot.getLevel()));
+    }
+    copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+    copy.setPrice(ticket.getPrice());
+    copy.setDiscounted(ticket.isDiscounted());
+    copy.setInTimeMillis(ticket.getInTimeMillis());
+    copy.setOutTimeMillis(ticket.getOutTimeMillis());
+    return copy;
+  }
+}
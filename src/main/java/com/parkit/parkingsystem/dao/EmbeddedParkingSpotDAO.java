@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.List;
+import java.util.function.Consumer;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+
+/**
+ * {@link ParkingSpotDAO} over an {@link EmbeddedStore} instead of the DB.
+ *
+ */
+public class EmbeddedParkingSpotDAO implements ParkingSpotDAO {
+
+  private final EmbeddedStore embeddedStore;
+  private volatile Consumer<ParkingSpot> spotChangeListener;
+
+  public EmbeddedParkingSpotDAO(EmbeddedStore embeddedStore) {
+    this.embeddedStore = embeddedStore;
+  }
+
+  @Override
+  public void setSpotChangeListener(Consumer<ParkingSpot> spotChangeListener) {
+    this.spotChangeListener = spotChangeListener;
+  }
+
+  private void spotChanged(ParkingSpot parkingSpot) {
+    Consumer<ParkingSpot> listener = spotChangeListener;
+    if (listener != null) {
+      listener.accept(parkingSpot);
+    }
+  }
+
+  @Override
+  public List<ParkingSpot> getParkingSpots() {
+    return embeddedStore.getParkingSpots();
+  }
+
+  @Override
+  public int getNextAvailableSlot(ParkingType parkingType) {
+    return embeddedStore.getNextAvailableSlot(parkingType);
+  }
+
+  @Override
+  public boolean updateParking(ParkingSpot parkingSpot) {
+    if (!embeddedStore.updateParking(parkingSpot.getId(), parkingSpot.isAvailable())) {
+      return false;
+    }
+    spotChanged(parkingSpot);
+    return true;
+  }
+
+  @Override
+  public int claimNextAvailableSlot(ParkingType parkingType) {
+    int slot = embeddedStore.claimNextAvailableSlot(parkingType);
+    if (slot > 0) {
+      spotChanged(new ParkingSpot(slot, parkingType, false));
+    }
+    return slot;
+  }
+
+  @Override
+  public boolean recurrentUser(String vehicleRegNumber) {
+    return embeddedStore.isRecurrentUser(vehicleRegNumber);
+  }
+}
@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.List;
+import java.util.function.Consumer;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+
+/**
+ * {@link TicketDAO} over an {@link EmbeddedStore} instead of the DB.
+ *
+ */
+public class EmbeddedTicketDAO implements TicketDAO {
+
+  private final EmbeddedStore embeddedStore;
+  private volatile Consumer<Ticket> ticketCloseListener;
+
+  public EmbeddedTicketDAO(EmbeddedStore embeddedStore) {
+    this.embeddedStore = embeddedStore;
+  }
+
+  @Override
+  public void setTicketCloseListener(Consumer<Ticket> ticketCloseListener) {
+    this.ticketCloseListener = ticketCloseListener;
+  }
+
+  @Override
+  public List<Ticket> getOpenTickets() {
+    return embeddedStore.getOpenTickets();
+  }
+
+  @Override
+  public boolean saveTicket(Ticket ticket) {
+    return embeddedStore.saveTicket(ticket);
+  }
+
+  @Override
+  public Ticket getTicket(String vehicleRegNumber) {
+    return embeddedStore.getTicket(vehicleRegNumber);
+  }
+
+  @Override
+  public boolean updateTicket(Ticket ticket) {
+    if (!embeddedStore.updateTicket(ticket)) {
+      return false;
+    }
+    Consumer<Ticket> listener = ticketCloseListener;
+    if (listener != null && ticket.hasOutTime()) {
+      listener.accept(ticket);
+    }
+    return true;
+  }
+}
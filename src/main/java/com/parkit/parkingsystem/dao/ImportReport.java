@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.dao;
+
+/**
+ * Outcome of a {@link TicketImporter} run.
+ *
+ */
+public class ImportReport {
+  private final String source;
+  private final long importedCount;
+  private final long rejectedCount;
+  private final long skippedCount;
+  private final long elapsedMillis;
+  private final boolean complete;
+
+  public ImportReport(String source, long importedCount, long rejectedCount, long skippedCount,
+      long elapsedMillis, boolean complete) {
+    this.source = source;
+    this.importedCount = importedCount;
+    this.rejectedCount = rejectedCount;
+    this.skippedCount = skippedCount;
+    this.elapsedMillis = elapsedMillis;
+    this.complete = complete;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * @return the number of tickets written by this run
+   */
+  public long getImportedCount() {
+    return importedCount;
+  }
+
+  /**
+   * @return the number of lines that are not valid tickets
+   */
+  public long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  /**
+   * @return the number of tickets already imported by a previous run
+   */
+  public long getSkippedCount() {
+    return skippedCount;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * @return the whole file was read and every valid ticket is imported. Otherwise the import
+   *         can be resumed from its checkpoints by running it again.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public double getTicketsPerSecond() {
+    return (elapsedMillis == 0) ? 0 : importedCount * 1000.0 / elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "Import of " + source + (complete ? " complete" : " interrupted") + ": "
+        + importedCount + " tickets imported in " + elapsedMillis + " ms ("
+        + Math.round(getTicketsPerSecond()) + "/s), " + rejectedCount + " rejected, "
+        + skippedCount + " already imported";
+  }
+}
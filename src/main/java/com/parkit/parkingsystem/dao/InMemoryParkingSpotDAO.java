@@ -0,0 +1,107 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * {@link ParkingSpotDAO} keeping the spots in memory only, to load test the service logic without
+ * a DB. The free spots are the lock-free bitmaps of a {@link ParkingSpotIndex}, and the type and
+ * level of each spot are arrays indexed by spot number. Nothing survives a restart.
+ *
+ */
+public class InMemoryParkingSpotDAO implements ParkingSpotDAO {
+
+  private final ParkingSpotIndex freeSpots = new ParkingSpotIndex();
+  private final int[] spotNumbers;
+  private final ParkingType[] parkingTypes;
+  private final int[] levels;
+  private final InMemoryTicketDAO ticketDAO;
+  private volatile Consumer<ParkingSpot> spotChangeListener;
+
+  /**
+   * @param parkingSpots the spots, with their initial availability
+   * @param ticketDAO the tickets the recurrent users are looked up in
+   */
+  public InMemoryParkingSpotDAO(List<ParkingSpot> parkingSpots, InMemoryTicketDAO ticketDAO) {
+    int highestSpotNumber = 0;
+    for (ParkingSpot parkingSpot : parkingSpots) {
+      highestSpotNumber = Math.max(highestSpotNumber, parkingSpot.getId());
+    }
+    spotNumbers = new int[parkingSpots.size()];
+    parkingTypes = new ParkingType[highestSpotNumber + 1];
+    levels = new int[highestSpotNumber + 1];
+    for (int i = 0; i < spotNumbers.length; i++) {
+      ParkingSpot parkingSpot = parkingSpots.get(i);
+      spotNumbers[i] = parkingSpot.getId();
+      parkingTypes[parkingSpot.getId()] = parkingSpot.getParkingType();
+      levels[parkingSpot.getId()] = parkingSpot.getLevel();
+    }
+    freeSpots.load(parkingSpots);
+    this.ticketDAO = ticketDAO;
+  }
+
+  @Override
+  public void setSpotChangeListener(Consumer<ParkingSpot> spotChangeListener) {
+    this.spotChangeListener = spotChangeListener;
+  }
+
+  private void spotChanged(ParkingSpot parkingSpot) {
+    Consumer<ParkingSpot> listener = spotChangeListener;
+    if (listener != null) {
+      listener.accept(parkingSpot);
+    }
+  }
+
+  @Override
+  public List<ParkingSpot> getParkingSpots() {
+    List<ParkingSpot> parkingSpots = new ArrayList<>(spotNumbers.length);
+    for (int spotNumber : spotNumbers) {
+      ParkingType parkingType = parkingTypes[spotNumber];
+      parkingSpots.add(new ParkingSpot(spotNumber, parkingType,
+          freeSpots.isAvailable(parkingType, spotNumber), ParkingSpot.DEFAULT_SITE,
+          levels[spotNumber]));
+    }
+    return parkingSpots;
+  }
+
+  @Override
+  public int getNextAvailableSlot(ParkingType parkingType) {
+    return freeSpots.getNextAvailableSlot(parkingType);
+  }
+
+  /**
+   * Only the listener is told of actual changes: freeing a spot twice counts once.
+   */
+  @Override
+  public boolean updateParking(ParkingSpot parkingSpot) {
+    int spotNumber = parkingSpot.getId();
+    if (spotNumber <= 0 || spotNumber >= parkingTypes.length
+        || parkingTypes[spotNumber] == null) {
+      return false;
+    }
+    ParkingSpot updated = new ParkingSpot(spotNumber, parkingTypes[spotNumber],
+        parkingSpot.isAvailable(), ParkingSpot.DEFAULT_SITE, levels[spotNumber]);
+    if (freeSpots.update(updated)) {
+      spotChanged(updated);
+    }
+    return true;
+  }
+
+  @Override
+  public int claimNextAvailableSlot(ParkingType parkingType) {
+    int slot = freeSpots.claim(parkingType);
+    if (slot > 0) {
+      spotChanged(
+          new ParkingSpot(slot, parkingType, false, ParkingSpot.DEFAULT_SITE, levels[slot]));
+    }
+    return slot;
+  }
+
+  @Override
+  public boolean recurrentUser(String vehicleRegNumber) {
+    return ticketDAO.hasCompletedVisit(vehicleRegNumber);
+  }
+}
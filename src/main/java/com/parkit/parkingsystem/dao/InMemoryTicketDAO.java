@@ -0,0 +1,142 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * {@link TicketDAO} keeping the latest ticket of each vehicle in memory only, to load test the
+ * service logic without a DB. Older tickets are forgotten, except that the vehicle has completed a
+ * visit, so the memory used is bounded by the number of distinct vehicles.
+ *
+ * The tickets are stored as immutable visits of plain fields and copied in and out, so a caller
+ * changing a ticket before updating it does not change the stored one.
+ *
+ */
+public class InMemoryTicketDAO implements TicketDAO {
+
+  private static final Comparator<Ticket> OLDEST_FIRST =
+      Comparator.comparingLong(Ticket::getInTimeMillis).thenComparingInt(Ticket::getId);
+
+  private final ConcurrentMap<String, Visit> latestVisits = new ConcurrentHashMap<>();
+  private final Set<String> completedVisitors = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger nextId = new AtomicInteger();
+  private volatile Consumer<Ticket> ticketCloseListener;
+
+  /**
+   * The latest ticket of a vehicle. An out time of {@link Ticket#NO_TIME} means that the vehicle is still parked.
+   */
+  private static final class Visit {
+    private final int id;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final String site;
+    private final int level;
+    private final double price;
+    private final long inTimeMillis;
+    private final long outTimeMillis;
+
+    private Visit(Ticket ticket, int id) {
+      this.id = id;
+      ParkingSpot parkingSpot = ticket.getParkingSpot();
+      parkingNumber = parkingSpot.getId();
+      parkingType = parkingSpot.getParkingType();
+      site = parkingSpot.getSite();
+      level = parkingSpot.getLevel();
+      price = ticket.getPrice();
+      inTimeMillis = ticket.getInTimeMillis();
+      outTimeMillis = ticket.getOutTimeMillis();
+    }
+
+    private Ticket toTicket(String vehicleRegNumber) {
+      Ticket ticket = new Ticket();
+      ticket.setId(id);
+      ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false, site, level));
+      ticket.setVehicleRegNumber(vehicleRegNumber);
+      ticket.setPrice(price);
+      ticket.setInTimeMillis(inTimeMillis);
+      ticket.setOutTimeMillis(outTimeMillis);
+      return ticket;
+    }
+  }
+
+  @Override
+  public void setTicketCloseListener(Consumer<Ticket> ticketCloseListener) {
+    this.ticketCloseListener = ticketCloseListener;
+  }
+
+  @Override
+  public List<Ticket> getOpenTickets() {
+    List<Ticket> tickets = new ArrayList<>();
+    latestVisits.forEach((vehicleRegNumber, visit) -> {
+      if (visit.outTimeMillis == Ticket.NO_TIME) {
+        tickets.add(visit.toTicket(vehicleRegNumber));
+      }
+    });
+    tickets.sort(OLDEST_FIRST);
+    return tickets;
+  }
+
+  /**
+   * @return false if the latest ticket of the vehicle is still open
+   */
+  @Override
+  public boolean saveTicket(Ticket ticket) {
+    Visit[] saved = new Visit[1];
+    latestVisits.compute(ticket.getVehicleRegNumber(), (vehicleRegNumber, visit) -> {
+      if (visit != null && visit.outTimeMillis == Ticket.NO_TIME) {
+        return visit;
+      }
+      saved[0] = new Visit(ticket, nextId.incrementAndGet());
+      return saved[0];
+    });
+    if (saved[0] == null) {
+      return false;
+    }
+    ticket.setId(saved[0].id);
+    return true;
+  }
+
+  @Override
+  public Ticket getTicket(String vehicleRegNumber) {
+    Visit visit = latestVisits.get(vehicleRegNumber);
+    return (visit == null) ? null : visit.toTicket(vehicleRegNumber);
+  }
+
+  /**
+   * @return false if the ticket is no longer the latest of its vehicle
+   */
+  @Override
+  public boolean updateTicket(Ticket ticket) {
+    Visit updated = new Visit(ticket, ticket.getId());
+    Visit replaced = latestVisits.computeIfPresent(ticket.getVehicleRegNumber(),
+        (vehicleRegNumber, visit) -> (visit.id == updated.id) ? updated : visit);
+    if (replaced != updated) {
+      return false;
+    }
+    if (ticket.hasOutTime()) {
+      completedVisitors.add(ticket.getVehicleRegNumber());
+      Consumer<Ticket> listener = ticketCloseListener;
+      if (listener != null) {
+        listener.accept(ticket);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param vehicleRegNumber the vehicle registration number
+   * @return the vehicle has left the parking at least once
+   */
+  public boolean hasCompletedVisit(String vehicleRegNumber) {
+    return completedVisitors.contains(vehicleRegNumber);
+  }
+}
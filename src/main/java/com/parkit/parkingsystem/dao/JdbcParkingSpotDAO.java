@@ -0,0 +1,290 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * {@link ParkingSpotDAO} over the parking table of the DB.
+ *
+ */
+public class JdbcParkingSpotDAO implements ParkingSpotDAO {
+  private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
+
+  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  /**
+   * How many times a gate retries when another gate claimed the spot it was about to take.
+   */
+  private static final int MAX_CLAIM_ATTEMPTS = 16;
+
+  private static final String[] IS_RECURRENT_USER_QUERIES =
+      {DBConstants.IS_RECURRENT_USER, DBConstants.IS_ARCHIVED_RECURRENT_USER};
+
+  private volatile ParkingSpotIndex parkingSpotIndex;
+  private volatile Consumer<ParkingSpot> spotChangeListener;
+
+  /**
+   * @param spotChangeListener told of each spot taken or freed through this DAO, after the DB
+   *        update, or null
+   */
+  @Override
+  public void setSpotChangeListener(Consumer<ParkingSpot> spotChangeListener) {
+    this.spotChangeListener = spotChangeListener;
+  }
+
+  /**
+   * Tells the listener of a spot taken or freed in the storage.
+   */
+  private void spotChanged(ParkingSpot parkingSpot) {
+    Consumer<ParkingSpot> listener = spotChangeListener;
+    if (listener != null) {
+      listener.accept(parkingSpot);
+    }
+  }
+
+  /**
+   * Loads the free spots in memory so that {@link #getNextAvailableSlot(ParkingType)} no longer
+   * queries the DB, and reloads them periodically.
+   * 
+   * @param resyncPeriodSeconds the delay between two reloads of the index from the DB
+   */
+  public void enableSpotIndex(long resyncPeriodSeconds) {
+    ParkingSpotIndex index = new ParkingSpotIndex();
+    index.load(getParkingSpots());
+    index.startResync(this::getParkingSpots, resyncPeriodSeconds);
+    disableSpotIndex();
+    parkingSpotIndex = index;
+  }
+
+  /**
+   * Goes back to querying the DB for the next available spot.
+   */
+  public void disableSpotIndex() {
+    if (parkingSpotIndex != null) {
+      parkingSpotIndex.stopResync();
+      parkingSpotIndex = null;
+    }
+  }
+
+  /**
+   * Always read from the primary: the resyncs of the spot index and of the occupancy counts replace
+   * in-memory state with it, so a lagging replica would hand out spots just taken or undo counts.
+   *
+   * @return every spot of the parking table, empty if an error occurred
+   */
+  @Override
+  public List<ParkingSpot> getParkingSpots() {
+    try {
+      return queryParkingSpots();
+    } catch (Exception ex) {
+      logger.error("Error fetching parking spots", ex);
+      return new ArrayList<>();
+    }
+  }
+
+  /**
+   * @return every spot of the parking table
+   * @throws SQLException if the DB cannot be read, for callers that must tell it from no spot
+   */
+  List<ParkingSpot> queryParkingSpots() throws ClassNotFoundException, SQLException {
+    Connection con = null;
+    List<ParkingSpot> parkingSpots = new ArrayList<>();
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+      ResultSet rs = ps.executeQuery();
+      while (rs.next()) {
+        parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)),
+            rs.getBoolean(2), dataBaseConfig.getSite(), rs.getInt(4)));
+      }
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+    return parkingSpots;
+  }
+
+  @Override
+  public int getNextAvailableSlot(ParkingType parkingType) {
+    ParkingSpotIndex index = parkingSpotIndex;
+    if (index != null) {
+      return index.getNextAvailableSlot(parkingType);
+    }
+    Connection con = null;
+    int result = -1;
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
+      ps.setString(1, parkingType.toString());
+      ResultSet rs = ps.executeQuery();
+      if (rs.next()) {
+        result = rs.getInt(1);;
+      }
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+    } catch (Exception ex) {
+      logger.error("Error fetching next available slot", ex);
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+    return result;
+  }
+
+  /**
+   * Update the availability for that parking spot.
+   * 
+   * @param parkingSpot the parking spot to update
+   * @return the parking spot has been correctly updated
+   */
+  @Override
+  public boolean updateParking(ParkingSpot parkingSpot) {
+    // update the availability for that parking slot
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+      ps.setBoolean(1, parkingSpot.isAvailable());
+      ps.setInt(2, parkingSpot.getId());
+      int updateRowCount = ps.executeUpdate();
+      dataBaseConfig.closePreparedStatement(ps);
+      ParkingSpotIndex index = parkingSpotIndex;
+      if (updateRowCount == 1) {
+        if (index != null) {
+          index.update(parkingSpot);
+        }
+        spotChanged(parkingSpot);
+      }
+      return (updateRowCount == 1);
+    } catch (Exception ex) {
+      logger.error("Error updating parking info", ex);
+      return false;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  /**
+   * Atomically takes the lowest free spot of that type, so that two gates can never be given the
+   * same spot.
+   * 
+   * The spot is first claimed in the in-memory index, if enabled, then in the DB with an update
+   * conditioned on the spot still being available. If the DB says the spot is already taken, the
+   * next one is tried.
+   * 
+   * @param parkingType the type of the vehicle
+   * @return the claimed spot number, 0 if the parking is full, -1 if an error occurred
+   */
+  @Override
+  public int claimNextAvailableSlot(ParkingType parkingType) {
+    int lostRaces = 0;
+    while (lostRaces < MAX_CLAIM_ATTEMPTS) {
+      ParkingSpotIndex index = parkingSpotIndex;
+      int slot = (index != null) ? index.claim(parkingType) : getNextAvailableSlot(parkingType);
+      if (slot <= 0) {
+        return slot;
+      }
+      int claimed = claimParkingSpot(slot);
+      if (claimed == 1) {
+        spotChanged(new ParkingSpot(slot, parkingType, false, dataBaseConfig.getSite(), 0));
+        return slot;
+      }
+      if (claimed < 0) {
+        if (index != null) {
+          index.update(new ParkingSpot(slot, parkingType, true));
+        }
+        return -1;
+      }
+      // The DB says the spot is taken. A stale index bit is now cleared, so only count the
+      // attempt when racing other gates on the DB query.
+      if (index == null) {
+        lostRaces++;
+      }
+    }
+    logger.error("Unable to claim a parking spot after {} attempts", MAX_CLAIM_ATTEMPTS);
+    return -1;
+  }
+
+  /**
+   * @return 1 if the spot was available and is now taken, 0 if it was already taken, -1 on error
+   */
+  private int claimParkingSpot(int parkingNumber) {
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+      ps.setInt(1, parkingNumber);
+      int updateRowCount = ps.executeUpdate();
+      dataBaseConfig.closePreparedStatement(ps);
+      return updateRowCount;
+    } catch (Exception ex) {
+      logger.error("Error claiming parking spot", ex);
+      return -1;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  /**
+   * A recurrent user means that its vehicle registration number is encoded in the ticket table,
+   * with a completed visit. {@link RecurringUserDAO} answers the same question without querying
+   * the DB every time. Read from a replica when there is one in sync.
+   * 
+   * @param vehicleRegNumber the vehicle registration number to look for in the DB.
+   * @return the user is recurrent
+   */
+  @Override
+  public boolean recurrentUser(String vehicleRegNumber) {
+    try {
+      return queryRecurrentUser(vehicleRegNumber);
+    } catch (Exception e) {
+      logger.error("Error checking recurrent user", e);
+      return false;
+    }
+  }
+
+  /**
+   * @param vehicleRegNumber the vehicle registration number to look for in the DB.
+   * @return the user is recurrent
+   * @throws SQLException if the DB cannot be read, for callers that must tell it from a new user
+   */
+  boolean queryRecurrentUser(String vehicleRegNumber) throws ClassNotFoundException, SQLException {
+    Connection connection = null;
+    boolean recurrent = false;
+
+    try {
+      connection = dataBaseConfig.getReadConnection();
+
+      // The archive is only read for vehicles without any completed visit in the hot table.
+      for (String query : IS_RECURRENT_USER_QUERIES) {
+        PreparedStatement ps = connection.prepareStatement(query);
+        ps.setString(1, vehicleRegNumber);
+        ResultSet rs = ps.executeQuery();
+        recurrent = rs.next() && rs.getBoolean(1);
+
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        if (recurrent) {
+          break;
+        }
+      }
+
+    } finally {
+
+      dataBaseConfig.closeConnection(connection);
+    }
+    return recurrent;
+  }
+
+}
@@ -0,0 +1,336 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * {@link TicketDAO} over the ticket table of the DB, and its archive.
+ *
+ */
+public class JdbcTicketDAO implements TicketDAO {
+
+  private static final Logger logger = LogManager.getLogger("TicketDAO");
+
+  private static final String[] GET_TICKET_QUERIES =
+      {DBConstants.GET_TICKET, DBConstants.GET_ARCHIVED_TICKET};
+
+  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  private volatile ActiveTicketCache activeTicketCache;
+
+  private volatile RecurringUserDAO recurringUserDAO;
+
+  private volatile Consumer<Ticket> ticketCloseListener;
+
+  private volatile TicketWriteBehind ticketWriteBehind;
+  private volatile TicketWriteBehind.Acknowledgement acknowledgement =
+      TicketWriteBehind.Acknowledgement.AWAIT_FLUSH;
+
+  /**
+   * Queues saveTicket and updateTicket writes and flushes them in batches. The active ticket
+   * cache should be enabled too, so that an exiting vehicle finds a ticket that is not flushed
+   * yet.
+   * 
+   * @param writeBehind the queue the writes go through
+   * @param acknowledgement whether saveTicket and updateTicket wait for the flush
+   */
+  public void enableWriteBehind(TicketWriteBehind writeBehind,
+      TicketWriteBehind.Acknowledgement acknowledgement) {
+    this.acknowledgement = acknowledgement;
+    this.ticketWriteBehind = writeBehind;
+  }
+
+  /**
+   * Goes back to synchronous writes, after flushing every queued one.
+   */
+  public void disableWriteBehind() {
+    TicketWriteBehind writeBehind = ticketWriteBehind;
+    ticketWriteBehind = null;
+    if (writeBehind != null) {
+      writeBehind.close();
+    }
+  }
+
+  /**
+   * @param recurringUserDAO told about every vehicle whose ticket is updated, null for none
+   */
+  public void setRecurringUserDAO(RecurringUserDAO recurringUserDAO) {
+    this.recurringUserDAO = recurringUserDAO;
+  }
+
+  /**
+   * @param ticketCloseListener told of each ticket closed through this DAO, once updateTicket
+   *        succeeded, or null
+   */
+  @Override
+  public void setTicketCloseListener(Consumer<Ticket> ticketCloseListener) {
+    this.ticketCloseListener = ticketCloseListener;
+  }
+
+  /**
+   * Loads the open tickets in memory so that {@link #getTicket(String)} does not query the DB for
+   * vehicles currently parked.
+   */
+  public void enableActiveTicketCache() {
+    ActiveTicketCache cache = new ActiveTicketCache();
+    cache.load(getOpenTickets());
+    activeTicketCache = cache;
+  }
+
+  /**
+   * @return the cache of open tickets, null if not enabled
+   */
+  public ActiveTicketCache getActiveTicketCache() {
+    return activeTicketCache;
+  }
+
+  /**
+   * @return the tickets without out time, oldest first, empty if an error occurred
+   */
+  @Override
+  public List<Ticket> getOpenTickets() {
+    try {
+      return queryOpenTickets();
+    } catch (Exception ex) {
+      logger.error("Error fetching open tickets", ex);
+      return new ArrayList<>();
+    }
+  }
+
+  /**
+   * @return the tickets without out time, oldest first
+   * @throws SQLException if the DB cannot be read, for callers that must tell it from no ticket
+   */
+  List<Ticket> queryOpenTickets() throws ClassNotFoundException, SQLException {
+    Connection con = null;
+    List<Ticket> tickets = new ArrayList<>();
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS);
+      ResultSet rs = ps.executeQuery();
+      while (rs.next()) {
+        tickets.add(toTicket(rs, rs.getString(8)));
+      }
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+    return tickets;
+  }
+
+  @Override
+  public boolean saveTicket(Ticket ticket) {
+    TicketWriteBehind writeBehind = ticketWriteBehind;
+    if (writeBehind != null) {
+      CompletableFuture<Boolean> flushed = writeBehind.submitInsert(ticket);
+      ActiveTicketCache cache = activeTicketCache;
+      if (cache != null) {
+        // Cached before the flush so that the exit finds it, then given its ID once flushed, or
+        // dropped if the flush fails.
+        cache.put(ticket);
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        flushed.thenAccept(written -> {
+          if (written) {
+            cache.refresh(ticket);
+          } else {
+            cache.remove(vehicleRegNumber);
+          }
+        });
+      }
+      return acknowledge(flushed);
+    }
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps =
+          con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+      bindSaveTicket(ps, ticket);
+      int updateRowCount = ps.executeUpdate();
+      ResultSet generatedKeys = ps.getGeneratedKeys();
+      if (generatedKeys.next()) {
+        ticket.setId(generatedKeys.getInt(1));
+      }
+      dataBaseConfig.closeResultSet(generatedKeys);
+      dataBaseConfig.closePreparedStatement(ps);
+      ActiveTicketCache cache = activeTicketCache;
+      if (cache != null && updateRowCount == 1) {
+        cache.put(ticket);
+      }
+      return (updateRowCount == 1);
+    } catch (Exception ex) {
+      logger.error("Error fetching next available slot", ex);
+      return false;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+
+    }
+  }
+
+  static void bindSaveTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+    // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+    // ps.setInt(1,ticket.getId());
+    ps.setInt(1, ticket.getParkingSpot().getId());
+    ps.setString(2, ticket.getVehicleRegNumber());
+    ps.setDouble(3, ticket.getPrice());
+    ps.setTimestamp(4, ticket.hasInTime() ? new Timestamp(ticket.getInTimeMillis()) : null);
+    ps.setTimestamp(5, ticket.hasOutTime() ? new Timestamp(ticket.getOutTimeMillis()) : null);
+  }
+
+  @Override
+  public Ticket getTicket(String vehicleRegNumber) {
+    try {
+      return queryTicket(vehicleRegNumber);
+    } catch (Exception ex) {
+      logger.error("Error fetching next available slot", ex);
+      return null;
+    }
+  }
+
+  /**
+   * @param vehicleRegNumber the vehicle registration number
+   * @return the latest ticket of the vehicle, null if none
+   * @throws SQLException if the DB cannot be read, for callers that must tell it from no ticket
+   */
+  Ticket queryTicket(String vehicleRegNumber) throws ClassNotFoundException, SQLException {
+    ActiveTicketCache cache = activeTicketCache;
+    if (cache != null) {
+      Ticket ticket = cache.get(vehicleRegNumber);
+      if (ticket != null) {
+        return ticket;
+      }
+    }
+    Connection con = null;
+    Ticket ticket = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      // The archive is only read for vehicles without any ticket left in the hot table.
+      for (String query : GET_TICKET_QUERIES) {
+        PreparedStatement ps = con.prepareStatement(query);
+        // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        ps.setString(1, vehicleRegNumber);
+        ResultSet rs = ps.executeQuery();
+        if (rs.next()) {
+          ticket = toTicket(rs, vehicleRegNumber);
+        }
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        if (ticket != null) {
+          break;
+        }
+      }
+      return ticket;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+
+    }
+  }
+
+  /**
+   * Reads a row of {@link DBConstants#GET_TICKET}, {@link DBConstants#GET_ARCHIVED_TICKET} or
+   * {@link DBConstants#GET_OPEN_TICKETS}.
+   */
+  private Ticket toTicket(ResultSet rs, String vehicleRegNumber) throws SQLException {
+    Ticket ticket = new Ticket();
+    ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),
+        false, dataBaseConfig.getSite(), rs.getInt(7));
+    ticket.setParkingSpot(parkingSpot);
+    ticket.setId(rs.getInt(2));
+    ticket.setVehicleRegNumber(vehicleRegNumber);
+    ticket.setPrice(rs.getDouble(3));
+    ticket.setInTimeMillis(rs.getTimestamp(4).getTime());
+    Timestamp outTime = rs.getTimestamp(5);
+    ticket.setOutTimeMillis((outTime == null) ? Ticket.NO_TIME : outTime.getTime());
+    return ticket;
+  }
+
+  @Override
+  public boolean updateTicket(Ticket ticket) {
+    TicketWriteBehind writeBehind = ticketWriteBehind;
+    if (writeBehind != null) {
+      boolean updated = acknowledge(writeBehind.submitUpdate(ticket));
+      if (updated) {
+        ticketUpdated(ticket);
+      }
+      return updated;
+    }
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
+      bindUpdateTicket(ps, ticket, ticket.getId());
+      int updateRowCount = ps.executeUpdate();
+      dataBaseConfig.closePreparedStatement(ps);
+      if (updateRowCount == 1) {
+        ticketUpdated(ticket);
+      }
+      return (updateRowCount == 1);
+    } catch (Exception ex) {
+      logger.error("Error saving ticket info", ex);
+    } finally {
+
+      dataBaseConfig.closeConnection(con);
+    }
+    return false;
+  }
+
+  static void bindUpdateTicket(PreparedStatement ps, Ticket ticket, int id) throws SQLException {
+    ps.setDouble(1, ticket.getPrice());
+    ps.setTimestamp(2, ticket.hasOutTime() ? new Timestamp(ticket.getOutTimeMillis()) : null);
+    ps.setInt(3, id);
+  }
+
+  /**
+   * Updates the caches and tells the listeners of a ticket updated in the storage.
+   */
+  private void ticketUpdated(Ticket ticket) {
+    ActiveTicketCache cache = activeTicketCache;
+    if (cache != null) {
+      cache.remove(ticket.getVehicleRegNumber());
+    }
+    RecurringUserDAO recurringUsers = recurringUserDAO;
+    if (recurringUsers != null) {
+      recurringUsers.recordCompletedVisit(ticket.getVehicleRegNumber());
+    }
+    Consumer<Ticket> listener = ticketCloseListener;
+    if (listener != null && ticket.hasOutTime()) {
+      listener.accept(ticket);
+    }
+  }
+
+  /**
+   * With {@link TicketWriteBehind.Acknowledgement#FIRE_AND_FORGET}, a queued write counts as
+   * done. Otherwise waits for its batch to be committed.
+   */
+  private boolean acknowledge(CompletableFuture<Boolean> flushed) {
+    if (acknowledgement == TicketWriteBehind.Acknowledgement.FIRE_AND_FORGET
+        && !flushed.isDone()) {
+      return true;
+    }
+    try {
+      return flushed.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      logger.error("Error writing ticket", e);
+      return false;
+    }
+  }
+}
@@ -1,40 +1,35 @@
 package com.parkit.parkingsystem.dao;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import com.parkit.parkingsystem.config.DataBaseConfig;
-import com.parkit.parkingsystem.constants.DBConstants;
+import java.util.List;
+import java.util.function.Consumer;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
 
-public class ParkingSpotDAO {
-  private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
+/**
+ * The parking spots, as the gates see them. {@link JdbcParkingSpotDAO} keeps them in the DB,
+ * {@link EmbeddedParkingSpotDAO} in an embedded store and {@link InMemoryParkingSpotDAO} in memory
+ * only.
+ *
+ */
+public interface ParkingSpotDAO {
 
-  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+  /**
+   * @param spotChangeListener told of each spot taken or freed through this DAO, after the storage
+   *        update, or null
+   */
+  void setSpotChangeListener(Consumer<ParkingSpot> spotChangeListener);
 
-  public int getNextAvailableSlot(ParkingType parkingType) {
-    Connection con = null;
-    int result = -1;
-    try {
-      con = dataBaseConfig.getConnection();
-      PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-      ps.setString(1, parkingType.toString());
-      ResultSet rs = ps.executeQuery();
-      if (rs.next()) {
-        result = rs.getInt(1);;
-      }
-      dataBaseConfig.closeResultSet(rs);
-      dataBaseConfig.closePreparedStatement(ps);
-    } catch (Exception ex) {
-      logger.error("Error fetching next available slot", ex);
-    } finally {
-      dataBaseConfig.closeConnection(con);
-    }
-    return result;
-  }
+  /**
+   * @return every spot, empty if an error occurred
+   */
+  List<ParkingSpot> getParkingSpots();
+
+  /**
+   * @param parkingType the type of the vehicle
+   * @return the lowest free spot number of that type, 0 if the parking is full, -1 if an error
+   *         occurred
+   */
+  int getNextAvailableSlot(ParkingType parkingType);
 
   /**
    * Update the availability for that parking spot.
@@ -42,55 +37,20 @@ public class ParkingSpotDAO {
    * @param parkingSpot the parking spot to update
    * @return the parking spot has been correctly updated
    */
-  public boolean updateParking(ParkingSpot parkingSpot) {
-    // update the availability for that parking slot
-    Connection con = null;
-    try {
-      con = dataBaseConfig.getConnection();
-      PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-      ps.setBoolean(1, parkingSpot.isAvailable());
-      ps.setInt(2, parkingSpot.getId());
-      int updateRowCount = ps.executeUpdate();
-      dataBaseConfig.closePreparedStatement(ps);
-      return (updateRowCount == 1);
-    } catch (Exception ex) {
-      logger.error("Error updating parking info", ex);
-      return false;
-    } finally {
-      dataBaseConfig.closeConnection(con);
-    }
-  }
+  boolean updateParking(ParkingSpot parkingSpot);
 
   /**
-   * A recurrent user means that its vehicle registration number is encoded in the ticket table.
+   * Atomically takes the lowest free spot of that type, so that two gates can never be given the
+   * same spot.
    * 
-   * @param vehicleRegNumber the vehicle registration number to look for in the DB.
-   * @return the user is recurrent
+   * @param parkingType the type of the vehicle
+   * @return the claimed spot number, 0 if the parking is full, -1 if an error occurred
    */
-  public boolean recurrentUser(String vehicleRegNumber) {
-    Connection connection = null;
-    int numberOfVisits = -1;
-
-    try {
-      connection = dataBaseConfig.getConnection();
-
-      String query = "SELECT COUNT(*) as visits FROM ticket " + "WHERE VEHICLE_REG_NUMBER = " + "\""
-          + vehicleRegNumber + "\"" + " AND OUT_TIME IS NOT NULL;";
-      PreparedStatement ps = connection.prepareStatement(query);
-      ResultSet rs = ps.executeQuery(query);
-      rs.next();
-      numberOfVisits = rs.getInt("visits");
-
-      dataBaseConfig.closeResultSet(rs);
-      dataBaseConfig.closePreparedStatement(ps);
-
-    } catch (Exception e) {
-      e.printStackTrace();
-    } finally {
-
-      dataBaseConfig.closeConnection(connection);
-    }
-    return (numberOfVisits > 0);
-  }
+  int claimNextAvailableSlot(ParkingType parkingType);
 
+  /**
+   * @param vehicleRegNumber the vehicle registration number
+   * @return the vehicle has at least one completed visit
+   */
+  boolean recurrentUser(String vehicleRegNumber);
 }
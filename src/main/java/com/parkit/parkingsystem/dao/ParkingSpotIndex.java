@@ -0,0 +1,207 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * In-memory view of the free parking spots, one bitmap per parking type.
+ *
+ * Bit n is set when spot n is free, so the next available spot is the lowest set bit. Bits are
+ * flipped with compare-and-set, so concurrent gates never get the same spot from
+ * {@link #claim(ParkingType)} and only contend with gates parking the same type of vehicle. It is
+ * loaded from the parking table, kept up to date by {@link JdbcParkingSpotDAO} and reloaded
+ * periodically so that it cannot drift from the table.
+ *
+ */
+public class ParkingSpotIndex {
+
+  private static final Logger logger = LogManager.getLogger("ParkingSpotIndex");
+
+  private volatile Map<ParkingType, SpotBitmap> freeSpots = emptyIndex(0);
+  private ScheduledExecutorService resyncExecutor;
+
+  private static Map<ParkingType, SpotBitmap> emptyIndex(int highestSpotNumber) {
+    Map<ParkingType, SpotBitmap> index = new EnumMap<>(ParkingType.class);
+    for (ParkingType parkingType : ParkingType.values()) {
+      index.put(parkingType, new SpotBitmap(highestSpotNumber));
+    }
+    return index;
+  }
+
+  /**
+   * Replaces the content of the index.
+   *
+   * @param parkingSpots every spot of the parking table
+   */
+  public void load(Collection<ParkingSpot> parkingSpots) {
+    int highestSpotNumber = 0;
+    for (ParkingSpot parkingSpot : parkingSpots) {
+      highestSpotNumber = Math.max(highestSpotNumber, parkingSpot.getId());
+    }
+    Map<ParkingType, SpotBitmap> index = emptyIndex(highestSpotNumber);
+    for (ParkingSpot parkingSpot : parkingSpots) {
+      if (parkingSpot.isAvailable() && parkingSpot.getId() > 0) {
+        index.get(parkingSpot.getParkingType()).set(parkingSpot.getId(), true);
+      }
+    }
+    freeSpots = index;
+  }
+
+  /**
+   * @param parkingType the type of the vehicle
+   * @return the lowest free spot number for that type, 0 if the parking is full
+   */
+  public int getNextAvailableSlot(ParkingType parkingType) {
+    return freeSpots.get(parkingType).lowest();
+  }
+
+  /**
+   * Atomically takes the lowest free spot out of the index.
+   *
+   * @param parkingType the type of the vehicle
+   * @return the claimed spot number, 0 if the parking is full
+   */
+  public int claim(ParkingType parkingType) {
+    return freeSpots.get(parkingType).claimLowest();
+  }
+
+  /**
+   * Writes a spot availability change through to the index.
+   *
+   * @param parkingSpot the spot that has just been updated in the DB
+   * @return the availability of the spot has changed in the index
+   */
+  public boolean update(ParkingSpot parkingSpot) {
+    return freeSpots.get(parkingSpot.getParkingType()).set(parkingSpot.getId(),
+        parkingSpot.isAvailable());
+  }
+
+  /**
+   * @param parkingType the type of the spot
+   * @param spotNumber the number of the spot
+   * @return the spot is free in the index
+   */
+  public boolean isAvailable(ParkingType parkingType, int spotNumber) {
+    return freeSpots.get(parkingType).get(spotNumber);
+  }
+
+  /**
+   * @param parkingType the type of the vehicle
+   * @return the number of free spots for that type
+   */
+  public int countAvailableSlots(ParkingType parkingType) {
+    return freeSpots.get(parkingType).cardinality();
+  }
+
+  /**
+   * Reloads the index from the DB every period, in a background daemon thread.
+   *
+   * @param loader reads every spot of the parking table
+   * @param periodSeconds the delay between two reloads
+   */
+  public synchronized void startResync(Supplier<Collection<ParkingSpot>> loader,
+      long periodSeconds) {
+    stopResync();
+    resyncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "parking-spot-index-resync");
+      thread.setDaemon(true);
+      return thread;
+    });
+    resyncExecutor.scheduleWithFixedDelay(() -> {
+      try {
+        Collection<ParkingSpot> parkingSpots = loader.get();
+        if (!parkingSpots.isEmpty()) {
+          load(parkingSpots);
+        }
+      } catch (RuntimeException e) {
+        logger.error("Error reloading the parking spot index", e);
+      }
+    }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops the periodic reload, if started.
+   */
+  public synchronized void stopResync() {
+    if (resyncExecutor != null) {
+      resyncExecutor.shutdownNow();
+      resyncExecutor = null;
+    }
+  }
+
+  /**
+   * Fixed-size lock-free bitmap. Spots beyond its size are ignored until the next reload.
+   */
+  private static final class SpotBitmap {
+    private final AtomicLongArray words;
+
+    private SpotBitmap(int highestSpotNumber) {
+      words = new AtomicLongArray((highestSpotNumber >>> 6) + 1);
+    }
+
+    private int lowest() {
+      for (int i = 0; i < words.length(); i++) {
+        long word = words.get(i);
+        if (word != 0) {
+          return (i << 6) + Long.numberOfTrailingZeros(word);
+        }
+      }
+      return 0;
+    }
+
+    private int claimLowest() {
+      for (int i = 0; i < words.length(); i++) {
+        long word;
+        while ((word = words.get(i)) != 0) {
+          long lowestBit = word & -word;
+          if (words.compareAndSet(i, word, word & ~lowestBit)) {
+            return (i << 6) + Long.numberOfTrailingZeros(lowestBit);
+          }
+        }
+      }
+      return 0;
+    }
+
+    private boolean get(int spotNumber) {
+      int i = spotNumber >>> 6;
+      return spotNumber > 0 && i < words.length()
+          && (words.get(i) & (1L << (spotNumber & 63))) != 0;
+    }
+
+    private boolean set(int spotNumber, boolean free) {
+      int i = spotNumber >>> 6;
+      if (spotNumber <= 0 || i >= words.length()) {
+        return false;
+      }
+      long bit = 1L << (spotNumber & 63);
+      while (true) {
+        long word = words.get(i);
+        long updated = free ? (word | bit) : (word & ~bit);
+        if (word == updated) {
+          return false;
+        }
+        if (words.compareAndSet(i, word, updated)) {
+          return true;
+        }
+      }
+    }
+
+    private int cardinality() {
+      int count = 0;
+      for (int i = 0; i < words.length(); i++) {
+        count += Long.bitCount(words.get(i));
+      }
+      return count;
+    }
+  }
+}
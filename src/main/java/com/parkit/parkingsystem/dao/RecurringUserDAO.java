@@ -0,0 +1,146 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.util.BloomFilter;
+
+/**
+ * Tells whether a vehicle has already completed a visit, which entitles it to a discount.
+ *
+ * Once loaded, a Bloom filter of the registration numbers with a completed visit answers most
+ * "no" without touching the DB. A "maybe" is confirmed by an EXISTS query, and only a "yes" is kept
+ * in a bounded LRU cache: a "no" may turn into a "yes" written by another process.
+ *
+ */
+public class RecurringUserDAO {
+
+  private static final Logger logger = LogManager.getLogger("RecurringUserDAO");
+
+  private static final long EXPECTED_VEHICLES = 1_000_000;
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+  private static final int LRU_CAPACITY = 10_000;
+
+  private static final String[] IS_RECURRENT_USER_QUERIES =
+      {DBConstants.IS_RECURRENT_USER, DBConstants.IS_ARCHIVED_RECURRENT_USER};
+
+  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  private volatile BloomFilter knownUsers;
+
+  private final Map<String, Boolean> confirmedUsers =
+      new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+          return size() > LRU_CAPACITY;
+        }
+      };
+
+  /**
+   * Fills the Bloom filter with every registration number having a completed visit. Until this
+   * is done, every lookup goes to the DB. Both read from a replica when there is one in sync.
+   *
+   * @return the filter has been loaded
+   */
+  public boolean load() {
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getReadConnection();
+      BloomFilter filter = new BloomFilter(EXPECTED_VEHICLES, FALSE_POSITIVE_PROBABILITY);
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_RECURRENT_USERS);
+      ResultSet rs = ps.executeQuery();
+      while (rs.next()) {
+        filter.put(rs.getString(1));
+      }
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+      knownUsers = filter;
+      return true;
+    } catch (Exception ex) {
+      logger.error("Error loading recurrent users", ex);
+      return false;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  /**
+   * @param vehicleRegNumber the vehicle registration number
+   * @return the vehicle has at least one completed visit, false if the DB cannot be read
+   */
+  public boolean isRecurrentUser(String vehicleRegNumber) {
+    BloomFilter filter = knownUsers;
+    if (filter != null && !filter.mightContain(vehicleRegNumber)) {
+      return false;
+    }
+    synchronized (confirmedUsers) {
+      if (confirmedUsers.get(vehicleRegNumber) != null) {
+        return true;
+      }
+    }
+    boolean recurrent;
+    try {
+      recurrent = hasCompletedVisit(vehicleRegNumber);
+    } catch (Exception ex) {
+      // Not cached: the next lookup asks the DB again.
+      logger.error("Error checking recurrent user", ex);
+      return false;
+    }
+    if (recurrent) {
+      synchronized (confirmedUsers) {
+        confirmedUsers.put(vehicleRegNumber, Boolean.TRUE);
+      }
+    }
+    return recurrent;
+  }
+
+  /**
+   * Records that a vehicle has just left, after its ticket has been updated.
+   *
+   * @param vehicleRegNumber the vehicle registration number
+   */
+  public void recordCompletedVisit(String vehicleRegNumber) {
+    BloomFilter filter = knownUsers;
+    if (filter != null) {
+      filter.put(vehicleRegNumber);
+    }
+    synchronized (confirmedUsers) {
+      confirmedUsers.put(vehicleRegNumber, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * @throws SQLException if the DB cannot be read, for callers that must tell it from no visit
+   */
+  boolean hasCompletedVisit(String vehicleRegNumber) throws ClassNotFoundException, SQLException {
+    Connection con = null;
+    boolean recurrent = false;
+    try {
+      con = dataBaseConfig.getReadConnection();
+      // The archive is only read for vehicles without any completed visit in the hot table.
+      for (String query : IS_RECURRENT_USER_QUERIES) {
+        PreparedStatement ps = con.prepareStatement(query);
+        ps.setString(1, vehicleRegNumber);
+        ResultSet rs = ps.executeQuery();
+        recurrent = rs.next() && rs.getBoolean(1);
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        if (recurrent) {
+          break;
+        }
+      }
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+    return recurrent;
+  }
+}
@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketBatch;
+
+/**
+ * Streams tickets, from the ticket and ticket_archive tables, to reports.
+ *
+ */
+public class ReportDAO {
+
+  private static final Logger logger = LogManager.getLogger("ReportDAO");
+
+  /**
+   * Rows read from the DB at a time: the result set is never held in memory as a whole.
+   */
+  private static final int FETCH_SIZE = 1_000;
+
+  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  /**
+   * Receives the tickets one row at a time, without any ticket object being created.
+   */
+  public interface TicketRowHandler {
+
+    /**
+     * @param parkingNumber the number of the spot of the ticket
+     * @param parkingType the type of the spot of the ticket
+     * @param vehicleRegNumber the vehicle registration number
+     * @param price the price paid, 0 for an open ticket
+     * @param inTimeMillis the entry time, in epoch millis
+     * @param outTimeMillis the exit time, in epoch millis, or {@link Ticket#NO_TIME} for a
+     *        vehicle still parked
+     */
+    void ticket(int parkingNumber, ParkingType parkingType, String vehicleRegNumber, double price,
+        long inTimeMillis, long outTimeMillis);
+  }
+
+  /**
+   * Streams the tickets of the vehicles parked at some time of the range, through a forward-only
+   * read-only result set, in no particular order. Read from a replica when there is one in sync.
+   *
+   * @param from the start of the range
+   * @param to the end of the range, excluded
+   * @param handler receives each ticket
+   * @return every ticket was streamed, false if an error occurred
+   */
+  public boolean streamTickets(Timestamp from, Timestamp to, TicketRowHandler handler) {
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getReadConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKETS_IN_RANGE,
+          ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      ps.setFetchSize(FETCH_SIZE);
+      ps.setTimestamp(1, to);
+      ps.setTimestamp(2, from);
+      ps.setTimestamp(3, to);
+      ps.setTimestamp(4, from);
+      ResultSet rs = ps.executeQuery();
+      while (rs.next()) {
+        Timestamp outTime = rs.getTimestamp(5);
+        handler.ticket(rs.getInt(6), ParkingType.valueOf(rs.getString(1)), rs.getString(2),
+            rs.getDouble(3), rs.getTimestamp(4).getTime(),
+            (outTime == null) ? Ticket.NO_TIME : outTime.getTime());
+      }
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+      return true;
+    } catch (Exception ex) {
+      logger.error("Error streaming tickets from {} to {}", from, to, ex);
+      return false;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  /**
+   * Loads the tickets of the vehicles parked at some time of the range into a batch, for bulk
+   * processing that needs them all at once. Prefer {@link #streamTickets} otherwise.
+   *
+   * @param from the start of the range
+   * @param to the end of the range, excluded
+   * @return the tickets, in no particular order, null if an error occurred
+   */
+  public TicketBatch loadTickets(Timestamp from, Timestamp to) {
+    TicketBatch tickets = new TicketBatch(dataBaseConfig.getSite());
+    return streamTickets(from, to, tickets::add) ? tickets : null;
+  }
+}
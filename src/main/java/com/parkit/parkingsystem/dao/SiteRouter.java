@@ -0,0 +1,253 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.config.SiteDataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Routes the traffic of each site to the DAOs of its own database, and answers cross-site
+ * questions by querying every site in parallel and merging the results.
+ *
+ * Sites are read from properties:
+ * <ul>
+ * <li>{@code site.<site>.url}: the JDBC URL of the database, or schema, of the site</li>
+ * <li>{@code site.<site>.user} and {@code site.<site>.password}: its credentials</li>
+ * </ul>
+ *
+ * A cross-site answer needs every site: when one cannot be queried, the query throws rather than
+ * answer from the other sites alone.
+ *
+ * The gate workflow does not go through the router: a process parks and releases vehicles of one
+ * site only, through the DAOs of its own {@link DataBaseConfig}. Each site runs its own process,
+ * and the router only serves the cross-site reads and migrations of the process it is in.
+ *
+ */
+public class SiteRouter {
+
+  private static final Logger logger = LogManager.getLogger("SiteRouter");
+
+  private static final String PREFIX = "site.";
+
+  private final Map<String, JdbcParkingSpotDAO> parkingSpotDAOs = new LinkedHashMap<>();
+  private final Map<String, JdbcTicketDAO> ticketDAOs = new LinkedHashMap<>();
+  private final ExecutorService fanOutExecutor;
+
+  /**
+   * A query of one site, which throws when the site cannot answer.
+   */
+  private interface SiteQuery<T> {
+    T query(String site) throws Exception;
+  }
+
+  /**
+   * @param siteConfigs the database of each site, whose {@link DataBaseConfig#getSite()} must be
+   *        unique
+   */
+  public SiteRouter(List<? extends DataBaseConfig> siteConfigs) {
+    for (DataBaseConfig siteConfig : siteConfigs) {
+      if (parkingSpotDAOs.containsKey(siteConfig.getSite())) {
+        throw new IllegalArgumentException("Duplicate site " + siteConfig.getSite());
+      }
+      JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+      parkingSpotDAO.dataBaseConfig = siteConfig;
+      parkingSpotDAOs.put(siteConfig.getSite(), parkingSpotDAO);
+      JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+      ticketDAO.dataBaseConfig = siteConfig;
+      ticketDAOs.put(siteConfig.getSite(), ticketDAO);
+    }
+    AtomicInteger threadNumber = new AtomicInteger();
+    fanOutExecutor = Executors.newFixedThreadPool(Math.max(1, siteConfigs.size()), runnable -> {
+      Thread thread = new Thread(runnable, "site-router-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @param properties the {@code site.<site>.*} properties of every site: url, user, password and
+   *        the comma separated JDBC URLs of its read replicas
+   * @return the router of the sites, in the order of their names
+   */
+  public static SiteRouter fromProperties(Properties properties) {
+    Set<String> sites = new TreeSet<>();
+    for (String key : properties.stringPropertyNames()) {
+      if (key.startsWith(PREFIX) && key.endsWith(".url")) {
+        sites.add(key.substring(PREFIX.length(), key.length() - ".url".length()));
+      }
+    }
+    List<SiteDataBaseConfig> siteConfigs = new ArrayList<>();
+    for (String site : sites) {
+      String prefix = PREFIX + site + ".";
+      List<String> replicaUrls = new ArrayList<>();
+      for (String replicaUrl : properties.getProperty(prefix + "replicas", "").split(",")) {
+        if (!replicaUrl.trim().isEmpty()) {
+          replicaUrls.add(replicaUrl.trim());
+        }
+      }
+      siteConfigs.add(new SiteDataBaseConfig(site, properties.getProperty(prefix + "url"),
+          properties.getProperty(prefix + "user", "root"),
+          properties.getProperty(prefix + "password", ""), replicaUrls));
+    }
+    return new SiteRouter(siteConfigs);
+  }
+
+  /**
+   * @return the sites, in the order they were given
+   */
+  public Set<String> getSites() {
+    return Collections.unmodifiableSet(parkingSpotDAOs.keySet());
+  }
+
+  /**
+   * @param site the site
+   * @return the DAO of the spots of that site
+   * @throws IllegalArgumentException if the site is unknown
+   */
+  public JdbcParkingSpotDAO getParkingSpotDAO(String site) {
+    return route(parkingSpotDAOs, site);
+  }
+
+  /**
+   * @param site the site
+   * @return the DAO of the tickets of that site
+   * @throws IllegalArgumentException if the site is unknown
+   */
+  public JdbcTicketDAO getTicketDAO(String site) {
+    return route(ticketDAOs, site);
+  }
+
+  private static <T> T route(Map<String, T> daos, String site) {
+    T dao = daos.get(site);
+    if (dao == null) {
+      throw new IllegalArgumentException("Unknown site " + site);
+    }
+    return dao;
+  }
+
+  /**
+   * Brings the schema of every site up to date, in parallel.
+   *
+   * @return the schema was migrated on every site
+   */
+  public boolean migrate() {
+    try {
+      return fanOut(site -> new SchemaMigrator(getParkingSpotDAO(site).dataBaseConfig).migrate())
+          .values().stream().allMatch(version -> version == SchemaMigrator.getLatestVersion());
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return the spots of every site, site after site
+   * @throws IllegalStateException if a site cannot be queried
+   */
+  public List<ParkingSpot> getParkingSpots() {
+    List<ParkingSpot> parkingSpots = new ArrayList<>();
+    fanOut(site -> getParkingSpotDAO(site).queryParkingSpots()).values()
+        .forEach(parkingSpots::addAll);
+    return parkingSpots;
+  }
+
+  /**
+   * @return the open tickets of every site, oldest first
+   * @throws IllegalStateException if a site cannot be queried
+   */
+  public List<Ticket> getOpenTickets() {
+    List<Ticket> tickets = new ArrayList<>();
+    fanOut(site -> getTicketDAO(site).queryOpenTickets()).values().forEach(tickets::addAll);
+    tickets.sort(Comparator.comparingLong(Ticket::getInTimeMillis));
+    return tickets;
+  }
+
+  /**
+   * @param vehicleRegNumber the vehicle registration number
+   * @return the latest ticket of the vehicle in any site, null if none
+   * @throws IllegalStateException if a site cannot be queried
+   */
+  public Ticket getTicket(String vehicleRegNumber) {
+    Ticket latest = null;
+    for (Ticket ticket : fanOut(site -> getTicketDAO(site).queryTicket(vehicleRegNumber))
+        .values()) {
+      if (ticket != null && (latest == null
+          || ticket.getInTimeMillis() > latest.getInTimeMillis())) {
+        latest = ticket;
+      }
+    }
+    return latest;
+  }
+
+  /**
+   * @param vehicleRegNumber the vehicle registration number
+   * @return the vehicle completed a visit in any site
+   * @throws IllegalStateException if a site cannot be queried
+   */
+  public boolean recurrentUser(String vehicleRegNumber) {
+    return fanOut(site -> getParkingSpotDAO(site).queryRecurrentUser(vehicleRegNumber)).values()
+        .contains(Boolean.TRUE);
+  }
+
+  /**
+   * Runs the query on every site at once and waits for all of them.
+   *
+   * @return the result of each site, in the order of the sites
+   * @throws IllegalStateException if a site failed, once every site answered
+   */
+  private <T> Map<String, T> fanOut(SiteQuery<T> query) {
+    Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+    for (String site : parkingSpotDAOs.keySet()) {
+      futures.put(site, CompletableFuture.supplyAsync(() -> {
+        try {
+          return query.query(site);
+        } catch (Exception e) {
+          throw new CompletionException(e);
+        }
+      }, fanOutExecutor));
+    }
+    Map<String, T> results = new LinkedHashMap<>();
+    IllegalStateException failure = null;
+    for (Map.Entry<String, CompletableFuture<T>> future : futures.entrySet()) {
+      try {
+        results.put(future.getKey(), future.getValue().join());
+      } catch (CompletionException e) {
+        logger.error("Error querying site {}", future.getKey(), e.getCause());
+        if (failure == null) {
+          failure = new IllegalStateException("Site " + future.getKey() + " cannot be queried",
+              e.getCause());
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+
+  /**
+   * Stops the threads querying the sites. The connection pools are closed with
+   * {@link DataBaseConfig#closeConnectionPools()}.
+   */
+  public void close() {
+    fanOutExecutor.shutdownNow();
+  }
+}
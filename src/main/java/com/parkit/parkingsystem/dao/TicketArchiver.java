@@ -0,0 +1,285 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * Moves closed tickets older than a given age from the ticket table to the ticket_archive table,
+ * so that the gate queries only scan recent tickets.
+ *
+ * Tickets are moved in small batches, each in its own transaction, with a pause between batches
+ * so that the locks and I/O never hold the gates for long. Open tickets are never moved.
+ *
+ * On MySQL, ticket_archive has one RANGE partition per month of ARCHIVE_MONTH, then a P_MAX
+ * partition for any later month. Each run first splits the partitions of the coming months off
+ * P_MAX and, with a retention, drops the partitions of the months before it, tickets included.
+ *
+ */
+public class TicketArchiver {
+
+  private static final Logger logger = LogManager.getLogger("TicketArchiver");
+
+  private static final String MAX_PARTITION = "P_MAX";
+
+  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  private final long maxAgeMillis;
+  private final int batchSize;
+  private final long pauseMillis;
+  private final int retentionMonths;
+  private ScheduledExecutorService archiveExecutor;
+
+  /**
+   * Archives tickets without ever dropping them.
+   *
+   * @param maxAgeMillis the age, from their out time, after which closed tickets are archived
+   * @param batchSize the maximum number of tickets moved by one transaction
+   * @param pauseMillis the pause between two batches
+   */
+  public TicketArchiver(long maxAgeMillis, int batchSize, long pauseMillis) {
+    this(maxAgeMillis, batchSize, pauseMillis, 0);
+  }
+
+  /**
+   * @param maxAgeMillis the age, from their out time, after which closed tickets are archived
+   * @param batchSize the maximum number of tickets moved by one transaction
+   * @param pauseMillis the pause between two batches
+   * @param retentionMonths the number of months kept in the archive before the current one, 0 to
+   *        keep them all
+   */
+  public TicketArchiver(long maxAgeMillis, int batchSize, long pauseMillis, int retentionMonths) {
+    this.maxAgeMillis = maxAgeMillis;
+    this.batchSize = batchSize;
+    this.pauseMillis = pauseMillis;
+    this.retentionMonths = retentionMonths;
+  }
+
+  /**
+   * Archives every ticket old enough, batch after batch.
+   *
+   * @return the number of archived tickets, or -1 if a batch failed before any was archived
+   */
+  public int archive() {
+    rollPartitions();
+    Timestamp cutoff = new Timestamp(System.currentTimeMillis() - maxAgeMillis);
+    int archived = 0;
+    while (!Thread.currentThread().isInterrupted()) {
+      int moved = archiveBatch(cutoff);
+      if (moved < 0) {
+        return (archived > 0) ? archived : -1;
+      }
+      archived += moved;
+      if (moved < batchSize) {
+        break;
+      }
+      try {
+        Thread.sleep(pauseMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (archived > 0) {
+      logger.info("Archived {} tickets closed before {}", archived, cutoff);
+    }
+    return archived;
+  }
+
+  /**
+   * Moves the oldest batch of tickets closed before the cutoff, in one transaction.
+   *
+   * @param cutoff the out time before which tickets are archived
+   * @return the number of archived tickets, -1 on error
+   */
+  int archiveBatch(Timestamp cutoff) {
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      con.setAutoCommit(false);
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_LAST_ARCHIVABLE_TICKET);
+      ps.setTimestamp(1, cutoff);
+      ps.setInt(2, batchSize);
+      ResultSet rs = ps.executeQuery();
+      int lastId = rs.next() ? rs.getInt(1) : 0;
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+      if (lastId == 0) {
+        con.commit();
+        return 0;
+      }
+      ps = con.prepareStatement(DBConstants.ARCHIVE_TICKETS);
+      ps.setTimestamp(1, cutoff);
+      ps.setInt(2, lastId);
+      int archived = ps.executeUpdate();
+      dataBaseConfig.closePreparedStatement(ps);
+      ps = con.prepareStatement(DBConstants.DELETE_ARCHIVED_TICKETS);
+      ps.setTimestamp(1, cutoff);
+      ps.setInt(2, lastId);
+      int deleted = ps.executeUpdate();
+      dataBaseConfig.closePreparedStatement(ps);
+      if (deleted != archived) {
+        throw new SQLException(
+            "Archived " + archived + " tickets but deleted " + deleted + ", rolling back");
+      }
+      con.commit();
+      return archived;
+    } catch (Exception ex) {
+      logger.error("Error archiving tickets", ex);
+      rollback(con);
+      return -1;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  /**
+   * On MySQL, adds the monthly partitions of the archive up to next month and drops the ones past
+   * the retention. Archiving goes on if this fails: P_MAX takes the tickets of missing months.
+   *
+   * @return the partitions are up to date, always true on other databases
+   */
+  boolean rollPartitions() {
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      if (!"MySQL".equalsIgnoreCase(con.getMetaData().getDatabaseProductName())) {
+        return true;
+      }
+      List<Integer> partitionMonths = new ArrayList<>();
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_ARCHIVE_PARTITIONS);
+      ResultSet rs = ps.executeQuery();
+      while (rs.next()) {
+        String partition = rs.getString(1);
+        if (partition != null && partition.matches("[Pp][0-9]{6}")) {
+          partitionMonths.add(Integer.parseInt(partition.substring(1)));
+        }
+      }
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+      YearMonth now = YearMonth.now();
+      YearMonth first = now;
+      if (partitionMonths.isEmpty()) {
+        ps = con.prepareStatement(DBConstants.GET_OLDEST_ARCHIVE_MONTH);
+        rs = ps.executeQuery();
+        if (rs.next() && rs.getInt(1) > 0) {
+          first = toYearMonth(rs.getInt(1));
+        }
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+      }
+      Statement statement = con.createStatement();
+      for (String sql : partitionChanges(partitionMonths, first, now.plusMonths(1),
+          (retentionMonths > 0) ? now.minusMonths(retentionMonths) : null)) {
+        logger.info("Rolling ticket archive partitions: {}", sql);
+        statement.execute(sql);
+      }
+      statement.close();
+      return true;
+    } catch (Exception ex) {
+      logger.error("Error rolling ticket archive partitions", ex);
+      return false;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  /**
+   * Computes the DDL bringing the monthly partitions of the archive up to date.
+   *
+   * @param partitionMonths the yyyyMM of the existing monthly partitions, in order
+   * @param first the first month to create when there is no monthly partition yet
+   * @param last the last month to create
+   * @param dropBefore the months before it are dropped, null to drop none
+   * @return the statements to execute, in order, none if the partitions are up to date
+   */
+  public static List<String> partitionChanges(List<Integer> partitionMonths, YearMonth first,
+      YearMonth last, YearMonth dropBefore) {
+    List<String> changes = new ArrayList<>();
+    List<Integer> months = new ArrayList<>(partitionMonths);
+    YearMonth month = months.isEmpty() ? first
+        : toYearMonth(months.get(months.size() - 1)).plusMonths(1);
+    if (!month.isAfter(last)) {
+      StringBuilder sql = new StringBuilder("alter table ticket_archive reorganize partition ")
+          .append(MAX_PARTITION).append(" into (");
+      for (; !month.isAfter(last); month = month.plusMonths(1)) {
+        int yearMonth = toInt(month);
+        months.add(yearMonth);
+        sql.append("partition P").append(yearMonth).append(" values less than (")
+            .append(yearMonth + 1).append("), ");
+      }
+      changes.add(sql.append("partition ").append(MAX_PARTITION)
+          .append(" values less than maxvalue)").toString());
+    }
+    if (dropBefore != null) {
+      StringBuilder sql = new StringBuilder();
+      for (int yearMonth : months) {
+        if (yearMonth < toInt(dropBefore)) {
+          sql.append((sql.length() == 0) ? "alter table ticket_archive drop partition " : ", ")
+              .append('P').append(yearMonth);
+        }
+      }
+      if (sql.length() > 0) {
+        changes.add(sql.toString());
+      }
+    }
+    return changes;
+  }
+
+  private static YearMonth toYearMonth(int yearMonth) {
+    return YearMonth.of(yearMonth / 100, yearMonth % 100);
+  }
+
+  private static int toInt(YearMonth month) {
+    return month.getYear() * 100 + month.getMonthValue();
+  }
+
+  private void rollback(Connection con) {
+    if (con != null) {
+      try {
+        con.rollback();
+      } catch (SQLException e) {
+        logger.error("Error rolling back ticket archiving", e);
+      }
+    }
+  }
+
+  /**
+   * Archives old tickets periodically, from a background thread.
+   *
+   * @param periodSeconds the delay between two runs
+   */
+  public synchronized void start(long periodSeconds) {
+    stop();
+    archiveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ticket-archiver");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    archiveExecutor.scheduleWithFixedDelay(this::archive, periodSeconds, periodSeconds,
+        TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops the periodic runs, if started, interrupting the current one between two batches.
+   */
+  public synchronized void stop() {
+    if (archiveExecutor != null) {
+      archiveExecutor.shutdownNow();
+      archiveExecutor = null;
+    }
+  }
+}
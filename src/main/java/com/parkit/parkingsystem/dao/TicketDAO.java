@@ -1,96 +1,46 @@
 package com.parkit.parkingsystem.dao;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.Timestamp;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import com.parkit.parkingsystem.config.DataBaseConfig;
-import com.parkit.parkingsystem.constants.DBConstants;
-import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.model.ParkingSpot;
+import java.util.List;
+import java.util.function.Consumer;
 import com.parkit.parkingsystem.model.Ticket;
 
-public class TicketDAO {
-
-  private static final Logger logger = LogManager.getLogger("TicketDAO");
-
-  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
-
-  public boolean saveTicket(Ticket ticket) {
-    Connection con = null;
-    try {
-      con = dataBaseConfig.getConnection();
-      PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-      // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-      // ps.setInt(1,ticket.getId());
-      ps.setInt(1, ticket.getParkingSpot().getId());
-      ps.setString(2, ticket.getVehicleRegNumber());
-      ps.setDouble(3, ticket.getPrice());
-      ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-      ps.setTimestamp(5,
-          (ticket.getOutTime() == null) ? null : (new Timestamp(ticket.getOutTime().getTime())));
-      dataBaseConfig.closePreparedStatement(ps);
-      return ps.execute();
-    } catch (Exception ex) {
-      logger.error("Error fetching next available slot", ex);
-      return false;
-    } finally {
-      dataBaseConfig.closeConnection(con);
-
-    }
-  }
-
-  public Ticket getTicket(String vehicleRegNumber) {
-    Connection con = null;
-    Ticket ticket = null;
-    try {
-      con = dataBaseConfig.getConnection();
-      PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
-      // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-      ps.setString(1, vehicleRegNumber);
-      ResultSet rs = ps.executeQuery();
-      if (rs.next()) {
-        ticket = new Ticket();
-        ParkingSpot parkingSpot =
-            new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false);
-        ticket.setParkingSpot(parkingSpot);
-        ticket.setId(rs.getInt(2));
-        ticket.setVehicleRegNumber(vehicleRegNumber);
-        ticket.setPrice(rs.getDouble(3));
-        ticket.setInTime(rs.getTimestamp(4));
-        ticket.setOutTime(rs.getTimestamp(5));
-      }
-      dataBaseConfig.closeResultSet(rs);
-      dataBaseConfig.closePreparedStatement(ps);
-      return ticket;
-    } catch (Exception ex) {
-      logger.error("Error fetching next available slot", ex);
-      return ticket;
-    } finally {
-      dataBaseConfig.closeConnection(con);
-
-    }
-  }
-
-  public boolean updateTicket(Ticket ticket) {
-    Connection con = null;
-    try {
-      con = dataBaseConfig.getConnection();
-      PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-      ps.setDouble(1, ticket.getPrice());
-      ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-      ps.setInt(3, ticket.getId());
-      ps.execute();
-      dataBaseConfig.closePreparedStatement(ps);
-      return true;
-    } catch (Exception ex) {
-      logger.error("Error saving ticket info", ex);
-    } finally {
-
-      dataBaseConfig.closeConnection(con);
-    }
-    return false;
-  }
+/**
+ * The tickets, as the gates see them. {@link JdbcTicketDAO} keeps them in the DB,
+ * {@link EmbeddedTicketDAO} in an embedded store and {@link InMemoryTicketDAO} in memory only.
+ *
+ */
+public interface TicketDAO {
+
+  /**
+   * @param ticketCloseListener told of each ticket closed through this DAO, once updateTicket
+   *        succeeded, or null
+   */
+  void setTicketCloseListener(Consumer<Ticket> ticketCloseListener);
+
+  /**
+   * @return the tickets without out time, oldest first, empty if an error occurred
+   */
+  List<Ticket> getOpenTickets();
+
+  /**
+   * Saves a new ticket and sets its generated id.
+   * 
+   * @param ticket the ticket of an incoming vehicle
+   * @return the ticket has been saved
+   */
+  boolean saveTicket(Ticket ticket);
+
+  /**
+   * @param vehicleRegNumber the vehicle registration number
+   * @return the latest ticket of that vehicle, null if none or if an error occurred
+   */
+  Ticket getTicket(String vehicleRegNumber);
+
+  /**
+   * Saves the price and out time of an exiting vehicle.
+   * 
+   * @param ticket the ticket to update
+   * @return the ticket has been updated
+   */
+  boolean updateTicket(Ticket ticket);
 }
@@ -0,0 +1,536 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ZoneConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Loads historical tickets from a CSV or NDJSON file, much faster than one
+ * {@link TicketDAO#saveTicket(Ticket)} per ticket.
+ *
+ * The file is streamed: memory is bounded by the partition queues whatever its size. A CSV file
+ * starts with a header naming its columns; an NDJSON file holds one JSON object per line. Both
+ * use the fields {@code vehicleRegNumber}, {@code parkingNumber}, {@code parkingType},
+ * {@code price}, {@code inTime} and {@code outTime}, times being epoch millis or local date times
+ * such as {@code 2019-01-31T18:30:00}. Lines whose spot does not exist with that
+ * {@link ParkingType}, or whose times are inconsistent, are rejected. So are lines without out
+ * time: the spots are not claimed, so an open ticket would leave a vehicle parked on a free spot.
+ *
+ * Tickets are spread over partitions by vehicle, each written by its own thread and connection
+ * with multi-row inserts. The last line imported into each partition is committed with the
+ * tickets in the import_checkpoint table, so running the import of an interrupted file again
+ * resumes it without importing any line twice.
+ *
+ */
+public class TicketImporter {
+
+  private static final Logger logger = LogManager.getLogger("TicketImporter");
+
+  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  private static final long PROGRESS_INTERVAL_MILLIS = 10_000;
+  private static final int MAX_VEHICLE_REG_NUMBER_LENGTH = 10;
+
+  private final int partitionCount;
+  private final int batchSize;
+
+  /**
+   * @param partitionCount the number of tickets written in parallel; an interrupted import must
+   *        be resumed with the same number
+   * @param batchSize the number of tickets of each insert and commit
+   */
+  public TicketImporter(int partitionCount, int batchSize) {
+    this.partitionCount = partitionCount;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param file a CSV or NDJSON ticket file, identified by its name in the checkpoints
+   * @return the outcome of the import
+   */
+  public ImportReport importTickets(Path file) throws IOException, SQLException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return importTickets(file.getFileName().toString(), reader);
+    }
+  }
+
+  /**
+   * @param source the name of the source in the checkpoints
+   * @param reader the CSV or NDJSON tickets
+   * @return the outcome of the import
+   * @throws IllegalStateException if the source was partially imported with another number of
+   *         partitions
+   */
+  public ImportReport importTickets(String source, BufferedReader reader)
+      throws IOException, SQLException {
+    long start = System.currentTimeMillis();
+    long[] checkpoints = loadCheckpoints(source);
+    Map<Integer, ParkingType> parkingTypes = loadParkingTypes();
+    Partition[] partitions = new Partition[partitionCount];
+    for (int p = 0; p < partitionCount; p++) {
+      partitions[p] = new Partition(source, p);
+      partitions[p].start();
+    }
+    long lineNumber = 0;
+    long rejectedCount = 0;
+    long skippedCount = 0;
+    boolean endOfFile = false;
+    long nextProgress = start + PROGRESS_INTERVAL_MILLIS;
+    try {
+      String[] header = null;
+      String line;
+      while (!anyFailed(partitions)) {
+        line = reader.readLine();
+        if (line == null) {
+          endOfFile = true;
+          break;
+        }
+        lineNumber++;
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        Ticket ticket;
+        try {
+          if (line.charAt(0) == '{') {
+            ticket = toTicket(parseJsonObject(line), parkingTypes);
+          } else if (header == null) {
+            header = splitCsv(line);
+            continue;
+          } else {
+            ticket = toTicket(parseCsv(header, line), parkingTypes);
+          }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+          logger.warn("Rejected line {} of {}: {}", lineNumber, source, e.getMessage());
+          rejectedCount++;
+          continue;
+        }
+        Partition partition =
+            partitions[Math.floorMod(ticket.getVehicleRegNumber().hashCode(), partitionCount)];
+        if (lineNumber <= checkpoints[partition.number]) {
+          skippedCount++;
+          continue;
+        }
+        partition.put(new ImportRow(lineNumber, ticket));
+        if (System.currentTimeMillis() >= nextProgress) {
+          long imported = importedCount(partitions);
+          logger.info("Imported {} tickets of {} ({}/s)", imported, source,
+              imported * 1000 / (System.currentTimeMillis() - start));
+          nextProgress += PROGRESS_INTERVAL_MILLIS;
+        }
+      }
+    } finally {
+      for (Partition partition : partitions) {
+        partition.finish();
+      }
+    }
+    ImportReport report = new ImportReport(source, importedCount(partitions), rejectedCount,
+        skippedCount, System.currentTimeMillis() - start, endOfFile && !anyFailed(partitions));
+    logger.info("{}", report);
+    return report;
+  }
+
+  private static boolean anyFailed(Partition[] partitions) {
+    for (Partition partition : partitions) {
+      if (partition.failed) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long importedCount(Partition[] partitions) {
+    long importedCount = 0;
+    for (Partition partition : partitions) {
+      importedCount += partition.importedCount;
+    }
+    return importedCount;
+  }
+
+  /**
+   * @return the last imported line of each partition, after creating the checkpoints of a new
+   *         source
+   */
+  private long[] loadCheckpoints(String source) throws SQLException {
+    long[] checkpoints = new long[partitionCount];
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_IMPORT_CHECKPOINTS);
+      ps.setString(1, source);
+      ResultSet rs = ps.executeQuery();
+      int found = 0;
+      while (rs.next()) {
+        int partition = rs.getInt(1);
+        if (partition >= partitionCount) {
+          found = -1;
+          break;
+        }
+        checkpoints[partition] = rs.getLong(2);
+        found++;
+      }
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+      if (found != 0 && found != partitionCount) {
+        throw new IllegalStateException(
+            source + " was imported with another number of partitions than " + partitionCount);
+      }
+      if (found == 0) {
+        ps = con.prepareStatement(DBConstants.SAVE_IMPORT_CHECKPOINT);
+        for (int partition = 0; partition < partitionCount; partition++) {
+          ps.setString(1, source);
+          ps.setInt(2, partition);
+          ps.setLong(3, 0);
+          ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+      }
+      return checkpoints;
+    } catch (ClassNotFoundException e) {
+      throw new SQLException(e);
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  private Map<Integer, ParkingType> loadParkingTypes() {
+    JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    Map<Integer, ParkingType> parkingTypes = new HashMap<>();
+    for (ParkingSpot parkingSpot : parkingSpotDAO.getParkingSpots()) {
+      parkingTypes.put(parkingSpot.getId(), parkingSpot.getParkingType());
+    }
+    return parkingTypes;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the fields are not a valid ticket of an existing spot
+   */
+  static Ticket toTicket(Map<String, String> fields, Map<Integer, ParkingType> parkingTypes) {
+    String vehicleRegNumber = fields.get("vehicleRegNumber");
+    if (vehicleRegNumber == null || vehicleRegNumber.isEmpty()
+        || vehicleRegNumber.length() > MAX_VEHICLE_REG_NUMBER_LENGTH) {
+      throw new IllegalArgumentException("Invalid vehicle registration number " + vehicleRegNumber);
+    }
+    int parkingNumber = Integer.parseInt(required(fields, "parkingNumber"));
+    ParkingType parkingType = ParkingType.valueOf(required(fields, "parkingType"));
+    if (parkingType != parkingTypes.get(parkingNumber)) {
+      throw new IllegalArgumentException("No " + parkingType + " spot " + parkingNumber);
+    }
+    String price = fields.get("price");
+    Ticket ticket = new Ticket();
+    ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+    ticket.setVehicleRegNumber(vehicleRegNumber);
+    ticket.setPrice((price == null || price.isEmpty()) ? 0 : Double.parseDouble(price));
+    ticket.setInTimeMillis(parseTime(required(fields, "inTime")));
+    ticket.setOutTimeMillis(parseTime(required(fields, "outTime")));
+    if (ticket.getOutTimeMillis() < ticket.getInTimeMillis()) {
+      throw new IllegalArgumentException("Out time before in time");
+    }
+    if (ticket.getPrice() < 0) {
+      throw new IllegalArgumentException("Negative price");
+    }
+    return ticket;
+  }
+
+  private static String required(Map<String, String> fields, String name) {
+    String value = fields.get(name);
+    if (value == null || value.isEmpty()) {
+      throw new IllegalArgumentException("Missing " + name);
+    }
+    return value;
+  }
+
+  /**
+   * @return the epoch millis of a time given as such or as a date-time in the configured zone
+   */
+  private static long parseTime(String value) {
+    if (value.chars().allMatch(Character::isDigit)) {
+      return Long.parseLong(value);
+    }
+    return LocalDateTime.parse(value.replace(' ', 'T')).atZone(ZoneConfig.getZone()).toInstant()
+        .toEpochMilli();
+  }
+
+  private static String[] splitCsv(String line) {
+    String[] values = line.split(",", -1);
+    for (int i = 0; i < values.length; i++) {
+      String value = values[i].trim();
+      if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+        value = value.substring(1, value.length() - 1);
+      }
+      values[i] = value;
+    }
+    return values;
+  }
+
+  private static Map<String, String> parseCsv(String[] header, String line) {
+    String[] values = splitCsv(line);
+    if (values.length != header.length) {
+      throw new IllegalArgumentException(
+          values.length + " values for " + header.length + " columns");
+    }
+    Map<String, String> fields = new HashMap<>();
+    for (int i = 0; i < header.length; i++) {
+      fields.put(header[i], values[i]);
+    }
+    return fields;
+  }
+
+  /**
+   * Reads a flat JSON object of strings, numbers, booleans and nulls.
+   *
+   * @throws IllegalArgumentException if the line is not such an object
+   */
+  static Map<String, String> parseJsonObject(String line) {
+    Map<String, String> fields = new HashMap<>();
+    int[] position = {skipSpaces(line, 1)};
+    if (position[0] < line.length() && line.charAt(position[0]) == '}') {
+      return fields;
+    }
+    while (true) {
+      String name = parseJsonString(line, position);
+      position[0] = skipSpaces(line, position[0]);
+      expect(line, position[0]++, ':');
+      position[0] = skipSpaces(line, position[0]);
+      String value;
+      if (position[0] < line.length() && line.charAt(position[0]) == '"') {
+        value = parseJsonString(line, position);
+      } else {
+        int end = position[0];
+        while (end < line.length() && ",} \t".indexOf(line.charAt(end)) < 0) {
+          end++;
+        }
+        value = line.substring(position[0], end);
+        position[0] = end;
+        if (value.isEmpty()) {
+          throw new IllegalArgumentException("Missing value of " + name);
+        }
+        if ("null".equals(value)) {
+          value = null;
+        }
+      }
+      fields.put(name, value);
+      position[0] = skipSpaces(line, position[0]);
+      if (position[0] < line.length() && line.charAt(position[0]) == ',') {
+        position[0] = skipSpaces(line, position[0] + 1);
+        continue;
+      }
+      expect(line, position[0], '}');
+      return fields;
+    }
+  }
+
+  private static String parseJsonString(String line, int[] position) {
+    expect(line, position[0]++, '"');
+    StringBuilder value = new StringBuilder();
+    while (position[0] < line.length()) {
+      char c = line.charAt(position[0]++);
+      if (c == '"') {
+        return value.toString();
+      }
+      if (c == '\\' && position[0] < line.length()) {
+        char escaped = line.charAt(position[0]++);
+        switch (escaped) {
+          case 'n':
+            value.append('\n');
+            break;
+          case 't':
+            value.append('\t');
+            break;
+          case 'r':
+            value.append('\r');
+            break;
+          case 'u':
+            if (position[0] + 4 > line.length()) {
+              throw new IllegalArgumentException("Invalid unicode escape");
+            }
+            value.append((char) Integer.parseInt(line.substring(position[0], position[0] + 4),
+                16));
+            position[0] += 4;
+            break;
+          default:
+            value.append(escaped);
+        }
+      } else {
+        value.append(c);
+      }
+    }
+    throw new IllegalArgumentException("Unterminated string");
+  }
+
+  private static int skipSpaces(String line, int position) {
+    while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private static void expect(String line, int position, char expected) {
+    if (position >= line.length() || line.charAt(position) != expected) {
+      throw new IllegalArgumentException("Expected " + expected + " at " + position);
+    }
+  }
+
+  private static final class ImportRow {
+    private final long lineNumber;
+    private final Ticket ticket;
+
+    private ImportRow(long lineNumber, Ticket ticket) {
+      this.lineNumber = lineNumber;
+      this.ticket = ticket;
+    }
+  }
+
+  private static final ImportRow END_OF_FILE = new ImportRow(0, null);
+
+  /**
+   * The tickets of some vehicles, written in file order by one thread and connection.
+   */
+  private final class Partition implements Runnable {
+    private final String source;
+    private final int number;
+    private final BlockingQueue<ImportRow> queue = new ArrayBlockingQueue<>(2 * batchSize);
+    private final Thread writer;
+    private volatile boolean failed;
+    private volatile long importedCount;
+
+    private Partition(String source, int number) {
+      this.source = source;
+      this.number = number;
+      writer = new Thread(this, "ticket-import-" + number);
+      writer.setDaemon(true);
+    }
+
+    private void start() {
+      writer.start();
+    }
+
+    /**
+     * Waits for room in the queue, unless the writer failed.
+     */
+    private void put(ImportRow row) throws IOException {
+      try {
+        while (!queue.offer(row, 100, TimeUnit.MILLISECONDS)) {
+          if (failed) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Import interrupted", e);
+      }
+    }
+
+    /**
+     * Writes the queued tickets and waits for the writer to stop.
+     */
+    private void finish() {
+      try {
+        put(END_OF_FILE);
+        writer.join();
+      } catch (IOException e) {
+        writer.interrupt();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        writer.interrupt();
+      }
+    }
+
+    @Override
+    public void run() {
+      List<ImportRow> batch = new ArrayList<>(batchSize);
+      try {
+        while (!failed) {
+          ImportRow row = queue.take();
+          if (row != END_OF_FILE) {
+            batch.add(row);
+          }
+          if (batch.size() == batchSize || (row == END_OF_FILE && !batch.isEmpty())) {
+            failed = !write(batch);
+            batch.clear();
+          }
+          if (row == END_OF_FILE) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        failed = true;
+      }
+    }
+
+    /**
+     * Inserts the batch with one statement and moves the checkpoint, in one transaction.
+     */
+    private boolean write(List<ImportRow> batch) {
+      Connection con = null;
+      try {
+        con = dataBaseConfig.getConnection();
+        con.setAutoCommit(false);
+        StringBuilder sql = new StringBuilder(DBConstants.IMPORT_TICKETS);
+        for (int i = 0; i < batch.size(); i++) {
+          sql.append((i == 0) ? " " : ",").append(DBConstants.IMPORT_TICKET_VALUES);
+        }
+        PreparedStatement ps = con.prepareStatement(sql.toString());
+        int parameter = 1;
+        for (ImportRow row : batch) {
+          Ticket ticket = row.ticket;
+          ps.setInt(parameter++, ticket.getParkingSpot().getId());
+          ps.setString(parameter++, ticket.getVehicleRegNumber());
+          ps.setDouble(parameter++, ticket.getPrice());
+          ps.setTimestamp(parameter++, new Timestamp(ticket.getInTimeMillis()));
+          ps.setTimestamp(parameter++, new Timestamp(ticket.getOutTimeMillis()));
+        }
+        ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+        ps = con.prepareStatement(DBConstants.UPDATE_IMPORT_CHECKPOINT);
+        ps.setLong(1, batch.get(batch.size() - 1).lineNumber);
+        ps.setString(2, source);
+        ps.setInt(3, number);
+        ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+        con.commit();
+        importedCount += batch.size();
+        return true;
+      } catch (Exception ex) {
+        logger.error("Error importing tickets of {} up to line {}", source,
+            batch.get(batch.size() - 1).lineNumber, ex);
+        if (con != null) {
+          try {
+            con.rollback();
+          } catch (SQLException e) {
+            logger.error("Error rolling back ticket import", e);
+          }
+        }
+        return false;
+      } finally {
+        dataBaseConfig.closeConnection(con);
+      }
+    }
+  }
+}
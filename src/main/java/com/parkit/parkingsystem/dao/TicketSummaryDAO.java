@@ -0,0 +1,136 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.report.SummaryBucket;
+
+/**
+ * Reads and writes the ticket_summary table, the closed tickets counted per day, hour and parking
+ * type.
+ *
+ */
+public class TicketSummaryDAO {
+
+  private static final Logger logger = LogManager.getLogger("TicketSummaryDAO");
+
+  public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+  /**
+   * Adds the buckets to the ones already in the table, in a single transaction.
+   *
+   * @param buckets the tickets closed since the last call
+   * @return the buckets were added, false if an error occurred and none was
+   */
+  public boolean addSummaries(List<SummaryBucket> buckets) {
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      con.setAutoCommit(false);
+      insertSummaries(con, buckets);
+      con.commit();
+      return true;
+    } catch (Exception ex) {
+      logger.error("Error adding {} ticket summaries", buckets.size(), ex);
+      rollback(con);
+      return false;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  /**
+   * Replaces the buckets of a range of days, in a single transaction.
+   *
+   * @param firstDay the first day to replace
+   * @param lastDay the last day to replace, included
+   * @param buckets the new buckets of these days
+   * @return the buckets were replaced, false if an error occurred and the table is unchanged
+   */
+  public boolean replaceSummaries(LocalDate firstDay, LocalDate lastDay,
+      List<SummaryBucket> buckets) {
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      con.setAutoCommit(false);
+      PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_TICKET_SUMMARIES);
+      ps.setDate(1, Date.valueOf(firstDay));
+      ps.setDate(2, Date.valueOf(lastDay));
+      ps.executeUpdate();
+      dataBaseConfig.closePreparedStatement(ps);
+      insertSummaries(con, buckets);
+      con.commit();
+      return true;
+    } catch (Exception ex) {
+      logger.error("Error replacing the ticket summaries from {} to {}", firstDay, lastDay, ex);
+      rollback(con);
+      return false;
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  private void insertSummaries(Connection con, List<SummaryBucket> buckets) throws SQLException {
+    PreparedStatement ps = con.prepareStatement(DBConstants.ADD_TICKET_SUMMARY);
+    for (SummaryBucket bucket : buckets) {
+      ps.setDate(1, Date.valueOf(bucket.getDay()));
+      ps.setInt(2, bucket.getHour());
+      ps.setString(3, bucket.getParkingType().toString());
+      ps.setLong(4, bucket.getTicketCount());
+      ps.setDouble(5, bucket.getRevenue());
+      ps.setLong(6, bucket.getDurationMillis());
+      ps.addBatch();
+    }
+    ps.executeBatch();
+    dataBaseConfig.closePreparedStatement(ps);
+  }
+
+  /**
+   * @param firstDay the first day to read
+   * @param lastDay the last day to read, included
+   * @return the buckets of these days, by day, hour and parking type, empty if an error occurred
+   */
+  public List<SummaryBucket> getSummaries(LocalDate firstDay, LocalDate lastDay) {
+    Connection con = null;
+    List<SummaryBucket> buckets = new ArrayList<>();
+    try {
+      con = dataBaseConfig.getConnection();
+      PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_SUMMARIES);
+      ps.setDate(1, Date.valueOf(firstDay));
+      ps.setDate(2, Date.valueOf(lastDay));
+      ResultSet rs = ps.executeQuery();
+      while (rs.next()) {
+        buckets.add(new SummaryBucket(rs.getDate(1).toLocalDate(), rs.getInt(2),
+            ParkingType.valueOf(rs.getString(3)), rs.getLong(4), rs.getDouble(5), rs.getLong(6)));
+      }
+      dataBaseConfig.closeResultSet(rs);
+      dataBaseConfig.closePreparedStatement(ps);
+    } catch (Exception ex) {
+      logger.error("Error fetching the ticket summaries from {} to {}", firstDay, lastDay, ex);
+      buckets.clear();
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+    return buckets;
+  }
+
+  private void rollback(Connection con) {
+    if (con != null) {
+      try {
+        con.rollback();
+      } catch (SQLException e) {
+        logger.error("Error rolling back ticket summaries", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,344 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Queues ticket inserts and updates and writes them to the DB in JDBC batches, from a background
+ * thread, so that gates do not wait for a commit each.
+ *
+ * A batch is flushed when it reaches the batch size or when its oldest write has waited for the
+ * flush interval. Writes are flushed in the order they were submitted, so the update of a ticket
+ * always follows its insert, and an update submitted before the insert of its ticket was flushed
+ * is written with the ID that insert was given. The queue is bounded: when it is full, submitting waits for room, up
+ * to the enqueue timeout.
+ *
+ */
+public class TicketWriteBehind {
+
+  private static final Logger logger = LogManager.getLogger("TicketWriteBehind");
+
+  /**
+   * What a caller of {@link JdbcTicketDAO} waits for when write-behind is enabled.
+   */
+  public enum Acknowledgement {
+    /** Return as soon as the write is queued. */
+    FIRE_AND_FORGET,
+    /** Return once the batch holding the write has been committed. */
+    AWAIT_FLUSH
+  }
+
+  private enum Kind {
+    INSERT, UPDATE
+  }
+
+  private static final class PendingWrite {
+    private final Kind kind;
+    private final Ticket ticket;
+    /** The insert of a ticket updated before having an ID, which gives the ID once flushed. */
+    private final PendingWrite insert;
+    private final CompletableFuture<Boolean> flushed = new CompletableFuture<>();
+    /** Whether the statement of the write changed a row, once executed. */
+    private boolean applied;
+
+    private PendingWrite(Kind kind, Ticket ticket, PendingWrite insert) {
+      this.kind = kind;
+      this.ticket = ticket;
+      this.insert = insert;
+    }
+
+    /**
+     * @return the ID of the ticket, read from the flusher thread once the insert is flushed
+     */
+    private int getTicketId() {
+      return (insert != null) ? insert.ticket.getId() : ticket.getId();
+    }
+  }
+
+  private final DataBaseConfig dataBaseConfig;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final long enqueueTimeoutMillis;
+  private final BlockingQueue<PendingWrite> queue;
+  /** The latest insert of each vehicle, until its update is submitted or it fails. */
+  private final ConcurrentMap<String, PendingWrite> inserts = new ConcurrentHashMap<>();
+  private final Thread flusher;
+  private final Thread shutdownHook;
+  private volatile boolean closed;
+
+  /**
+   * Creates the queue and starts the flusher thread. The flusher is a daemon, so it does not keep
+   * the JVM alive, and a shutdown hook closes the queue, flushing the writes still queued.
+   *
+   * @param dataBaseConfig the DB the tickets are written to
+   * @param capacity the maximum number of writes waiting to be flushed
+   * @param batchSize the number of writes that triggers a flush
+   * @param flushIntervalMillis the maximum time a write waits before being flushed
+   * @param enqueueTimeoutMillis how long a submit waits for room when the queue is full
+   */
+  public TicketWriteBehind(DataBaseConfig dataBaseConfig, int capacity, int batchSize,
+      long flushIntervalMillis, long enqueueTimeoutMillis) {
+    this.dataBaseConfig = dataBaseConfig;
+    this.batchSize = batchSize;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.flusher = new Thread(this::runFlusher, "ticket-write-behind");
+    flusher.setDaemon(true);
+    flusher.start();
+    this.shutdownHook = new Thread(this::close, "ticket-write-behind-shutdown");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * @param ticket the ticket to insert, whose ID is set once flushed
+   * @return completed with true once committed, false if the write failed or was refused
+   */
+  public CompletableFuture<Boolean> submitInsert(Ticket ticket) {
+    String vehicleRegNumber = ticket.getVehicleRegNumber();
+    PendingWrite write = new PendingWrite(Kind.INSERT, ticket, null);
+    inserts.put(vehicleRegNumber, write);
+    write.flushed.thenAccept(written -> {
+      if (!written) {
+        inserts.remove(vehicleRegNumber, write);
+      }
+    });
+    return submit(write);
+  }
+
+  /**
+   * @param ticket the ticket whose price and out time are updated, without ID if it is a copy
+   *        taken before its insert was flushed
+   * @return completed with true once committed, false if the write failed or was refused
+   */
+  public CompletableFuture<Boolean> submitUpdate(Ticket ticket) {
+    PendingWrite insert = inserts.remove(ticket.getVehicleRegNumber());
+    return submit(new PendingWrite(Kind.UPDATE, ticket, (ticket.getId() == 0) ? insert : null));
+  }
+
+  private CompletableFuture<Boolean> submit(PendingWrite write) {
+    try {
+      if (closed || !queue.offer(write, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        logger.error("Ticket write refused: write-behind queue closed or full");
+        write.flushed.complete(false);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      write.flushed.complete(false);
+    }
+    return write.flushed;
+  }
+
+  /**
+   * @return the number of writes waiting to be flushed
+   */
+  public int getPendingCount() {
+    return queue.size();
+  }
+
+  /**
+   * Refuses new writes, flushes every queued one and stops the flusher thread.
+   */
+  public void close() {
+    closed = true;
+    if (Thread.currentThread() != shutdownHook) {
+      try {
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      } catch (IllegalStateException e) {
+        // Already shutting down: the hook closes it again, which is harmless.
+      }
+    }
+    flusher.interrupt();
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Writes that raced with close() are refused rather than left pending forever.
+    List<PendingWrite> late = new ArrayList<>();
+    queue.drainTo(late);
+    complete(late, false);
+  }
+
+  private void runFlusher() {
+    List<PendingWrite> batch = new ArrayList<>(batchSize);
+    while (!closed || !queue.isEmpty()) {
+      try {
+        collect(batch);
+      } catch (InterruptedException e) {
+        // Woken up by close(): flush what has been collected, then drain without waiting.
+      }
+      if (batch.isEmpty()) {
+        continue;
+      }
+      // An interrupt from close() must not abort the JDBC calls of the last flushes.
+      Thread.interrupted();
+      try {
+        flush(batch);
+      } catch (RuntimeException e) {
+        logger.error("Unexpected error in ticket write-behind", e);
+        complete(batch, false);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Waits for a first write, then for more writes until the batch is full or the first write has
+   * waited for the flush interval. Once closed, only takes what is already queued.
+   */
+  private void collect(List<PendingWrite> batch) throws InterruptedException {
+    PendingWrite first =
+        closed ? queue.poll() : queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+    if (first == null) {
+      return;
+    }
+    batch.add(first);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    while (batch.size() < batchSize) {
+      PendingWrite next = closed ? queue.poll()
+          : queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+    }
+  }
+
+  private void flush(List<PendingWrite> batch) {
+    Connection con = null;
+    try {
+      con = dataBaseConfig.getConnection();
+      con.setAutoCommit(false);
+      int start = 0;
+      while (start < batch.size()) {
+        Kind kind = batch.get(start).kind;
+        int end = start;
+        while (end < batch.size() && batch.get(end).kind == kind) {
+          end++;
+        }
+        List<PendingWrite> run = batch.subList(start, end);
+        if (kind == Kind.INSERT) {
+          executeInserts(con, run);
+        } else {
+          executeUpdates(con, run);
+        }
+        start = end;
+      }
+      con.commit();
+      for (PendingWrite write : batch) {
+        write.flushed.complete(write.applied);
+      }
+    } catch (Exception ex) {
+      logger.error("Error flushing a batch of {} tickets, retrying one by one", batch.size(),
+          ex);
+      rollback(con);
+      dataBaseConfig.closeConnection(con);
+      con = null;
+      flushOneByOne(batch);
+    } finally {
+      dataBaseConfig.closeConnection(con);
+    }
+  }
+
+  private void flushOneByOne(List<PendingWrite> batch) {
+    for (PendingWrite write : batch) {
+      Connection con = null;
+      try {
+        con = dataBaseConfig.getConnection();
+        List<PendingWrite> single = Collections.singletonList(write);
+        if (write.kind == Kind.INSERT) {
+          executeInserts(con, single);
+        } else {
+          executeUpdates(con, single);
+        }
+        write.flushed.complete(write.applied);
+      } catch (Exception ex) {
+        logger.error("Error writing ticket of vehicle {}", write.ticket.getVehicleRegNumber(), ex);
+        write.flushed.complete(false);
+      } finally {
+        dataBaseConfig.closeConnection(con);
+      }
+    }
+  }
+
+  private void executeInserts(Connection con, List<PendingWrite> writes) throws SQLException {
+    PreparedStatement ps =
+        con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+    for (PendingWrite write : writes) {
+      JdbcTicketDAO.bindSaveTicket(ps, write.ticket);
+      ps.addBatch();
+    }
+    recordApplied(writes, ps.executeBatch());
+    ResultSet generatedKeys = ps.getGeneratedKeys();
+    for (PendingWrite write : writes) {
+      if (!generatedKeys.next()) {
+        break;
+      }
+      write.ticket.setId(generatedKeys.getInt(1));
+    }
+    dataBaseConfig.closeResultSet(generatedKeys);
+    dataBaseConfig.closePreparedStatement(ps);
+  }
+
+  private void executeUpdates(Connection con, List<PendingWrite> writes) throws SQLException {
+    PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
+    for (PendingWrite write : writes) {
+      JdbcTicketDAO.bindUpdateTicket(ps, write.ticket, write.getTicketId());
+      ps.addBatch();
+    }
+    recordApplied(writes, ps.executeBatch());
+    dataBaseConfig.closePreparedStatement(ps);
+  }
+
+  /**
+   * Records which writes changed a row: an update of a ticket missing from the DB matches none and
+   * must not be reported as written.
+   */
+  private static void recordApplied(List<PendingWrite> writes, int[] updateCounts) {
+    for (int i = 0; i < writes.size(); i++) {
+      PendingWrite write = writes.get(i);
+      int updateCount = (updateCounts != null && i < updateCounts.length) ? updateCounts[i]
+          : Statement.EXECUTE_FAILED;
+      write.applied = updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO;
+      if (!write.applied) {
+        logger.error("Ticket {} of vehicle {} matched no row", write.getTicketId(),
+            write.ticket.getVehicleRegNumber());
+      }
+    }
+  }
+
+  private void rollback(Connection con) {
+    if (con != null) {
+      try {
+        con.rollback();
+      } catch (SQLException e) {
+        logger.error("Error rolling back ticket batch", e);
+      }
+    }
+  }
+
+  private static void complete(List<PendingWrite> batch, boolean success) {
+    for (PendingWrite write : batch) {
+      write.flushed.complete(success);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the manner of HdrHistogram.
+ *
+ * Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so any recorded value
+ * is known within about 3% whatever its magnitude, from nanoseconds to hours, in a fixed array of
+ * counters. Recording is a few shifts and one atomic increment, without allocation.
+ *
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * @param value the value to record, negative values being recorded as 0
+   */
+  public void record(long value) {
+    long recorded = Math.max(0, value);
+    buckets.incrementAndGet(bucketOf(recorded));
+    count.increment();
+    sum.add(recorded);
+    max.accumulate(recorded);
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return the smallest value falling in the given bucket
+   */
+  static long lowestValueOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the lowest value of the bucket holding the given percentile, 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      counts[bucket] = buckets.get(bucket);
+      total += counts[bucket];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      seen += counts[bucket];
+      if (seen >= rank) {
+        return lowestValueOf(bucket);
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Forgets every recorded value. Values recorded meanwhile may be partly kept.
+   */
+  public void reset() {
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      buckets.set(bucket, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.reset();
+  }
+}
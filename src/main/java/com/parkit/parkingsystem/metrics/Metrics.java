@@ -0,0 +1,182 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency histograms and failure counters of each {@link Phase}, shared by the whole process.
+ *
+ * Timing a phase is:
+ *
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.stop(Phase.TICKET_SAVE, start);
+ * </pre>
+ *
+ * When disabled, which is the default, {@link #start()} is a volatile read and
+ * {@link #stop(Phase, long)} returns at once, so the instrumentation can stay on the gate path.
+ *
+ * Components keeping counters of their own, such as a cache, publish them with
+ * {@link #registerCounter(String, String, LongSupplier)}; those are read, never reset, from here.
+ *
+ */
+public final class Metrics {
+
+  private static final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+  private static final LongAdder[] failures = new LongAdder[Phase.values().length];
+  private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+  private static volatile boolean enabled;
+
+  private static final class Counter {
+    private final String help;
+    private final LongSupplier value;
+
+    private Counter(String help, LongSupplier value) {
+      this.help = help;
+      this.value = value;
+    }
+  }
+
+  static {
+    for (Phase phase : Phase.values()) {
+      histograms[phase.ordinal()] = new LatencyHistogram();
+      failures[phase.ordinal()] = new LongAdder();
+    }
+  }
+
+  private Metrics() {}
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean enabled) {
+    Metrics.enabled = enabled;
+  }
+
+  /**
+   * @return the start time of a phase, 0 when metrics are disabled
+   */
+  public static long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the duration of a phase.
+   *
+   * @param phase the phase
+   * @param start the value returned by {@link #start()} when the phase started
+   */
+  public static void stop(Phase phase, long start) {
+    if (start != 0) {
+      histograms[phase.ordinal()].record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Counts a failed phase, when metrics are enabled.
+   */
+  public static void fail(Phase phase) {
+    if (enabled) {
+      failures[phase.ordinal()].increment();
+    }
+  }
+
+  public static LatencyHistogram getHistogram(Phase phase) {
+    return histograms[phase.ordinal()];
+  }
+
+  public static long getFailureCount(Phase phase) {
+    return failures[phase.ordinal()].sum();
+  }
+
+  /**
+   * Publishes a counter kept by a component, replacing the one registered under the same name.
+   *
+   * @param name the name of the counter, without the parkingsystem_ prefix
+   * @param help what it counts
+   * @param value reads the counter
+   */
+  public static void registerCounter(String name, String help, LongSupplier value) {
+    counters.put(name, new Counter(help, value));
+  }
+
+  /**
+   * @return the value of each registered counter, by name
+   */
+  public static Map<String, Long> getCounters() {
+    Map<String, Long> values = new LinkedHashMap<>();
+    counters.forEach((name, counter) -> values.put(name, counter.value.getAsLong()));
+    return values;
+  }
+
+  /**
+   * Forgets every recorded duration and failure.
+   */
+  public static void reset() {
+    for (Phase phase : Phase.values()) {
+      histograms[phase.ordinal()].reset();
+      failures[phase.ordinal()].reset();
+    }
+  }
+
+  /**
+   * @return every phase and registered counter in the Prometheus text exposition format,
+   *         durations in seconds
+   */
+  public static String toPrometheusText() {
+    StringBuilder text = new StringBuilder();
+    text.append("# HELP parkingsystem_phase_duration_seconds Duration of the parking workflow"
+        + " phases\n");
+    text.append("# TYPE parkingsystem_phase_duration_seconds summary\n");
+    for (Phase phase : Phase.values()) {
+      LatencyHistogram histogram = getHistogram(phase);
+      String label = "phase=\"" + phase.name().toLowerCase(Locale.ROOT) + "\"";
+      for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+        appendSample(text, "parkingsystem_phase_duration_seconds",
+            label + ",quantile=\"" + quantile + "\"",
+            seconds(histogram.getValueAtPercentile(quantile * 100)));
+      }
+      appendSample(text, "parkingsystem_phase_duration_seconds_sum", label,
+          seconds(histogram.getSum()));
+      appendSample(text, "parkingsystem_phase_duration_seconds_count", label,
+          String.valueOf(histogram.getCount()));
+    }
+    text.append("# HELP parkingsystem_phase_max_seconds Longest duration of each phase\n");
+    text.append("# TYPE parkingsystem_phase_max_seconds gauge\n");
+    for (Phase phase : Phase.values()) {
+      appendSample(text, "parkingsystem_phase_max_seconds",
+          "phase=\"" + phase.name().toLowerCase(Locale.ROOT) + "\"",
+          seconds(getHistogram(phase).getMax()));
+    }
+    text.append("# HELP parkingsystem_phase_failures_total Failed phases\n");
+    text.append("# TYPE parkingsystem_phase_failures_total counter\n");
+    for (Phase phase : Phase.values()) {
+      appendSample(text, "parkingsystem_phase_failures_total",
+          "phase=\"" + phase.name().toLowerCase(Locale.ROOT) + "\"",
+          String.valueOf(getFailureCount(phase)));
+    }
+    counters.forEach((name, counter) -> {
+      text.append("# HELP parkingsystem_").append(name).append(' ').append(counter.help)
+          .append('\n');
+      text.append("# TYPE parkingsystem_").append(name).append(" counter\n");
+      text.append("parkingsystem_").append(name).append(' ')
+          .append(counter.value.getAsLong()).append('\n');
+    });
+    return text.toString();
+  }
+
+  private static void appendSample(StringBuilder text, String name, String labels,
+      String value) {
+    text.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+  }
+
+  private static String seconds(long nanos) {
+    return String.valueOf(nanos / 1e9);
+  }
+}
@@ -0,0 +1,65 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves {@link Metrics#toPrometheusText()} on {@code GET /metrics}, for Prometheus to scrape.
+ *
+ * The endpoint has no authentication: it listens on the loopback interface unless given another
+ * address.
+ *
+ */
+public class MetricsHttpServer {
+
+  private static final Logger logger = LogManager.getLogger("MetricsHttpServer");
+
+  private final HttpServer server;
+
+  /**
+   * @param port the port to listen on, on the loopback interface, 0 for any free port
+   * @throws IOException if the port cannot be bound
+   */
+  public MetricsHttpServer(int port) throws IOException {
+    this(InetAddress.getLoopbackAddress(), port);
+  }
+
+  /**
+   * @param bindAddress the address to listen on, the wildcard address for every interface
+   * @param port the port to listen on, 0 for any free port
+   * @throws IOException if the port cannot be bound
+   */
+  public MetricsHttpServer(InetAddress bindAddress, int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+    server.createContext("/metrics", this::serveMetrics);
+  }
+
+  public void start() {
+    server.start();
+    logger.info("Metrics served on {}", server.getAddress());
+  }
+
+  public int getLocalPort() {
+    return server.getAddress().getPort();
+  }
+
+  public void stop() {
+    server.stop(0);
+  }
+
+  private void serveMetrics(HttpExchange exchange) throws IOException {
+    byte[] body = Metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
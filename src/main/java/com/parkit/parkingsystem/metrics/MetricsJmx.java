@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Publishes the {@link Metrics} on the platform MBean server.
+ *
+ */
+public class MetricsJmx implements MetricsMXBean {
+
+  private static final Logger logger = LogManager.getLogger("MetricsJmx");
+
+  public static final String OBJECT_NAME = "com.parkit.parkingsystem:type=Metrics";
+
+  /**
+   * Registers the metrics MBean, unless already registered.
+   */
+  public static void register() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(new MetricsJmx(), name);
+      }
+    } catch (JMException e) {
+      logger.error("Unable to register the metrics MBean", e);
+    }
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return Metrics.isEnabled();
+  }
+
+  @Override
+  public void setEnabled(boolean enabled) {
+    Metrics.setEnabled(enabled);
+  }
+
+  @Override
+  public Map<String, Long> getCounts() {
+    return byPhase(LatencyHistogram::getCount);
+  }
+
+  @Override
+  public Map<String, Long> getFailureCounts() {
+    Map<String, Long> values = new LinkedHashMap<>();
+    for (Phase phase : Phase.values()) {
+      values.put(phase.name(), Metrics.getFailureCount(phase));
+    }
+    return values;
+  }
+
+  @Override
+  public Map<String, Long> getMedianMicros() {
+    return byPhase(histogram -> histogram.getValueAtPercentile(50) / 1000);
+  }
+
+  @Override
+  public Map<String, Long> getP99Micros() {
+    return byPhase(histogram -> histogram.getValueAtPercentile(99) / 1000);
+  }
+
+  @Override
+  public Map<String, Long> getMaxMicros() {
+    return byPhase(histogram -> histogram.getMax() / 1000);
+  }
+
+  @Override
+  public Map<String, Long> getCounters() {
+    return Metrics.getCounters();
+  }
+
+  @Override
+  public String dumpPrometheusText() {
+    return Metrics.toPrometheusText();
+  }
+
+  @Override
+  public void reset() {
+    Metrics.reset();
+  }
+
+  private static Map<String, Long> byPhase(ToLongFunction<LatencyHistogram> value) {
+    Map<String, Long> values = new LinkedHashMap<>();
+    for (Phase phase : Phase.values()) {
+      values.put(phase.name(), value.applyAsLong(Metrics.getHistogram(phase)));
+    }
+    return values;
+  }
+}
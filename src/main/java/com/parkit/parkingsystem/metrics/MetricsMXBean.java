@@ -0,0 +1,37 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.Map;
+
+/**
+ * The {@link Metrics} as seen from JMX, under {@value MetricsJmx#OBJECT_NAME}. Durations are in
+ * microseconds and maps are keyed by phase.
+ *
+ */
+public interface MetricsMXBean {
+
+  boolean isEnabled();
+
+  void setEnabled(boolean enabled);
+
+  Map<String, Long> getCounts();
+
+  Map<String, Long> getFailureCounts();
+
+  Map<String, Long> getMedianMicros();
+
+  Map<String, Long> getP99Micros();
+
+  Map<String, Long> getMaxMicros();
+
+  /**
+   * @return the counters registered by components, keyed by counter name
+   */
+  Map<String, Long> getCounters();
+
+  /**
+   * @return every phase and counter in the Prometheus text format
+   */
+  String dumpPrometheusText();
+
+  void reset();
+}
@@ -0,0 +1,26 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * The timed steps of the parking workflow.
+ *
+ */
+public enum Phase {
+  /** Borrowing a connection from the pool. */
+  DB_CONNECT,
+  /** Finding and claiming a free spot for an incoming vehicle. */
+  SPOT_LOOKUP,
+  /** Marking a spot free or taken in the DB. */
+  SPOT_UPDATE,
+  /** Saving the ticket of an incoming vehicle. */
+  TICKET_SAVE,
+  /** Fetching the ticket of an exiting vehicle. */
+  TICKET_FETCH,
+  /** Pricing a ticket, discount included. */
+  FARE_CALC,
+  /** Closing the ticket of an exiting vehicle. */
+  TICKET_UPDATE,
+  /** A whole vehicle entry. */
+  INCOMING_VEHICLE,
+  /** A whole vehicle exit. */
+  EXITING_VEHICLE
+}
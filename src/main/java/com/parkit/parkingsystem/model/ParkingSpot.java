@@ -2,15 +2,34 @@ package com.parkit.parkingsystem.model;
 
 import com.parkit.parkingsystem.constants.ParkingType;
 
+import java.util.Objects;
+
 public class ParkingSpot {
+    /**
+     * The site of a single-site deployment.
+     */
+    public static final String DEFAULT_SITE = "default";
+
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
+    private String site;
+    private int level;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
+        this(number, parkingType, isAvailable, DEFAULT_SITE, 0);
+    }
+
+    /**
+     * @param site the parking lot the spot is in, its spots and tickets being stored in the database of that site
+     * @param level the level of the spot in its site
+     */
+    public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable, String site, int level) {
         this.number = number;
         this.parkingType = parkingType;
         this.isAvailable = isAvailable;
+        this.site = site;
+        this.level = level;
     }
 
     public int getId() {
@@ -37,16 +56,32 @@ public class ParkingSpot {
         isAvailable = available;
     }
 
+    public String getSite() {
+        return site;
+    }
+
+    public void setSite(String site) {
+        this.site = site;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ParkingSpot that = (ParkingSpot) o;
-        return number == that.number;
+        return number == that.number && Objects.equals(site, that.site);
     }
 
     @Override
     public int hashCode() {
-        return number;
+        return 31 * Objects.hashCode(site) + number;
     }
 }
@@ -1,15 +1,26 @@
 package com.parkit.parkingsystem.model;
 
-import java.util.Calendar;
 import java.util.Date;
 
+/**
+ * Times are kept as epoch millis, so that a gate event does not allocate them: use the millis
+ * accessors on hot paths, the {@link Date} ones only for display and existing callers.
+ *
+ */
 public class Ticket {
+    /**
+     * The millis of a time not set, such as the out time of an open ticket. Every other value, -1
+     * included, is a valid instant.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
     private int id;
     private ParkingSpot parkingSpot;
     private String vehicleRegNumber;
     private double price;
-    private Date inTime;
-    private Date outTime;
+    private long inTimeMillis = NO_TIME;
+    private long outTimeMillis = NO_TIME;
+    private boolean discounted;
 
     public int getId() {
         return id;
@@ -27,6 +38,20 @@ public class Ticket {
         this.parkingSpot = parkingSpot;
     }
 
+    /**
+     * @return the site of the spot of the ticket, which stores the ticket
+     */
+    public String getSite() {
+        return (parkingSpot == null) ? ParkingSpot.DEFAULT_SITE : parkingSpot.getSite();
+    }
+
+    /**
+     * @return the level of the spot of the ticket in its site
+     */
+    public int getLevel() {
+        return (parkingSpot == null) ? 0 : parkingSpot.getLevel();
+    }
+
     public String getVehicleRegNumber() {
         return vehicleRegNumber;
     }
@@ -43,19 +68,80 @@ public class Ticket {
         this.price = price;
     }
 
+    /**
+     * @return whether the price has the recurring user discount, as set when the vehicle exits
+     */
+    public boolean isDiscounted() {
+        return discounted;
+    }
+
+    public void setDiscounted(boolean discounted) {
+        this.discounted = discounted;
+    }
+
+    /**
+     * @return the in time in epoch millis, {@link #NO_TIME} if not set
+     */
+    public long getInTimeMillis() {
+        return inTimeMillis;
+    }
+
+    public void setInTimeMillis(long inTimeMillis) {
+        this.inTimeMillis = inTimeMillis;
+    }
+
+    /**
+     * @return the out time in epoch millis, {@link #NO_TIME} while the ticket is open
+     */
+    public long getOutTimeMillis() {
+        return outTimeMillis;
+    }
+
+    public void setOutTimeMillis(long outTimeMillis) {
+        this.outTimeMillis = outTimeMillis;
+    }
+
+    /**
+     * @return whether the in time is set
+     */
+    public boolean hasInTime() {
+        return inTimeMillis != NO_TIME;
+    }
+
+    /**
+     * @return whether the vehicle has exited
+     */
+    public boolean hasOutTime() {
+        return outTimeMillis != NO_TIME;
+    }
+
+    /**
+     * @return a copy of the in time, null if not set
+     */
     public Date getInTime() {
-        return inTime;
+        return toDate(inTimeMillis);
     }
 
     public void setInTime(Date inTime) {
-        this.inTime = inTime;
+        this.inTimeMillis = toMillis(inTime);
     }
 
+    /**
+     * @return a copy of the out time, null while the ticket is open
+     */
     public Date getOutTime() {
-        return outTime;
+        return toDate(outTimeMillis);
     }
 
     public void setOutTime(Date outTime) {
-        this.outTime = outTime;
+        this.outTimeMillis = toMillis(outTime);
+    }
+
+    private static Date toDate(long millis) {
+        return (millis == NO_TIME) ? null : new Date(millis);
+    }
+
+    private static long toMillis(Date date) {
+        return (date == null) ? NO_TIME : date.getTime();
     }
 }
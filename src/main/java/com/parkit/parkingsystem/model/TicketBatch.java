@@ -0,0 +1,206 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Tickets of a site held column by column, for bulk processing such as fare recomputation and
+ * reports over millions of tickets.
+ *
+ * Each ticket is a row of primitive columns, about 33 bytes, instead of a {@link Ticket},
+ * {@link ParkingSpot} and registration number per ticket. Registration numbers are
+ * dictionary-encoded: each distinct one is stored once and rows hold its int code, which also
+ * lets callers keep per-vehicle data in plain arrays. Not thread-safe while it is filled.
+ *
+ */
+public class TicketBatch {
+
+  private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+  private static final int DEFAULT_CAPACITY = 1_024;
+
+  private final String site;
+  private int size;
+  private int[] parkingNumbers;
+  private byte[] parkingTypes;
+  private int[] vehicleCodes;
+  private long[] inTimesMillis;
+  private long[] outTimesMillis;
+  private double[] prices;
+  private final Map<String, Integer> vehicleCodesByRegNumber = new HashMap<>();
+  private String[] vehicleRegNumbers;
+
+  public TicketBatch(String site) {
+    this(site, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param site the site of the tickets
+   * @param capacity the number of tickets held before the columns grow
+   */
+  public TicketBatch(String site, int capacity) {
+    this.site = site;
+    int initialCapacity = Math.max(capacity, 1);
+    parkingNumbers = new int[initialCapacity];
+    parkingTypes = new byte[initialCapacity];
+    vehicleCodes = new int[initialCapacity];
+    inTimesMillis = new long[initialCapacity];
+    outTimesMillis = new long[initialCapacity];
+    prices = new double[initialCapacity];
+    vehicleRegNumbers = new String[Math.min(initialCapacity, DEFAULT_CAPACITY)];
+  }
+
+  /**
+   * Adds a ticket. Matches {@code ReportDAO.TicketRowHandler}, so that {@code batch::add} loads
+   * streamed tickets.
+   *
+   * @param parkingNumber the number of the spot of the ticket
+   * @param parkingType the type of the spot
+   * @param vehicleRegNumber the vehicle registration number
+   * @param price the price paid, 0 for an open ticket
+   * @param inTimeMillis the entry time, in epoch millis, or {@link Ticket#NO_TIME}
+   * @param outTimeMillis the exit time, in epoch millis, or {@link Ticket#NO_TIME}
+   * @return the row of the ticket
+   */
+  public int add(int parkingNumber, ParkingType parkingType, String vehicleRegNumber,
+      double price, long inTimeMillis, long outTimeMillis) {
+    if (size == parkingNumbers.length) {
+      grow();
+    }
+    int row = size++;
+    parkingNumbers[row] = parkingNumber;
+    parkingTypes[row] = (byte) parkingType.ordinal();
+    vehicleCodes[row] = encode(vehicleRegNumber);
+    prices[row] = price;
+    inTimesMillis[row] = inTimeMillis;
+    outTimesMillis[row] = outTimeMillis;
+    return row;
+  }
+
+  /**
+   * @param ticket the ticket to add, of the site of the batch
+   * @return the row of the ticket
+   */
+  public int add(Ticket ticket) {
+    ParkingSpot parkingSpot = ticket.getParkingSpot();
+    return add(parkingSpot.getId(), parkingSpot.getParkingType(), ticket.getVehicleRegNumber(),
+        ticket.getPrice(), ticket.getInTimeMillis(), ticket.getOutTimeMillis());
+  }
+
+  private void grow() {
+    int capacity = parkingNumbers.length * 2;
+    parkingNumbers = Arrays.copyOf(parkingNumbers, capacity);
+    parkingTypes = Arrays.copyOf(parkingTypes, capacity);
+    vehicleCodes = Arrays.copyOf(vehicleCodes, capacity);
+    inTimesMillis = Arrays.copyOf(inTimesMillis, capacity);
+    outTimesMillis = Arrays.copyOf(outTimesMillis, capacity);
+    prices = Arrays.copyOf(prices, capacity);
+  }
+
+  private int encode(String vehicleRegNumber) {
+    Integer code = vehicleCodesByRegNumber.get(vehicleRegNumber);
+    if (code != null) {
+      return code;
+    }
+    int vehicleCount = vehicleCodesByRegNumber.size();
+    if (vehicleCount == vehicleRegNumbers.length) {
+      vehicleRegNumbers = Arrays.copyOf(vehicleRegNumbers, vehicleCount * 2);
+    }
+    vehicleRegNumbers[vehicleCount] = vehicleRegNumber;
+    vehicleCodesByRegNumber.put(vehicleRegNumber, vehicleCount);
+    return vehicleCount;
+  }
+
+  public String getSite() {
+    return site;
+  }
+
+  /**
+   * @return the number of tickets
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of distinct vehicles, whose codes go from 0 to this number excluded
+   */
+  public int getVehicleCount() {
+    return vehicleCodesByRegNumber.size();
+  }
+
+  /**
+   * @param vehicleRegNumber a vehicle registration number
+   * @return the code of the vehicle, -1 if it has no ticket in the batch
+   */
+  public int findVehicleCode(String vehicleRegNumber) {
+    Integer code = vehicleCodesByRegNumber.get(vehicleRegNumber);
+    return (code == null) ? -1 : code;
+  }
+
+  /**
+   * @param vehicleCode the code of a vehicle
+   * @return its registration number
+   */
+  public String decodeVehicle(int vehicleCode) {
+    return vehicleRegNumbers[vehicleCode];
+  }
+
+  public int getParkingNumber(int row) {
+    return parkingNumbers[row];
+  }
+
+  public ParkingType getParkingType(int row) {
+    return PARKING_TYPES[parkingTypes[row]];
+  }
+
+  public int getVehicleCode(int row) {
+    return vehicleCodes[row];
+  }
+
+  public String getVehicleRegNumber(int row) {
+    return vehicleRegNumbers[vehicleCodes[row]];
+  }
+
+  public double getPrice(int row) {
+    return prices[row];
+  }
+
+  public void setPrice(int row, double price) {
+    prices[row] = price;
+  }
+
+  public long getInTimeMillis(int row) {
+    return inTimesMillis[row];
+  }
+
+  /**
+   * @return the exit time in epoch millis, {@link Ticket#NO_TIME} for a vehicle still parked
+   */
+  public long getOutTimeMillis(int row) {
+    return outTimesMillis[row];
+  }
+
+  public boolean hasInTime(int row) {
+    return inTimesMillis[row] != Ticket.NO_TIME;
+  }
+
+  public boolean hasOutTime(int row) {
+    return outTimesMillis[row] != Ticket.NO_TIME;
+  }
+
+  /**
+   * @return the ticket of the row, as an object, without its id
+   */
+  public Ticket toTicket(int row) {
+    Ticket ticket = new Ticket();
+    ticket.setParkingSpot(
+        new ParkingSpot(parkingNumbers[row], getParkingType(row), false, site, 0));
+    ticket.setVehicleRegNumber(getVehicleRegNumber(row));
+    ticket.setPrice(prices[row]);
+    ticket.setInTimeMillis(inTimesMillis[row]);
+    ticket.setOutTimeMillis(outTimesMillis[row]);
+    return ticket;
+  }
+}
@@ -0,0 +1,189 @@
+package com.parkit.parkingsystem.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Locale;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Revenue and occupancy of a range of days, built by {@link ReportEngine}.
+ *
+ * Revenue is counted at the exit of each vehicle, in the hour of the day, from local midnight,
+ * the vehicle left.
+ *
+ */
+public class ParkingReport {
+
+  static final int HOURS_PER_DAY = 24;
+
+  private final LocalDate firstDay;
+  private final int days;
+  final double[][] revenue;
+  final long[][] exits;
+  final long[] closedTickets = new long[ParkingType.values().length];
+  final long[] dwellMillis = new long[ParkingType.values().length];
+  final int[] peakOccupancy = new int[ParkingType.values().length];
+  final long[] peakTimeMillis = new long[ParkingType.values().length];
+  long distinctVehicles;
+  boolean complete;
+
+  ParkingReport(LocalDate firstDay, int days) {
+    this.firstDay = firstDay;
+    this.days = days;
+    revenue = new double[ParkingType.values().length][days * HOURS_PER_DAY];
+    exits = new long[ParkingType.values().length][days * HOURS_PER_DAY];
+  }
+
+  public LocalDate getFirstDay() {
+    return firstDay;
+  }
+
+  public int getDays() {
+    return days;
+  }
+
+  /**
+   * @param day the day index, from 0 for the first day
+   * @param hour the hour of the day, from 0 to 23
+   * @return the revenue of the vehicles of that type that left in that hour
+   */
+  public double getRevenue(ParkingType parkingType, int day, int hour) {
+    return revenue[parkingType.ordinal()][day * HOURS_PER_DAY + hour];
+  }
+
+  /**
+   * @param day the day index, from 0 for the first day
+   * @param hour the hour of the day, from 0 to 23
+   * @return the number of vehicles of that type that left in that hour
+   */
+  public long getExits(ParkingType parkingType, int day, int hour) {
+    return exits[parkingType.ordinal()][day * HOURS_PER_DAY + hour];
+  }
+
+  /**
+   * @param day the day index, from 0 for the first day
+   * @return the revenue of the vehicles of that type that left on that day
+   */
+  public double getDailyRevenue(ParkingType parkingType, int day) {
+    double dailyRevenue = 0;
+    for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+      dailyRevenue += getRevenue(parkingType, day, hour);
+    }
+    return dailyRevenue;
+  }
+
+  public double getTotalRevenue(ParkingType parkingType) {
+    double totalRevenue = 0;
+    for (double hourlyRevenue : revenue[parkingType.ordinal()]) {
+      totalRevenue += hourlyRevenue;
+    }
+    return totalRevenue;
+  }
+
+  /**
+   * @return the number of vehicles of that type that left during the range
+   */
+  public long getClosedTickets(ParkingType parkingType) {
+    return closedTickets[parkingType.ordinal()];
+  }
+
+  /**
+   * @return the average stay, in minutes, of the vehicles of that type that left during the range
+   */
+  public double getAverageDwellMinutes(ParkingType parkingType) {
+    long count = closedTickets[parkingType.ordinal()];
+    return (count == 0) ? 0 : dwellMillis[parkingType.ordinal()] / 60_000.0 / count;
+  }
+
+  /**
+   * @return the largest number of vehicles of that type parked at the same minute
+   */
+  public int getPeakOccupancy(ParkingType parkingType) {
+    return peakOccupancy[parkingType.ordinal()];
+  }
+
+  /**
+   * @return the first minute the peak occupancy was reached, in epoch millis
+   */
+  public long getPeakTimeMillis(ParkingType parkingType) {
+    return peakTimeMillis[parkingType.ordinal()];
+  }
+
+  /**
+   * The share of the exits that were repeat visits: every exit of a vehicle but its first during
+   * the range, or (exits - distinct vehicles) / exits.
+   *
+   * The distinct vehicles are estimated within about 1%, and subtracting them from the exits
+   * amplifies that error: it is about 1% of distinct vehicles / exits in absolute terms, so the
+   * share is only meaningful once it is well above that.
+   *
+   * @return the share of repeat visits among the exits of the range
+   */
+  public double getRecurringCustomerShare() {
+    long visits = 0;
+    for (long count : closedTickets) {
+      visits += count;
+    }
+    return (visits == 0) ? 0 : Math.max(0, visits - distinctVehicles) / (double) visits;
+  }
+
+  /**
+   * @return the tickets of the range were all read, false if the DB failed
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Writes one line per day, hour and parking type with vehicles leaving.
+   */
+  public void writeCsv(Writer out) throws IOException {
+    out.write("day,hour,parkingType,exits,revenue\n");
+    for (int day = 0; day < days; day++) {
+      for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+        for (ParkingType parkingType : ParkingType.values()) {
+          long hourlyExits = getExits(parkingType, day, hour);
+          if (hourlyExits > 0) {
+            out.write(firstDay.plusDays(day) + "," + hour + "," + parkingType + "," + hourlyExits
+                + "," + format(getRevenue(parkingType, day, hour)) + "\n");
+          }
+        }
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Writes the totals of each parking type and the revenue of each day.
+   */
+  public void writeJson(Writer out) throws IOException {
+    out.write("{\"firstDay\":\"" + firstDay + "\",\"days\":" + days + ",\"complete\":" + complete
+        + ",\"recurringCustomerShare\":"
+        + String.format(Locale.ROOT, "%.4f", getRecurringCustomerShare())
+        + ",\"parkingTypes\":{");
+    ParkingType[] parkingTypes = ParkingType.values();
+    for (int i = 0; i < parkingTypes.length; i++) {
+      ParkingType parkingType = parkingTypes[i];
+      out.write(((i == 0) ? "" : ",") + "\"" + parkingType + "\":{\"revenue\":"
+          + format(getTotalRevenue(parkingType)) + ",\"closedTickets\":"
+          + getClosedTickets(parkingType) + ",\"averageDwellMinutes\":"
+          + format(getAverageDwellMinutes(parkingType)) + ",\"peakOccupancy\":"
+          + getPeakOccupancy(parkingType) + ",\"peakTime\":"
+          + ((getPeakOccupancy(parkingType) == 0) ? "null"
+              : "\"" + Instant.ofEpochMilli(getPeakTimeMillis(parkingType)) + "\"")
+          + ",\"dailyRevenue\":[");
+      for (int day = 0; day < days; day++) {
+        out.write(((day == 0) ? "" : ",") + format(getDailyRevenue(parkingType, day)));
+      }
+      out.write("]}");
+    }
+    out.write("}}\n");
+    out.flush();
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.2f", value);
+  }
+}
@@ -0,0 +1,181 @@
+package com.parkit.parkingsystem.report;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ReportDAO;
+import com.parkit.parkingsystem.dao.ReportDAO.TicketRowHandler;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketBatch;
+import com.parkit.parkingsystem.util.HyperLogLog;
+
+/**
+ * Builds {@link ParkingReport}s by streaming the tickets of the whole range once.
+ *
+ * Each ticket is split across the days it touches: its revenue goes to the hour it left, its
+ * occupancy to every day it was parked. Memory depends on the number of days, never on the number
+ * of tickets.
+ *
+ */
+public class ReportEngine {
+
+  private static final long MILLIS_PER_MINUTE = 60_000;
+  private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+
+  private final ReportDAO reportDAO;
+  private final ZoneId zone;
+
+  /**
+   * @param reportDAO streams the tickets
+   * @param zone the zone the days are in
+   */
+  public ReportEngine(ReportDAO reportDAO, ZoneId zone) {
+    this.reportDAO = reportDAO;
+    this.zone = zone;
+  }
+
+  /**
+   * @param firstDay the first day of the report
+   * @param lastDay the last day of the report, included
+   * @return the report, to check with {@link ParkingReport#isComplete()}
+   */
+  public ParkingReport report(LocalDate firstDay, LocalDate lastDay) {
+    return report(null, firstDay, lastDay);
+  }
+
+  /**
+   * Builds the report from tickets already in memory, such as loaded by
+   * {@link ReportDAO#loadTickets}, scanning the columns of the batch once instead of reading the
+   * DB.
+   *
+   * @param tickets the tickets, of the vehicles parked at some time of the days of the report or
+   *        more, null to stream them from the DB
+   * @param firstDay the first day of the report
+   * @param lastDay the last day of the report, included
+   * @return the report
+   */
+  public ParkingReport report(TicketBatch tickets, LocalDate firstDay, LocalDate lastDay) {
+    int days = (int) ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+    if (days <= 0) {
+      throw new IllegalArgumentException("The last day is before the first day");
+    }
+    ParkingReport report = new ParkingReport(firstDay, days);
+    Days buckets = new Days(report, firstDay);
+    if (tickets == null) {
+      report.complete = reportDAO.streamTickets(new Timestamp(buckets.starts[0]),
+          new Timestamp(buckets.starts[days]), buckets::ticket);
+    } else {
+      scan(tickets, buckets.starts[0], buckets.starts[days], buckets::ticket);
+      report.complete = true;
+    }
+    buckets.findPeaks();
+    report.distinctVehicles = buckets.vehicles.estimate();
+    return report;
+  }
+
+  /**
+   * The buckets of the days of a report, which the tickets are split across.
+   */
+  private final class Days {
+    private final ParkingReport report;
+    /** The start of each day, in epoch millis, then the end of the last one. */
+    private final long[] starts;
+    /**
+     * Occupancy changes per day, type and minute: +1 when a vehicle is in from that minute, -1
+     * once it left.
+     */
+    private final int[][][] occupancyChanges;
+    private final HyperLogLog vehicles = new HyperLogLog();
+
+    private Days(ParkingReport report, LocalDate firstDay) {
+      this.report = report;
+      int days = report.getDays();
+      starts = new long[days + 1];
+      for (int day = 0; day <= days; day++) {
+        starts[day] = firstDay.plusDays(day).atStartOfDay(zone).toInstant().toEpochMilli();
+      }
+      occupancyChanges = new int[days][ParkingType.values().length][];
+      for (int day = 0; day < days; day++) {
+        int minutes = (int) ((starts[day + 1] - starts[day]) / MILLIS_PER_MINUTE);
+        for (int type = 0; type < ParkingType.values().length; type++) {
+          occupancyChanges[day][type] = new int[minutes + 1];
+        }
+      }
+    }
+
+    /**
+     * @return the day of the time, from 0 for the first day, -1 before it
+     */
+    private int dayOf(long timeMillis) {
+      int day = Arrays.binarySearch(starts, timeMillis);
+      return (day >= 0) ? day : -day - 2;
+    }
+
+    /**
+     * A {@link TicketRowHandler} counting the ticket in every day it touches.
+     */
+    private void ticket(int parkingNumber, ParkingType parkingType, String vehicleRegNumber,
+        double price, long inTimeMillis, long outTimeMillis) {
+      int type = parkingType.ordinal();
+      int days = report.getDays();
+      boolean closed = outTimeMillis != Ticket.NO_TIME;
+      if (closed && outTimeMillis >= starts[0] && outTimeMillis < starts[days]) {
+        int exitDay = dayOf(outTimeMillis);
+        int hour = (int) Math.min(ParkingReport.HOURS_PER_DAY - 1,
+            (outTimeMillis - starts[exitDay]) / MILLIS_PER_HOUR);
+        report.revenue[type][exitDay * ParkingReport.HOURS_PER_DAY + hour] += price;
+        report.exits[type][exitDay * ParkingReport.HOURS_PER_DAY + hour]++;
+        report.closedTickets[type]++;
+        report.dwellMillis[type] += outTimeMillis - inTimeMillis;
+        vehicles.add(vehicleRegNumber);
+      }
+      long in = Math.max(inTimeMillis, starts[0]);
+      long out = (!closed || outTimeMillis > starts[days]) ? starts[days] : outTimeMillis;
+      for (int day = dayOf(in); day < days && starts[day] < out; day++) {
+        long dayStart = starts[day];
+        long dayIn = Math.max(in, dayStart);
+        long dayOut = Math.min(out, starts[day + 1]);
+        occupancyChanges[day][type][(int) ((dayIn - dayStart) / MILLIS_PER_MINUTE)]++;
+        occupancyChanges[day][type][(int) ((dayOut - dayStart + MILLIS_PER_MINUTE - 1)
+            / MILLIS_PER_MINUTE)]--;
+      }
+    }
+
+    /**
+     * Sets the peak occupancy of each type, and the first minute it was reached.
+     */
+    private void findPeaks() {
+      for (int day = 0; day < occupancyChanges.length; day++) {
+        for (int type = 0; type < occupancyChanges[day].length; type++) {
+          int[] changes = occupancyChanges[day][type];
+          int occupancy = 0;
+          for (int minute = 0; minute < changes.length - 1; minute++) {
+            occupancy += changes[minute];
+            if (occupancy > report.peakOccupancy[type]) {
+              report.peakOccupancy[type] = occupancy;
+              report.peakTimeMillis[type] = starts[day] + minute * MILLIS_PER_MINUTE;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Passes the tickets of the batch parked at some time of the range to the handler, as
+   * {@link ReportDAO#streamTickets} does, without creating any object.
+   */
+  private static void scan(TicketBatch tickets, long from, long to, TicketRowHandler handler) {
+    for (int row = 0; row < tickets.size(); row++) {
+      long inTimeMillis = tickets.getInTimeMillis(row);
+      long outTimeMillis = tickets.getOutTimeMillis(row);
+      if (inTimeMillis < to && (outTimeMillis == Ticket.NO_TIME || outTimeMillis >= from)) {
+        handler.ticket(tickets.getParkingNumber(row), tickets.getParkingType(row),
+            tickets.getVehicleRegNumber(row), tickets.getPrice(row), inTimeMillis, outTimeMillis);
+      }
+    }
+  }
+}
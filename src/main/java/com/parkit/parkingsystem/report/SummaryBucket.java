@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.report;
+
+import java.time.LocalDate;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * The tickets of a parking type closed during an hour of a day, as counted in the ticket_summary
+ * table.
+ *
+ */
+public final class SummaryBucket {
+
+  private final LocalDate day;
+  private final int hour;
+  private final ParkingType parkingType;
+  private final long ticketCount;
+  private final double revenue;
+  private final long durationMillis;
+
+  /**
+   * @param day the day the tickets were closed
+   * @param hour the hour of the day, from 0 to 23, the tickets were closed
+   * @param parkingType the type of the spots of the tickets
+   * @param ticketCount the number of tickets
+   * @param revenue the sum of their prices
+   * @param durationMillis the sum of their stays
+   */
+  public SummaryBucket(LocalDate day, int hour, ParkingType parkingType, long ticketCount,
+      double revenue, long durationMillis) {
+    this.day = day;
+    this.hour = hour;
+    this.parkingType = parkingType;
+    this.ticketCount = ticketCount;
+    this.revenue = revenue;
+    this.durationMillis = durationMillis;
+  }
+
+  public LocalDate getDay() {
+    return day;
+  }
+
+  public int getHour() {
+    return hour;
+  }
+
+  public ParkingType getParkingType() {
+    return parkingType;
+  }
+
+  public long getTicketCount() {
+    return ticketCount;
+  }
+
+  public double getRevenue() {
+    return revenue;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  @Override
+  public String toString() {
+    return day + " " + hour + "h " + parkingType + ": " + ticketCount + " tickets, revenue "
+        + revenue + ", duration " + durationMillis + " ms";
+  }
+}
@@ -0,0 +1,337 @@
+package com.parkit.parkingsystem.report;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ReportDAO;
+import com.parkit.parkingsystem.dao.TicketSummaryDAO;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Count, revenue and total stay of the closed tickets per day, hour of exit and parking type, for
+ * dashboards.
+ *
+ * Each closed ticket is added to its bucket in memory by {@link #ticketClosed(Ticket)}, and the
+ * buckets changed since the last flush are added to the ticket_summary table periodically once
+ * {@link #start(long)} is called. The buckets of the recent days stay in memory, so reading them
+ * never queries the DB; older days are read from the table. Either way, reading a range costs one
+ * lookup per bucket, whatever the number of tickets.
+ *
+ */
+public class TicketSummaryService {
+
+  private static final Logger logger = LogManager.getLogger("TicketSummaryService");
+
+  private static final int HOURS_PER_DAY = 24;
+
+  private final TicketSummaryDAO ticketSummaryDAO;
+  private final ReportDAO reportDAO;
+  private final ZoneId zone;
+  private final int retainedDays;
+  private final ConcurrentMap<Long, Bucket> buckets = new ConcurrentHashMap<>();
+  private ScheduledExecutorService flushExecutor;
+
+  /**
+   * The totals of a bucket, and the part of them not flushed to the DB yet.
+   */
+  private static final class Bucket {
+    private final LocalDate day;
+    private final int hour;
+    private final ParkingType parkingType;
+    private long ticketCount;
+    private double revenue;
+    private long durationMillis;
+    private long pendingTicketCount;
+    private double pendingRevenue;
+    private long pendingDurationMillis;
+    private boolean evicted;
+
+    private Bucket(LocalDate day, int hour, ParkingType parkingType) {
+      this.day = day;
+      this.hour = hour;
+      this.parkingType = parkingType;
+    }
+
+    /**
+     * @return the ticket was added, false if the bucket was evicted meanwhile
+     */
+    private synchronized boolean add(long count, double price, long duration) {
+      if (evicted) {
+        return false;
+      }
+      ticketCount += count;
+      revenue += price;
+      durationMillis += duration;
+      pendingTicketCount += count;
+      pendingRevenue += price;
+      pendingDurationMillis += duration;
+      return true;
+    }
+
+    private synchronized void set(SummaryBucket stored) {
+      ticketCount = stored.getTicketCount() + pendingTicketCount;
+      revenue = stored.getRevenue() + pendingRevenue;
+      durationMillis = stored.getDurationMillis() + pendingDurationMillis;
+    }
+
+    private synchronized SummaryBucket snapshot() {
+      return new SummaryBucket(day, hour, parkingType, ticketCount, revenue, durationMillis);
+    }
+
+    /**
+     * @return the tickets added since the last call, null if none
+     */
+    private synchronized SummaryBucket takePending() {
+      if (pendingTicketCount == 0) {
+        return null;
+      }
+      SummaryBucket pending = new SummaryBucket(day, hour, parkingType, pendingTicketCount,
+          pendingRevenue, pendingDurationMillis);
+      pendingTicketCount = 0;
+      pendingRevenue = 0;
+      pendingDurationMillis = 0;
+      return pending;
+    }
+
+    private synchronized void restorePending(SummaryBucket pending) {
+      pendingTicketCount += pending.getTicketCount();
+      pendingRevenue += pending.getRevenue();
+      pendingDurationMillis += pending.getDurationMillis();
+    }
+
+    /**
+     * @return the bucket is evicted, false if it still has tickets to flush
+     */
+    private synchronized boolean evict() {
+      evicted = (pendingTicketCount == 0);
+      return evicted;
+    }
+  }
+
+  /**
+   * Loads the buckets of the recent days from the DB.
+   *
+   * @param ticketSummaryDAO the DAO of the summary table
+   * @param reportDAO streams the tickets to {@link #rebuild(LocalDate, LocalDate)}
+   * @param zone the zone the days and hours are in
+   * @param retainedDays the number of days, today included, kept in memory
+   */
+  public TicketSummaryService(TicketSummaryDAO ticketSummaryDAO, ReportDAO reportDAO, ZoneId zone,
+      int retainedDays) {
+    this.ticketSummaryDAO = ticketSummaryDAO;
+    this.reportDAO = reportDAO;
+    this.zone = zone;
+    this.retainedDays = retainedDays;
+    LocalDate today = LocalDate.now(zone);
+    load(getOldestRetainedDay(today), today);
+  }
+
+  private LocalDate getOldestRetainedDay(LocalDate today) {
+    return today.minusDays(retainedDays - 1);
+  }
+
+  private static long key(LocalDate day, int hour, ParkingType parkingType) {
+    return (day.toEpochDay() * HOURS_PER_DAY + hour) * ParkingType.values().length
+        + parkingType.ordinal();
+  }
+
+  /**
+   * Sets the totals of the buckets in memory to the ones of the DB, plus their unflushed tickets.
+   */
+  private void load(LocalDate firstDay, LocalDate lastDay) {
+    for (SummaryBucket stored : ticketSummaryDAO.getSummaries(firstDay, lastDay)) {
+      buckets.computeIfAbsent(key(stored.getDay(), stored.getHour(), stored.getParkingType()),
+          k -> new Bucket(stored.getDay(), stored.getHour(), stored.getParkingType()))
+          .set(stored);
+    }
+  }
+
+  /**
+   * Counts a ticket that has just been closed.
+   *
+   * @param ticket the ticket, holding its out time and price
+   */
+  public void ticketClosed(Ticket ticket) {
+    long outTime = ticket.getOutTimeMillis();
+    ZonedDateTime exit = Instant.ofEpochMilli(outTime).atZone(zone);
+    add(exit.toLocalDate(), exit.getHour(), ticket.getParkingSpot().getParkingType(), 1,
+        ticket.getPrice(), outTime - ticket.getInTimeMillis());
+  }
+
+  private void add(LocalDate day, int hour, ParkingType parkingType, long count, double price,
+      long duration) {
+    long key = key(day, hour, parkingType);
+    Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(day, hour, parkingType));
+    while (!bucket.add(count, price, duration)) {
+      // The bucket was evicted between the lookup and the add: count the ticket in a new one.
+      buckets.remove(key, bucket);
+      bucket = buckets.computeIfAbsent(key, k -> new Bucket(day, hour, parkingType));
+    }
+  }
+
+  /**
+   * @param firstDay the first day to read
+   * @param lastDay the last day to read, included
+   * @return the buckets of these days with closed tickets, by day, hour and parking type
+   */
+  public List<SummaryBucket> getSummaries(LocalDate firstDay, LocalDate lastDay) {
+    List<SummaryBucket> summaries = new ArrayList<>();
+    LocalDate oldestRetainedDay = getOldestRetainedDay(LocalDate.now(zone));
+    if (firstDay.isBefore(oldestRetainedDay)) {
+      LocalDate lastStoredDay = lastDay.isBefore(oldestRetainedDay) ? lastDay
+          : oldestRetainedDay.minusDays(1);
+      summaries.addAll(ticketSummaryDAO.getSummaries(firstDay, lastStoredDay));
+    }
+    LocalDate day = firstDay.isBefore(oldestRetainedDay) ? oldestRetainedDay : firstDay;
+    for (; !day.isAfter(lastDay); day = day.plusDays(1)) {
+      for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+        for (ParkingType parkingType : ParkingType.values()) {
+          Bucket bucket = buckets.get(key(day, hour, parkingType));
+          SummaryBucket summary = (bucket == null) ? null : bucket.snapshot();
+          if (summary != null && summary.getTicketCount() > 0) {
+            summaries.add(summary);
+          }
+        }
+      }
+    }
+    return summaries;
+  }
+
+  /**
+   * Adds the tickets closed since the last flush to the DB, then drops the buckets of the days no
+   * longer retained.
+   *
+   * @return the tickets were flushed, false if the DB failed and they will be on the next flush
+   */
+  public synchronized boolean flush() {
+    List<SummaryBucket> pending = new ArrayList<>();
+    List<Bucket> pendingBuckets = new ArrayList<>();
+    for (Bucket bucket : buckets.values()) {
+      SummaryBucket tickets = bucket.takePending();
+      if (tickets != null) {
+        pending.add(tickets);
+        pendingBuckets.add(bucket);
+      }
+    }
+    boolean flushed = pending.isEmpty() || ticketSummaryDAO.addSummaries(pending);
+    if (!flushed) {
+      for (int i = 0; i < pending.size(); i++) {
+        pendingBuckets.get(i).restorePending(pending.get(i));
+      }
+      return false;
+    }
+    LocalDate oldestRetainedDay = getOldestRetainedDay(LocalDate.now(zone));
+    Iterator<Bucket> iterator = buckets.values().iterator();
+    while (iterator.hasNext()) {
+      Bucket bucket = iterator.next();
+      if (bucket.day.isBefore(oldestRetainedDay) && bucket.evict()) {
+        iterator.remove();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Recomputes the buckets of a range of days from the tickets, for days loaded without going
+   * through {@link #ticketClosed(Ticket)}, such as imported ones. Tickets closed while it runs may
+   * be counted twice, so run it while the gates are idle.
+   *
+   * @param firstDay the first day to recompute
+   * @param lastDay the last day to recompute, included
+   * @return the buckets were recomputed, false if an error occurred and they are unchanged
+   */
+  public synchronized boolean rebuild(LocalDate firstDay, LocalDate lastDay) {
+    if (!flush()) {
+      return false;
+    }
+    long from = firstDay.atStartOfDay(zone).toInstant().toEpochMilli();
+    long to = lastDay.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    Map<Long, double[]> totals = new TreeMap<>();
+    boolean streamed = reportDAO.streamTickets(new Timestamp(from), new Timestamp(to),
+        (parkingNumber, parkingType, vehicleRegNumber, price, inTimeMillis, outTimeMillis) -> {
+          if (outTimeMillis >= from && outTimeMillis < to) {
+            ZonedDateTime exit = Instant.ofEpochMilli(outTimeMillis).atZone(zone);
+            double[] total = totals.computeIfAbsent(
+                key(exit.toLocalDate(), exit.getHour(), parkingType), k -> new double[3]);
+            total[0]++;
+            total[1] += price;
+            total[2] += outTimeMillis - inTimeMillis;
+          }
+        });
+    if (!streamed) {
+      return false;
+    }
+    List<SummaryBucket> rebuilt = new ArrayList<>(totals.size());
+    int types = ParkingType.values().length;
+    for (Map.Entry<Long, double[]> entry : totals.entrySet()) {
+      long hours = entry.getKey() / types;
+      double[] total = entry.getValue();
+      rebuilt.add(new SummaryBucket(LocalDate.ofEpochDay(hours / HOURS_PER_DAY),
+          (int) (hours % HOURS_PER_DAY), ParkingType.values()[(int) (entry.getKey() % types)],
+          (long) total[0], total[1], (long) total[2]));
+    }
+    if (!ticketSummaryDAO.replaceSummaries(firstDay, lastDay, rebuilt)) {
+      return false;
+    }
+    LocalDate today = LocalDate.now(zone);
+    LocalDate oldestRetainedDay = getOldestRetainedDay(today);
+    for (Bucket bucket : buckets.values()) {
+      if (!bucket.day.isBefore(firstDay) && !bucket.day.isAfter(lastDay)) {
+        bucket.set(new SummaryBucket(bucket.day, bucket.hour, bucket.parkingType, 0, 0, 0));
+      }
+    }
+    load(firstDay.isBefore(oldestRetainedDay) ? oldestRetainedDay : firstDay,
+        lastDay.isAfter(today) ? today : lastDay);
+    logger.info("Rebuilt {} ticket summaries from {} to {}", rebuilt.size(), firstDay, lastDay);
+    return true;
+  }
+
+  /**
+   * Flushes the closed tickets to the DB periodically, from a background thread.
+   *
+   * @param periodSeconds the delay between two flushes
+   */
+  public synchronized void start(long periodSeconds) {
+    stop();
+    flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ticket-summary-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flushExecutor.scheduleWithFixedDelay(() -> {
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        logger.error("Error flushing the ticket summaries", e);
+      }
+    }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops the periodic flush, if started, and flushes the tickets closed since the last one.
+   */
+  public void stop() {
+    synchronized (this) {
+      if (flushExecutor != null) {
+        flushExecutor.shutdownNow();
+        flushExecutor = null;
+      }
+    }
+    flush();
+  }
+}
@@ -1,63 +1,194 @@
 package com.parkit.parkingsystem.service;
 
-import org.joda.time.DateTime;
+import java.util.stream.Stream;
 import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketBatch;
 
+/**
+ * Prices parking durations with the tariffs of a {@link TariffEngine}. Works on epoch millis and
+ * primitives only, so that pricing a ticket allocates nothing and millions of tickets can be
+ * priced for reports without GC pressure.
+ *
+ */
 public class FareCalculatorService {
 
+  private static final double RECURRING_USER_DISCOUNT = 0.05;
+
+  private final TariffEngine tariffEngine;
+
+  /**
+   * Charges the {@link Fare} rates, the first 30 minutes being free.
+   */
+  public FareCalculatorService() {
+    this(new TariffEngine());
+  }
+
+  /**
+   * @param tariffEngine the tariffs to charge, which may be reloaded while pricing
+   */
+  public FareCalculatorService(TariffEngine tariffEngine) {
+    this.tariffEngine = tariffEngine;
+  }
+
   /**
    * The fare is calculated with the duration of the parking
-   * 
+   *
    * If the parking time is less that 30 minutes, the fare is free. Otherwise, the price will depend
    * on the parking type (Car or Bike)
-   * 
+   *
    * @param ticket The ticket's properties are read so that its price property is modified
    */
   public void calculateFare(Ticket ticket) {
-    if ((ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime()))) {
-      throw new IllegalArgumentException(
-          "Out time provided is incorrect:" + ticket.getOutTime().toString());
-    }
-
-    /*
-     * The logic to calculate the difference between two dates has been modified and this part of
-     * the code now uses new methods.
-     * 
-     * DateTime is used instead of integer variables to calculate the difference between the IN and
-     * OUT time. The difference is precisely calculated in minutes instead of hours. It then
-     * converts the difference in hours to calculate the Fare. DateTime is not deprecated while the
-     * methods used before were.
-     */
-    DateTime dateTimeIn = new DateTime(ticket.getInTime());
-    DateTime dateTimeOut = new DateTime(ticket.getOutTime());
-    double diffInMinutes = dateTimeOut.getMinuteOfDay() - dateTimeIn.getMinuteOfDay();
-    double diffInHours = (dateTimeOut.getDayOfYear() - dateTimeIn.getDayOfYear()) * 24;
-    double duration = diffInHours + (diffInMinutes / 60);
-
-    // Less that 30' of parking is free, hurray!
-    if (duration < 0.5) {
-      ticket.setPrice(0.0);
-    } else {
-
-      switch (ticket.getParkingSpot().getParkingType()) {
-        case CAR: {
-          ticket.setPrice(duration * Fare.CAR_RATE_PER_HOUR);
-          break;
-        }
-        case BIKE: {
-          ticket.setPrice(duration * Fare.BIKE_RATE_PER_HOUR);
-          break;
-        }
-        default:
-          throw new IllegalArgumentException("Unkown Parking Type");
+    long inTimeMillis = ticket.getInTimeMillis();
+    long outTimeMillis = ticket.getOutTimeMillis();
+    if (!ticket.hasInTime()) {
+      throw new IllegalArgumentException("In time provided is incorrect:" + ticket.getInTime());
+    }
+    if (!ticket.hasOutTime() || outTimeMillis < inTimeMillis) {
+      throw new IllegalArgumentException("Out time provided is incorrect:" + ticket.getOutTime());
+    }
+    ParkingSpot parkingSpot = ticket.getParkingSpot();
+    ticket.setPrice(calculateFare(parkingSpot.getSite(), parkingSpot.getParkingType(),
+        inTimeMillis, outTimeMillis));
+  }
+
+  /**
+   * The duration is counted in whole elapsed minutes, so it is right across midnight and year
+   * boundaries.
+   *
+   * @param parkingType the type of the parking spot
+   * @param inTimeMillis the entry time, in epoch millis
+   * @param outTimeMillis the exit time, in epoch millis, not before the entry time
+   * @return the price of the parking, before any discount
+   */
+  public double calculateFare(ParkingType parkingType, long inTimeMillis, long outTimeMillis) {
+    return calculateFare(TariffEngine.DEFAULT_SITE, parkingType, inTimeMillis, outTimeMillis);
+  }
+
+  /**
+   * Prices the stay with the tariff of the given site, as
+   * {@link #calculateFare(ParkingType, long, long)} does.
+   *
+   * @param site the site of the parking spot
+   * @param parkingType the type of the parking spot
+   * @param inTimeMillis the entry time, in epoch millis
+   * @param outTimeMillis the exit time, in epoch millis, not before the entry time
+   * @return the price of the parking, before any discount
+   */
+  public double calculateFare(String site, ParkingType parkingType, long inTimeMillis,
+      long outTimeMillis) {
+    return price(tariffEngine.getTable(site, parkingType), inTimeMillis, outTimeMillis, false);
+  }
+
+  /**
+   * Prices every ticket, as {@link #calculateFare(Ticket)} does.
+   *
+   * @param tickets the closed tickets whose price is set
+   */
+  public void calculateFares(Ticket[] tickets) {
+    for (Ticket ticket : tickets) {
+      calculateFare(ticket);
+    }
+  }
+
+  /**
+   * Prices every ticket of the stream, as {@link #calculateFare(Ticket)} does.
+   *
+   * @param tickets the closed tickets whose price is set
+   * @return the total of the prices
+   */
+  public double calculateFares(Stream<Ticket> tickets) {
+    return tickets.mapToDouble(ticket -> {
+      calculateFare(ticket);
+      return ticket.getPrice();
+    }).sum();
+  }
+
+  /**
+   * Prices tickets held column by column, without creating any object.
+   *
+   * @param parkingTypes the type of the spot of each ticket
+   * @param inTimesMillis the entry time of each ticket, in epoch millis
+   * @param outTimesMillis the exit time of each ticket, in epoch millis
+   * @param recurringUsers whether each ticket gets the recurring user discount, or null for none
+   * @param prices receives the price of each ticket
+   */
+  public void calculateFares(ParkingType[] parkingTypes, long[] inTimesMillis,
+      long[] outTimesMillis, boolean[] recurringUsers, double[] prices) {
+    TariffTable[] tables = getTables(TariffEngine.DEFAULT_SITE);
+    for (int i = 0; i < parkingTypes.length; i++) {
+      prices[i] = price(tables[parkingTypes[i].ordinal()], inTimesMillis[i], outTimesMillis[i],
+          recurringUsers != null && recurringUsers[i]);
+    }
+  }
+
+  /**
+   * Prices the closed tickets of a batch in place, as {@link #calculateFare(Ticket)} does, with
+   * the tariff of the site of the batch. Open tickets keep their price.
+   *
+   * @param tickets the tickets whose price is set
+   * @param recurringVehicles whether each vehicle, by its code in the batch, gets the recurring
+   *        user discount, or null for none
+   * @return the total of the prices of the closed tickets
+   */
+  public double calculateFares(TicketBatch tickets, boolean[] recurringVehicles) {
+    TariffTable[] tables = getTables(tickets.getSite());
+    double total = 0;
+    for (int row = 0; row < tickets.size(); row++) {
+      if (!tickets.hasOutTime(row)) {
+        continue;
       }
+      double price = price(tables[tickets.getParkingType(row).ordinal()],
+          tickets.getInTimeMillis(row), tickets.getOutTimeMillis(row),
+          recurringVehicles != null && recurringVehicles[tickets.getVehicleCode(row)]);
+      tickets.setPrice(row, price);
+      total += price;
+    }
+    return total;
+  }
+
+  /**
+   * @return the tariff of the site for each parking type, by ordinal
+   */
+  private TariffTable[] getTables(String site) {
+    ParkingType[] parkingTypes = ParkingType.values();
+    TariffTable[] tables = new TariffTable[parkingTypes.length];
+    for (ParkingType parkingType : parkingTypes) {
+      tables[parkingType.ordinal()] = tariffEngine.getTable(site, parkingType);
     }
+    return tables;
+  }
+
+  /**
+   * Prices one stay: every fare calculation, of a ticket or of columns, ends up here.
+   *
+   * @throws IllegalArgumentException if the in time is not set or the out time is before it
+   */
+  private double price(TariffTable table, long inTimeMillis, long outTimeMillis,
+      boolean recurringUser) {
+    if (inTimeMillis == Ticket.NO_TIME) {
+      throw new IllegalArgumentException("In time provided is incorrect: none");
+    }
+    if (outTimeMillis < inTimeMillis) {
+      throw new IllegalArgumentException("Out time provided is incorrect:" + outTimeMillis);
+    }
+    double price = table.price(inTimeMillis, outTimeMillis);
+    return recurringUser ? discount(price) : price;
   }
 
   public void applyDiscount(Ticket ticket) {
-    double priceBeforeDiscount = ticket.getPrice();
-    double priceAfterDiscount = priceBeforeDiscount - (0.05 * priceBeforeDiscount);
-    ticket.setPrice(priceAfterDiscount);
+    ticket.setPrice(discount(ticket.getPrice()));
+    ticket.setDiscounted(true);
+  }
+
+  /**
+   * @param price the full price
+   * @return the price for a recurring user
+   */
+  public double discount(double price) {
+    return price - (RECURRING_USER_DISCOUNT * price);
   }
 }
@@ -0,0 +1,186 @@
+package com.parkit.parkingsystem.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Serves many gates from one process, over a line-based protocol on a local TCP socket.
+ *
+ * Each request is one line and gets one response line:
+ * <ul>
+ * <li>{@code ENTER CAR|BIKE <registration>} answers {@code OK <spot number> <in time millis>}</li>
+ * <li>{@code EXIT <registration>} answers {@code OK <price> <out time millis>}</li>
+ * <li>{@code QUIT} closes the connection</li>
+ * </ul>
+ * Failures answer {@code ERROR <message>}. Connections are handled by a bounded pool of threads,
+ * all using the same {@link ParkingService}.
+ *
+ */
+public class GateServer {
+
+  private static final Logger logger = LogManager.getLogger("GateServer");
+
+  private final ParkingService parkingService;
+  private final int port;
+  private final ThreadPoolExecutor executor;
+  private ServerSocket serverSocket;
+  private Thread acceptor;
+  private volatile boolean running;
+
+  /**
+   * @param parkingService the parking service shared by every gate
+   * @param port the local port to listen on, 0 for any free port
+   * @param maxGates the maximum number of gates served at the same time
+   */
+  public GateServer(ParkingService parkingService, int port, int maxGates) {
+    this.parkingService = parkingService;
+    this.port = port;
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(maxGates, maxGates, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(maxGates), runnable -> {
+          Thread thread = new Thread(runnable, "gate-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Starts listening on the loopback interface.
+   *
+   * @throws IOException if the port cannot be bound
+   */
+  public synchronized void start() throws IOException {
+    serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    running = true;
+    acceptor = new Thread(this::acceptGates, "gate-server");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    logger.info("Gate server listening on port {}", serverSocket.getLocalPort());
+  }
+
+  /**
+   * @return the port the server listens on
+   */
+  public int getLocalPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Stops accepting gates and waits for the requests in progress to finish.
+   */
+  public synchronized void stop() {
+    running = false;
+    try {
+      if (serverSocket != null) {
+        serverSocket.close();
+      }
+    } catch (IOException e) {
+      logger.error("Error while closing gate server socket", e);
+    }
+    executor.shutdown();
+    try {
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void acceptGates() {
+    while (running) {
+      try {
+        Socket socket = serverSocket.accept();
+        try {
+          executor.execute(() -> serveGate(socket));
+        } catch (RejectedExecutionException e) {
+          reply(socket, "ERROR Too many gates connected");
+        }
+      } catch (SocketException e) {
+        // The server socket has been closed by stop().
+      } catch (IOException e) {
+        logger.error("Error accepting a gate connection", e);
+      }
+    }
+  }
+
+  private void serveGate(Socket socket) {
+    try (Socket gate = socket;
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(gate.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(gate.getOutputStream(), StandardCharsets.UTF_8), true)) {
+      String request;
+      while ((request = in.readLine()) != null) {
+        if ("QUIT".equalsIgnoreCase(request.trim())) {
+          break;
+        }
+        out.println(handleRequest(request));
+      }
+    } catch (IOException e) {
+      logger.error("Error serving a gate", e);
+    }
+  }
+
+  private static void reply(Socket socket, String response) {
+    try (Socket gate = socket;
+        PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(gate.getOutputStream(), StandardCharsets.UTF_8), true)) {
+      out.println(response);
+    } catch (IOException e) {
+      logger.error("Error replying to a gate", e);
+    }
+  }
+
+  /**
+   * @param request one request line
+   * @return the response line
+   */
+  public String handleRequest(String request) {
+    String[] words = request.trim().split("\\s+");
+    try {
+      switch (words[0].toUpperCase(Locale.ROOT)) {
+        case "ENTER": {
+          if (words.length != 3) {
+            return "ERROR Usage: ENTER CAR|BIKE <registration>";
+          }
+          ParkingType parkingType = ParkingType.valueOf(words[1].toUpperCase(Locale.ROOT));
+          Ticket ticket = parkingService.processIncomingVehicle(parkingType, words[2]);
+          return "OK " + ticket.getParkingSpot().getId() + " " + ticket.getInTimeMillis();
+        }
+        case "EXIT": {
+          if (words.length != 2) {
+            return "ERROR Usage: EXIT <registration>";
+          }
+          Ticket ticket = parkingService.processExitingVehicle(words[1]);
+          if (ticket == null) {
+            return "ERROR Unable to update ticket information";
+          }
+          return "OK " + ticket.getPrice() + " " + ticket.getOutTimeMillis();
+        }
+        default:
+          return "ERROR Unknown request: " + words[0];
+      }
+    } catch (Exception e) {
+      logger.error("Unable to process gate request {}", request, e);
+      return "ERROR " + e.getMessage();
+    }
+  }
+}
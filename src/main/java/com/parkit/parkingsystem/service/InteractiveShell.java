@@ -2,8 +2,6 @@ package com.parkit.parkingsystem.service;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 
 /**
@@ -18,14 +16,25 @@ public class InteractiveShell {
    * 3 choices : a vehicle enters/exits the parking or the user exits the app.
    */
   public static void loadInterface() {
+    InputReaderUtil inputReaderUtil = new InputReaderUtil();
+    ParkingSystemContext context = new ParkingSystemContext(inputReaderUtil);
+    loadInterface(inputReaderUtil, context.getParkingService());
+    context.close();
+  }
+
+  /**
+   * Runs the shell as one gate of a parking service that other gates may be using at the same
+   * time.
+   *
+   * @param inputReaderUtil the input the parking service reads from
+   * @param parkingService the parking service, shared with the other gates
+   */
+  public static void loadInterface(InputReaderUtil inputReaderUtil,
+      ParkingService parkingService) {
     logger.info("App initialized!!!");
     System.out.println("Welcome to Parking System!");
 
     boolean continueApp = true;
-    InputReaderUtil inputReaderUtil = new InputReaderUtil();
-    ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-    TicketDAO ticketDAO = new TicketDAO();
-    ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
 
     while (continueApp) {
       loadMenu();
@@ -0,0 +1,149 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+
+/**
+ * Drives vehicles in and out of a {@link ParkingService} at a fixed rate, from several gates at
+ * once, to measure how far the service scales. Used with the in-memory DAOs, only the service
+ * logic is measured.
+ *
+ * Each gate is a thread letting in a vehicle every {@code gates / vehiclesPerSecond} seconds.
+ * Once it has parked its share of vehicles, it lets the oldest one out before each entry, so the
+ * occupancy stays steady. One vehicle in five is a bike. The registration numbers are reused, so
+ * the vehicles soon become recurrent users. The arrivals are scheduled ahead of time and do not
+ * wait for the previous vehicle: a slow gate event delays the next ones, and the latencies show
+ * it.
+ *
+ */
+public class LoadGenerator {
+
+  private static final Logger logger = LogManager.getLogger("LoadGenerator");
+
+  private static final int BIKE_EVERY = 5;
+  private static final int REGISTRATIONS_PER_PARKED_VEHICLE = 4;
+
+  private final ParkingService parkingService;
+  private final int gates;
+  private final int parkedVehiclesPerGate;
+
+  /**
+   * @param parkingService the service under load
+   * @param gates the number of gates, each one a thread
+   * @param parkedVehiclesPerGate the number of vehicles each gate keeps parked. The parking needs
+   *        room for all of them.
+   */
+  public LoadGenerator(ParkingService parkingService, int gates, int parkedVehiclesPerGate) {
+    this.parkingService = parkingService;
+    this.gates = gates;
+    this.parkedVehiclesPerGate = parkedVehiclesPerGate;
+  }
+
+  /**
+   * Runs the load, then lets out the vehicles still parked.
+   *
+   * @param vehiclesPerSecond the number of vehicles entering per second, across all gates
+   * @param durationMillis how long to run
+   * @return what the gates achieved
+   * @throws InterruptedException if interrupted while waiting for the gates
+   */
+  public LoadReport run(int vehiclesPerSecond, long durationMillis) throws InterruptedException {
+    LongAdder entries = new LongAdder();
+    LongAdder exits = new LongAdder();
+    LongAdder failures = new LongAdder();
+    LatencyHistogram entryLatency = new LatencyHistogram();
+    LatencyHistogram exitLatency = new LatencyHistogram();
+    long intervalNanos = TimeUnit.SECONDS.toNanos(gates) / vehiclesPerSecond;
+    ExecutorService executor = Executors.newFixedThreadPool(gates, runnable -> {
+      Thread thread = new Thread(runnable, "load-gate");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long start = System.nanoTime();
+    long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+    List<Future<Long>> gateRuns = new ArrayList<>();
+    for (int gate = 0; gate < gates; gate++) {
+      // The gates are staggered so that the arrivals are evenly spread.
+      long firstArrival = start + intervalNanos * gate / gates;
+      String prefix = "LOAD-" + gate + "-";
+      gateRuns.add(executor.submit(() -> {
+        ArrayDeque<String> parked = new ArrayDeque<>(parkedVehiclesPerGate);
+        int registrations = parkedVehiclesPerGate * REGISTRATIONS_PER_PARKED_VEHICLE;
+        for (long vehicle = 0;; vehicle++) {
+          long due = firstArrival + vehicle * intervalNanos;
+          if (due >= end || Thread.currentThread().isInterrupted()) {
+            break;
+          }
+          for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+            LockSupport.parkNanos(wait);
+          }
+          if (parked.size() >= parkedVehiclesPerGate) {
+            if (exit(parked.poll())) {
+              exits.increment();
+            } else {
+              failures.increment();
+            }
+            exitLatency.record(System.nanoTime() - due);
+          }
+          String vehicleRegNumber = prefix + (vehicle % registrations);
+          ParkingType parkingType =
+              (vehicle % BIKE_EVERY == BIKE_EVERY - 1) ? ParkingType.BIKE : ParkingType.CAR;
+          if (enter(parkingType, vehicleRegNumber)) {
+            entries.increment();
+            parked.add(vehicleRegNumber);
+          } else {
+            failures.increment();
+          }
+          entryLatency.record(System.nanoTime() - due);
+        }
+        long elapsed = System.nanoTime();
+        for (String vehicleRegNumber : parked) {
+          exit(vehicleRegNumber);
+        }
+        return elapsed;
+      }));
+    }
+    long elapsedNanos = 0;
+    try {
+      for (Future<Long> gateRun : gateRuns) {
+        elapsedNanos = Math.max(elapsedNanos, gateRun.get() - start);
+      }
+    } catch (ExecutionException e) {
+      logger.error("A gate stopped unexpectedly", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return new LoadReport(vehiclesPerSecond, entries.sum(), exits.sum(), failures.sum(),
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), entryLatency, exitLatency);
+  }
+
+  private boolean enter(ParkingType parkingType, String vehicleRegNumber) {
+    try {
+      return parkingService.processIncomingVehicle(parkingType, vehicleRegNumber) != null;
+    } catch (Exception e) {
+      logger.debug("Unable to let {} in", vehicleRegNumber, e);
+      return false;
+    }
+  }
+
+  private boolean exit(String vehicleRegNumber) {
+    try {
+      return parkingService.processExitingVehicle(vehicleRegNumber) != null;
+    } catch (Exception e) {
+      logger.debug("Unable to let {} out", vehicleRegNumber, e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.concurrent.TimeUnit;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+
+/**
+ * Outcome of a {@link LoadGenerator} run. Latencies are in nanoseconds, from the time the vehicle
+ * was due at the gate, so that they include the wait behind slower vehicles.
+ *
+ */
+public class LoadReport {
+  private final int targetVehiclesPerSecond;
+  private final long entryCount;
+  private final long exitCount;
+  private final long failureCount;
+  private final long elapsedMillis;
+  private final LatencyHistogram entryLatency;
+  private final LatencyHistogram exitLatency;
+
+  public LoadReport(int targetVehiclesPerSecond, long entryCount, long exitCount,
+      long failureCount, long elapsedMillis, LatencyHistogram entryLatency,
+      LatencyHistogram exitLatency) {
+    this.targetVehiclesPerSecond = targetVehiclesPerSecond;
+    this.entryCount = entryCount;
+    this.exitCount = exitCount;
+    this.failureCount = failureCount;
+    this.elapsedMillis = elapsedMillis;
+    this.entryLatency = entryLatency;
+    this.exitLatency = exitLatency;
+  }
+
+  public int getTargetVehiclesPerSecond() {
+    return targetVehiclesPerSecond;
+  }
+
+  /**
+   * @return the number of vehicles let in
+   */
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * @return the number of vehicles let out during the run, not counting the final drain
+   */
+  public long getExitCount() {
+    return exitCount;
+  }
+
+  /**
+   * @return the number of entries and exits that threw or returned no ticket
+   */
+  public long getFailureCount() {
+    return failureCount;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public double getVehiclesPerSecond() {
+    return (elapsedMillis == 0) ? 0 : entryCount * 1000.0 / elapsedMillis;
+  }
+
+  public LatencyHistogram getEntryLatency() {
+    return entryLatency;
+  }
+
+  public LatencyHistogram getExitLatency() {
+    return exitLatency;
+  }
+
+  private static String describe(LatencyHistogram latency) {
+    return "p50 " + TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(50)) + " us, p99 "
+        + TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(99)) + " us, max "
+        + TimeUnit.NANOSECONDS.toMicros(latency.getMax()) + " us";
+  }
+
+  @Override
+  public String toString() {
+    return "Load of " + targetVehiclesPerSecond + " vehicles/s: " + entryCount + " entries and "
+        + exitCount + " exits in " + elapsedMillis + " ms (" + Math.round(getVehiclesPerSecond())
+        + " vehicles/s), " + failureCount + " failed; entry " + describe(entryLatency)
+        + "; exit " + describe(exitLatency);
+  }
+}
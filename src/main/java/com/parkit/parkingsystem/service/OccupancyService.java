@@ -0,0 +1,230 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Live count of the free and occupied spots of each parking type, for the entrance displays.
+ *
+ * The counters are updated by {@link ParkingSpotDAO} on every spot taken or freed, so reading them
+ * never queries the DB, takes no lock and allocates nothing. Spots changed directly in the DB are
+ * caught up by {@link #reconcile()}, run periodically once {@link #start(long)} is called.
+ *
+ * A reconciliation replaces the counts with a snapshot of the DB, which is only right if no gate
+ * changed a spot while it was read: the changes are numbered, the snapshot is retaken when the
+ * number moved, and the counts are replaced under a lock that holds the gates' changes back.
+ * A spot changed in the DB just before the snapshot but counted just after it is counted twice
+ * until the next reconciliation.
+ *
+ */
+public class OccupancyService {
+
+  private static final Logger logger = LogManager.getLogger("OccupancyService");
+
+  /**
+   * Told of the new counts of a parking type whenever they change.
+   */
+  public interface OccupancyListener {
+
+    /**
+     * Called from the thread of the gate, or of the reconciliation, that changed the counts: it
+     * must return quickly.
+     *
+     * @param parkingType the parking type whose counts changed
+     * @param freeSpots the number of free spots of that type
+     * @param occupiedSpots the number of occupied spots of that type
+     */
+    void occupancyChanged(ParkingType parkingType, long freeSpots, long occupiedSpots);
+  }
+
+  /**
+   * Snapshots of the DB taken by a reconciliation before giving up while gates keep changing spots.
+   */
+  private static final int RECONCILE_ATTEMPTS = 3;
+
+  private final ParkingSpotDAO parkingSpotDAO;
+  private final LongAdder[] freeSpots = newCounters();
+  private final LongAdder[] occupiedSpots = newCounters();
+  private final LongAdder spotChanges = new LongAdder();
+  private final ReadWriteLock countsLock = new ReentrantReadWriteLock();
+  private final List<OccupancyListener> listeners = new CopyOnWriteArrayList<>();
+  private ScheduledExecutorService reconcileExecutor;
+
+  /**
+   * Loads the counts from the DB and follows the spot changes made through the DAO.
+   *
+   * @param parkingSpotDAO the DAO the gates take and free spots through
+   */
+  public OccupancyService(ParkingSpotDAO parkingSpotDAO) {
+    this.parkingSpotDAO = parkingSpotDAO;
+    // Followed before the first snapshot, so that no change made while it is read is lost.
+    parkingSpotDAO.setSpotChangeListener(this::spotChanged);
+    reconcile();
+  }
+
+  private static LongAdder[] newCounters() {
+    LongAdder[] counters = new LongAdder[ParkingType.values().length];
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = new LongAdder();
+    }
+    return counters;
+  }
+
+  /**
+   * @param parkingType the parking type
+   * @return the number of free spots of that type
+   */
+  public long getFreeSpots(ParkingType parkingType) {
+    return freeSpots[parkingType.ordinal()].sum();
+  }
+
+  /**
+   * @param parkingType the parking type
+   * @return the number of occupied spots of that type
+   */
+  public long getOccupiedSpots(ParkingType parkingType) {
+    return occupiedSpots[parkingType.ordinal()].sum();
+  }
+
+  /**
+   * @param listener told of every change of the counts, until unsubscribed
+   */
+  public void subscribe(OccupancyListener listener) {
+    listeners.add(listener);
+  }
+
+  public void unsubscribe(OccupancyListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Counts a spot that has just been taken or freed in the DB.
+   *
+   * @param parkingSpot the spot, holding its new availability
+   */
+  void spotChanged(ParkingSpot parkingSpot) {
+    int type = parkingSpot.getParkingType().ordinal();
+    long delta = parkingSpot.isAvailable() ? 1 : -1;
+    countsLock.readLock().lock();
+    try {
+      freeSpots[type].add(delta);
+      occupiedSpots[type].add(-delta);
+      spotChanges.increment();
+    } finally {
+      countsLock.readLock().unlock();
+    }
+    notifyListeners(parkingSpot.getParkingType());
+  }
+
+  /**
+   * Corrects the counters with the content of the parking table.
+   *
+   * @return the counters were read from the DB and corrected
+   */
+  public boolean reconcile() {
+    for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+      long changesBefore = spotChanges.sum();
+      List<ParkingSpot> parkingSpots = parkingSpotDAO.getParkingSpots();
+      if (parkingSpots.isEmpty()) {
+        return false;
+      }
+      long[] free = new long[freeSpots.length];
+      long[] occupied = new long[occupiedSpots.length];
+      for (ParkingSpot parkingSpot : parkingSpots) {
+        if (parkingSpot.isAvailable()) {
+          free[parkingSpot.getParkingType().ordinal()]++;
+        } else {
+          occupied[parkingSpot.getParkingType().ordinal()]++;
+        }
+      }
+      boolean[] changed = new boolean[freeSpots.length];
+      countsLock.writeLock().lock();
+      try {
+        if (spotChanges.sum() != changesBefore) {
+          // A gate changed a spot while the table was read: the snapshot may or may not hold it.
+          continue;
+        }
+        for (int type = 0; type < changed.length; type++) {
+          changed[type] = reset(freeSpots[type], free[type])
+              | reset(occupiedSpots[type], occupied[type]);
+        }
+      } finally {
+        countsLock.writeLock().unlock();
+      }
+      for (ParkingType parkingType : ParkingType.values()) {
+        if (changed[parkingType.ordinal()]) {
+          notifyListeners(parkingType);
+        }
+      }
+      return true;
+    }
+    logger.warn("Occupancy counters not reconciled: spots kept changing while they were read");
+    return false;
+  }
+
+  private static boolean reset(LongAdder counter, long count) {
+    if (counter.sum() == count) {
+      return false;
+    }
+    counter.reset();
+    counter.add(count);
+    return true;
+  }
+
+  private void notifyListeners(ParkingType parkingType) {
+    if (listeners.isEmpty()) {
+      return;
+    }
+    long free = getFreeSpots(parkingType);
+    long occupied = getOccupiedSpots(parkingType);
+    for (OccupancyListener listener : listeners) {
+      try {
+        listener.occupancyChanged(parkingType, free, occupied);
+      } catch (RuntimeException e) {
+        logger.error("Error notifying an occupancy listener", e);
+      }
+    }
+  }
+
+  /**
+   * Reconciles the counters with the DB periodically, from a background thread.
+   *
+   * @param periodSeconds the delay between two reconciliations
+   */
+  public synchronized void start(long periodSeconds) {
+    stop();
+    reconcileExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "occupancy-reconcile");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reconcileExecutor.scheduleWithFixedDelay(() -> {
+      try {
+        reconcile();
+      } catch (RuntimeException e) {
+        logger.error("Error reconciling the occupancy counters", e);
+      }
+    }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops the periodic reconciliation, if started.
+   */
+  public synchronized void stop() {
+    if (reconcileExecutor != null) {
+      reconcileExecutor.shutdownNow();
+      reconcileExecutor = null;
+    }
+  }
+}
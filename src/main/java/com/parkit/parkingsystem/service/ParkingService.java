@@ -2,24 +2,35 @@ package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.RecurringUserDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.Phase;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private volatile FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private  TicketDAO ticketDAO;
+    private volatile RecurringUserDAO recurringUserDAO;
+
+    /**
+     * Registration numbers of the vehicles a gate is currently processing, so that two gates cannot
+     * let the same vehicle in or out at the same time.
+     */
+    private final ConcurrentMap<String, Boolean> vehiclesInProgress = new ConcurrentHashMap<>();
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
         this.inputReaderUtil = inputReaderUtil;
@@ -27,33 +38,105 @@ public class ParkingService {
         this.ticketDAO = ticketDAO;
     }
 
+    /**
+     * @param fareCalculatorService prices the exiting vehicles, with the Fare rates by default
+     */
+    public void setFareCalculatorService(FareCalculatorService fareCalculatorService) {
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    /**
+     * @param recurringUserDAO used to decide the recurring user discount, instead of querying the ticket table
+     */
+    public void setRecurringUserDAO(RecurringUserDAO recurringUserDAO) {
+        this.recurringUserDAO = recurringUserDAO;
+    }
+
+    private boolean isRecurrentUser(String vehicleRegNumber) {
+        if (recurringUserDAO != null) {
+            return recurringUserDAO.isRecurrentUser(vehicleRegNumber);
+        }
+        return parkingSpotDAO.recurrentUser(vehicleRegNumber);
+    }
+
     public void processIncomingVehicle() {
         try{
             ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
             if(parkingSpot !=null && parkingSpot.getId() > 0){
                 String vehicleRegNumber = getVehichleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
+                Ticket ticket = processIncomingVehicle(parkingSpot.getParkingType(), vehicleRegNumber);
                 System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+                System.out.println("Please park your vehicle in spot number:"+ticket.getParkingSpot().getId());
+                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+ticket.getInTime());
             }
         }catch(Exception e){
             logger.error("Unable to process incoming vehicle",e);
         }
     }
 
+    /**
+     * Allocates a spot and saves the ticket of an entering vehicle. Safe to call from several gates at once.
+     *
+     * @param parkingType the type of the vehicle
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the saved ticket, holding the allocated spot
+     * @throws Exception if the parking is full, the vehicle is already parked or entering, or the ticket cannot be saved
+     */
+    public Ticket processIncomingVehicle(ParkingType parkingType, String vehicleRegNumber) throws Exception {
+        if(vehiclesInProgress.putIfAbsent(vehicleRegNumber, Boolean.TRUE) != null){
+            throw new IllegalStateException("Vehicle " + vehicleRegNumber + " is already being processed by another gate");
+        }
+        long incomingStart = Metrics.start();
+        try{
+            long start = Metrics.start();
+            Ticket latest = ticketDAO.getTicket(vehicleRegNumber);
+            Metrics.stop(Phase.TICKET_FETCH, start);
+            if(latest != null && !latest.hasOutTime()){
+                throw new IllegalStateException("Vehicle " + vehicleRegNumber + " is already parked");
+            }
+            //the spot shown to the user may have been taken by another gate meanwhile: claim one atomically
+            start = Metrics.start();
+            int parkingNumber = parkingSpotDAO.claimNextAvailableSlot(parkingType);
+            Metrics.stop(Phase.SPOT_LOOKUP, start);
+            if(parkingNumber <= 0){
+                Metrics.fail(Phase.SPOT_LOOKUP);
+                throw new Exception("Error claiming parking number from DB. Parking slots might be full");
+            }
+            ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+
+            Ticket ticket = new Ticket();
+            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+            //ticket.setId(ticketID);
+            ticket.setParkingSpot(parkingSpot);
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(0);
+            ticket.setInTimeMillis(System.currentTimeMillis());
+            ticket.setOutTimeMillis(Ticket.NO_TIME);
+            start = Metrics.start();
+            boolean saved = ticketDAO.saveTicket(ticket);
+            Metrics.stop(Phase.TICKET_SAVE, start);
+            if(!saved){
+                Metrics.fail(Phase.TICKET_SAVE);
+                //give the spot back so that it is not lost
+                parkingSpot.setAvailable(true);
+                updateParking(parkingSpot);
+                throw new Exception("Error saving ticket in DB");
+            }
+            Metrics.stop(Phase.INCOMING_VEHICLE, incomingStart);
+            return ticket;
+        }finally{
+            vehiclesInProgress.remove(vehicleRegNumber);
+        }
+    }
+
+    private void updateParking(ParkingSpot parkingSpot) {
+        long start = Metrics.start();
+        if(!parkingSpotDAO.updateParking(parkingSpot)) {
+            Metrics.fail(Phase.SPOT_UPDATE);
+        }
+        Metrics.stop(Phase.SPOT_UPDATE, start);
+    }
+
     private String getVehichleRegNumber() throws Exception {
         System.out.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
@@ -100,16 +183,13 @@ public class ParkingService {
     public void processExitingVehicle() {
         try{
             String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
-            fareCalculatorService.calculateFare(ticket);
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
+            Ticket ticket = processExitingVehicle(vehicleRegNumber);
+            if(ticket != null) {
+                if(ticket.isDiscounted()) {
+                    System.out.println("Welcome back! As a recurring user, you get a 5% discount");
+                }
                 System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
             }else{
                 System.out.println("Unable to update ticket information. Error occurred");
             }
@@ -117,4 +197,49 @@ public class ParkingService {
             logger.error("Unable to process exiting vehicle",e);
         }
     }
+
+    /**
+     * Prices and closes the ticket of an exiting vehicle and frees its spot. Safe to call from several gates at once.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the closed ticket, holding the price to pay and whether it has the recurring user discount,
+     * or null if the ticket could not be updated
+     * @throws Exception if the vehicle is not parked or is already exiting
+     */
+    public Ticket processExitingVehicle(String vehicleRegNumber) throws Exception {
+        if(vehiclesInProgress.putIfAbsent(vehicleRegNumber, Boolean.TRUE) != null){
+            throw new IllegalStateException("Vehicle " + vehicleRegNumber + " is already being processed by another gate");
+        }
+        long exitingStart = Metrics.start();
+        try{
+            long start = Metrics.start();
+            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            Metrics.stop(Phase.TICKET_FETCH, start);
+            if(ticket == null || ticket.hasOutTime()){
+                throw new IllegalArgumentException("No vehicle " + vehicleRegNumber + " is parked");
+            }
+            ticket.setOutTimeMillis(System.currentTimeMillis());
+            start = Metrics.start();
+            fareCalculatorService.calculateFare(ticket);
+            if(isRecurrentUser(vehicleRegNumber)) {
+                fareCalculatorService.applyDiscount(ticket);
+            }
+            Metrics.stop(Phase.FARE_CALC, start);
+            start = Metrics.start();
+            boolean updated = ticketDAO.updateTicket(ticket);
+            Metrics.stop(Phase.TICKET_UPDATE, start);
+            if(!updated) {
+                Metrics.fail(Phase.TICKET_UPDATE);
+                ticket.setOutTimeMillis(Ticket.NO_TIME);
+                return null;
+            }
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            parkingSpot.setAvailable(true);
+            updateParking(parkingSpot);
+            Metrics.stop(Phase.EXITING_VEHICLE, exitingStart);
+            return ticket;
+        }finally{
+            vehiclesInProgress.remove(vehicleRegNumber);
+        }
+    }
 }
@@ -0,0 +1,302 @@
+package com.parkit.parkingsystem.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.config.ZoneConfig;
+import com.parkit.parkingsystem.dao.ActiveTicketCache;
+import com.parkit.parkingsystem.dao.EmbeddedParkingSpotDAO;
+import com.parkit.parkingsystem.dao.EmbeddedTicketDAO;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.RecurringUserDAO;
+import com.parkit.parkingsystem.dao.ReportDAO;
+import com.parkit.parkingsystem.dao.SiteRouter;
+import com.parkit.parkingsystem.dao.TicketArchiver;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketSummaryDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.MetricsHttpServer;
+import com.parkit.parkingsystem.metrics.MetricsJmx;
+import com.parkit.parkingsystem.report.TicketSummaryService;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+/**
+ * Creates the DAOs and the single {@link ParkingService} shared by every gate of the process:
+ * the interactive shell and, in server mode, the gates connected to the {@link GateServer}.
+ *
+ */
+public class ParkingSystemContext {
+
+  private static final Logger logger = LogManager.getLogger("ParkingSystemContext");
+
+  /**
+   * Delay between two reloads of the in-memory free spot index from the DB.
+   */
+  private static final long SPOT_INDEX_RESYNC_SECONDS = 60;
+
+  /**
+   * Set this system property to true to write tickets in batches from a background thread.
+   */
+  private static final String WRITE_BEHIND_PROPERTY = "parkingsystem.ticket.writeBehind";
+  private static final int WRITE_BEHIND_CAPACITY = 10_000;
+  private static final int WRITE_BEHIND_BATCH_SIZE = 100;
+  private static final long WRITE_BEHIND_FLUSH_INTERVAL_MILLIS = 50;
+  private static final long WRITE_BEHIND_ENQUEUE_TIMEOUT_MILLIS = 2_000;
+
+  /**
+   * Delay between two reconciliations of the occupancy counters with the DB.
+   */
+  private static final long OCCUPANCY_RECONCILE_SECONDS = 60;
+
+  /**
+   * Days of ticket summaries kept in memory, and delay between two flushes of the closed tickets
+   * to the summary table.
+   */
+  private static final int SUMMARY_RETAINED_DAYS = 7;
+  private static final long SUMMARY_FLUSH_SECONDS = 10;
+
+  /**
+   * Closed tickets older than this system property, in days, are moved to the archive table.
+   */
+  private static final String ARCHIVE_AGE_DAYS_PROPERTY = "parkingsystem.archive.ageDays";
+  private static final long DEFAULT_ARCHIVE_AGE_DAYS = 90;
+  private static final String ARCHIVE_RETENTION_MONTHS_PROPERTY =
+      "parkingsystem.archive.retentionMonths";
+  private static final int ARCHIVE_BATCH_SIZE = 500;
+  private static final long ARCHIVE_PAUSE_MILLIS = 200;
+  private static final long ARCHIVE_PERIOD_SECONDS = 3600;
+
+  /**
+   * Set this system property to true to time the phases of the parking workflow. They can also be
+   * turned on and off from JMX.
+   */
+  private static final String METRICS_PROPERTY = "parkingsystem.metrics";
+  /**
+   * Set this system property to a port to serve the metrics to Prometheus on /metrics.
+   */
+  private static final String METRICS_PORT_PROPERTY = "parkingsystem.metrics.port";
+  /**
+   * The address the metrics are served on, the loopback one if not set. The endpoint has no
+   * authentication: 0.0.0.0 exposes it on every interface.
+   */
+  private static final String METRICS_BIND_ADDRESS_PROPERTY = "parkingsystem.metrics.bindAddress";
+
+  /**
+   * Set this system property to the path of a tariff rules file, reloaded when it changes, to use
+   * instead of the tariff.properties resource.
+   */
+  private static final String TARIFF_FILE_PROPERTY = "parkingsystem.tariff.file";
+  private static final long TARIFF_WATCH_SECONDS = 30;
+
+  /**
+   * Set this system property to the path of a properties file listing the database of each site,
+   * see {@link SiteRouter}, to answer cross-site queries.
+   */
+  private static final String SITES_FILE_PROPERTY = "parkingsystem.sites";
+
+  /**
+   * Set this system property to a directory to keep the spots and tickets in an
+   * {@link EmbeddedStore} there instead of MySQL. The spots of a new store are given, as
+   * {@code CAR:3,BIKE:2}, by the spots property. Ticket writes wait for the disk unless the
+   * fireAndForget property is true.
+   */
+  private static final String STORAGE_DIR_PROPERTY = "parkingsystem.storage.dir";
+  private static final String STORAGE_SPOTS_PROPERTY = "parkingsystem.storage.spots";
+  private static final String DEFAULT_STORAGE_SPOTS = "CAR:3,BIKE:2";
+  private static final String STORAGE_FIRE_AND_FORGET_PROPERTY =
+      "parkingsystem.storage.fireAndForget";
+  private static final long STORAGE_FLUSH_INTERVAL_MILLIS = 100;
+
+  private EmbeddedStore embeddedStore;
+  private JdbcParkingSpotDAO jdbcParkingSpotDAO;
+  private JdbcTicketDAO jdbcTicketDAO;
+  private final ParkingSpotDAO parkingSpotDAO;
+  private final OccupancyService occupancyService;
+  private final TicketDAO ticketDAO;
+  private final RecurringUserDAO recurringUserDAO;
+  private final TicketSummaryService ticketSummaryService;
+  private final TariffEngine tariffEngine;
+  private final TicketArchiver ticketArchiver;
+  private MetricsHttpServer metricsHttpServer;
+  private SiteRouter siteRouter;
+  private final ParkingService parkingService;
+
+  /**
+   * Migrates the DB schema, then creates the DAOs and loads their in-memory indexes and caches from
+   * the DB. With the embedded storage, opens it instead and leaves out the DB-only services: the
+   * ticket archiver and the ticket summaries.
+   *
+   * @param inputReaderUtil the input of the interactive shell
+   */
+  public ParkingSystemContext(InputReaderUtil inputReaderUtil) {
+    Metrics.setEnabled(Boolean.getBoolean(METRICS_PROPERTY));
+    MetricsJmx.register();
+    Integer metricsPort = Integer.getInteger(METRICS_PORT_PROPERTY);
+    if (metricsPort != null) {
+      try {
+        String bindAddress = System.getProperty(METRICS_BIND_ADDRESS_PROPERTY);
+        metricsHttpServer = (bindAddress == null)
+            ? new MetricsHttpServer(metricsPort)
+            : new MetricsHttpServer(InetAddress.getByName(bindAddress.trim()), metricsPort);
+        metricsHttpServer.start();
+      } catch (IOException e) {
+        logger.error("Unable to serve metrics on port {}", metricsPort, e);
+      }
+    }
+    String storageDir = System.getProperty(STORAGE_DIR_PROPERTY);
+    if (storageDir != null) {
+      try {
+        embeddedStore = EmbeddedStore.open(Paths.get(storageDir),
+            EmbeddedStore.parseSpots(
+                System.getProperty(STORAGE_SPOTS_PROPERTY, DEFAULT_STORAGE_SPOTS)),
+            Boolean.getBoolean(STORAGE_FIRE_AND_FORGET_PROPERTY)
+                ? TicketWriteBehind.Acknowledgement.FIRE_AND_FORGET
+                : TicketWriteBehind.Acknowledgement.AWAIT_FLUSH,
+            STORAGE_FLUSH_INTERVAL_MILLIS);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unable to open the embedded store in " + storageDir, e);
+      }
+      parkingSpotDAO = new EmbeddedParkingSpotDAO(embeddedStore);
+      ticketDAO = new EmbeddedTicketDAO(embeddedStore);
+      recurringUserDAO = null;
+      ticketSummaryService = null;
+      ticketArchiver = null;
+    } else {
+      jdbcParkingSpotDAO = new JdbcParkingSpotDAO();
+      if (new SchemaMigrator(jdbcParkingSpotDAO.dataBaseConfig).migrate()
+          != SchemaMigrator.getLatestVersion()) {
+        throw new IllegalStateException("Unable to migrate the schema of the database");
+      }
+      jdbcParkingSpotDAO.enableSpotIndex(SPOT_INDEX_RESYNC_SECONDS);
+      parkingSpotDAO = jdbcParkingSpotDAO;
+      jdbcTicketDAO = new JdbcTicketDAO();
+      jdbcTicketDAO.enableActiveTicketCache();
+      ActiveTicketCache activeTicketCache = jdbcTicketDAO.getActiveTicketCache();
+      Metrics.registerCounter("active_ticket_cache_hits_total",
+          "Ticket lookups answered by the active ticket cache", activeTicketCache::getHitCount);
+      Metrics.registerCounter("active_ticket_cache_misses_total",
+          "Ticket lookups that missed the active ticket cache", activeTicketCache::getMissCount);
+      recurringUserDAO = new RecurringUserDAO();
+      recurringUserDAO.load();
+      jdbcTicketDAO.setRecurringUserDAO(recurringUserDAO);
+      ticketSummaryService = new TicketSummaryService(new TicketSummaryDAO(), new ReportDAO(),
+          ZoneConfig.getZone(), SUMMARY_RETAINED_DAYS);
+      ticketSummaryService.start(SUMMARY_FLUSH_SECONDS);
+      jdbcTicketDAO.setTicketCloseListener(ticketSummaryService::ticketClosed);
+      if (Boolean.getBoolean(WRITE_BEHIND_PROPERTY)) {
+        jdbcTicketDAO.enableWriteBehind(
+            new TicketWriteBehind(jdbcTicketDAO.dataBaseConfig, WRITE_BEHIND_CAPACITY,
+                WRITE_BEHIND_BATCH_SIZE, WRITE_BEHIND_FLUSH_INTERVAL_MILLIS,
+                WRITE_BEHIND_ENQUEUE_TIMEOUT_MILLIS),
+            TicketWriteBehind.Acknowledgement.AWAIT_FLUSH);
+      }
+      ticketDAO = jdbcTicketDAO;
+      ticketArchiver = new TicketArchiver(TimeUnit.DAYS.toMillis(
+          Long.getLong(ARCHIVE_AGE_DAYS_PROPERTY, DEFAULT_ARCHIVE_AGE_DAYS)), ARCHIVE_BATCH_SIZE,
+          ARCHIVE_PAUSE_MILLIS, Integer.getInteger(ARCHIVE_RETENTION_MONTHS_PROPERTY, 0));
+      ticketArchiver.start(ARCHIVE_PERIOD_SECONDS);
+    }
+    occupancyService = new OccupancyService(parkingSpotDAO);
+    occupancyService.start(OCCUPANCY_RECONCILE_SECONDS);
+    tariffEngine = TariffEngine.fromClasspath();
+    String tariffFile = System.getProperty(TARIFF_FILE_PROPERTY);
+    if (tariffFile != null) {
+      tariffEngine.watch(Paths.get(tariffFile), TARIFF_WATCH_SECONDS);
+    }
+    String sitesFile = System.getProperty(SITES_FILE_PROPERTY);
+    if (sitesFile != null) {
+      Properties sites = new Properties();
+      try (InputStream in = Files.newInputStream(Paths.get(sitesFile))) {
+        sites.load(in);
+        siteRouter = SiteRouter.fromProperties(sites);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unable to read the sites from " + sitesFile, e);
+      }
+      if (!siteRouter.migrate()) {
+        siteRouter.close();
+        throw new IllegalStateException("Unable to migrate the schema of every site of "
+            + sitesFile);
+      }
+    }
+    parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+    parkingService.setRecurringUserDAO(recurringUserDAO);
+    parkingService.setFareCalculatorService(new FareCalculatorService(tariffEngine));
+  }
+
+  public ParkingService getParkingService() {
+    return parkingService;
+  }
+
+  public ParkingSpotDAO getParkingSpotDAO() {
+    return parkingSpotDAO;
+  }
+
+  public OccupancyService getOccupancyService() {
+    return occupancyService;
+  }
+
+  public TicketDAO getTicketDAO() {
+    return ticketDAO;
+  }
+
+  /**
+   * @return the ticket summaries, null with the embedded storage
+   */
+  public TicketSummaryService getTicketSummaryService() {
+    return ticketSummaryService;
+  }
+
+  /**
+   * @return the router of the sites, null unless they are configured
+   */
+  public SiteRouter getSiteRouter() {
+    return siteRouter;
+  }
+
+  public TariffEngine getTariffEngine() {
+    return tariffEngine;
+  }
+
+  /**
+   * Stops the background tasks, flushes the queued ticket writes and closes the DB connections.
+   */
+  public void close() {
+    if (jdbcParkingSpotDAO != null) {
+      jdbcParkingSpotDAO.disableSpotIndex();
+    }
+    occupancyService.stop();
+    tariffEngine.stopWatching();
+    if (ticketArchiver != null) {
+      ticketArchiver.stop();
+    }
+    if (metricsHttpServer != null) {
+      metricsHttpServer.stop();
+    }
+    if (jdbcTicketDAO != null) {
+      jdbcTicketDAO.disableWriteBehind();
+    }
+    if (ticketSummaryService != null) {
+      ticketSummaryService.stop();
+    }
+    if (siteRouter != null) {
+      siteRouter.close();
+    }
+    if (embeddedStore != null) {
+      embeddedStore.close();
+    }
+    DataBaseConfig.closeConnectionPools();
+  }
+}
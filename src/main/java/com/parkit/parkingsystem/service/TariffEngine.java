@@ -0,0 +1,283 @@
+package com.parkit.parkingsystem.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.config.ZoneConfig;
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Compiles tariff rules into one {@link TariffTable} per site and parking type, and swaps them
+ * atomically when the rules are reloaded, without stopping the gates.
+ *
+ * Rules are properties:
+ * <ul>
+ * <li>{@code tariff.freeMinutes=30}: stays shorter than this are free</li>
+ * <li>{@code tariff.<site>.<TYPE>.ratePerHour=1.5}: the base rate, defaulting to the one of the
+ * {@value #DEFAULT_SITE} site</li>
+ * <li>{@code tariff.<site>.<TYPE>.dailyCap=20}: the maximum price of each 24 hours, optional</li>
+ * <li>{@code tariff.<site>.<TYPE>.rule.<name>=MON-FRI 08:00-18:00 2.0}: the rate per hour in a
+ * weekly time window, the days being a day, a range or a comma separated list. Windows may cross
+ * midnight. Rules are applied in the order of their names, later ones winning where they
+ * overlap.</li>
+ * </ul>
+ * A site without a table for a type uses the one of the {@value #DEFAULT_SITE} site, whose base
+ * rates default to the {@link Fare} rates.
+ *
+ */
+public class TariffEngine {
+
+  private static final Logger logger = LogManager.getLogger("TariffEngine");
+
+  public static final String DEFAULT_SITE = ParkingSpot.DEFAULT_SITE;
+
+  private static final String PREFIX = "tariff.";
+  private static final int DEFAULT_FREE_MINUTES = 30;
+
+  private final AtomicReference<Map<String, TariffTable[]>> tables = new AtomicReference<>();
+  private final ZoneId zone;
+  private ScheduledExecutorService watchExecutor;
+
+  /**
+   * Creates an engine charging the {@link Fare} rates at any time.
+   */
+  public TariffEngine() {
+    this(new Properties(), ZoneConfig.getZone());
+  }
+
+  /**
+   * @param rules the tariff rules
+   * @param zone the zone the weekdays and times of day of the rules are in
+   */
+  public TariffEngine(Properties rules, ZoneId zone) {
+    this.zone = zone;
+    tables.set(compile(rules));
+  }
+
+  /**
+   * Loads the rules of the {@code tariff.properties} resource, if any.
+   *
+   * @return the engine, charging the {@link Fare} rates if the resource is missing or invalid
+   */
+  public static TariffEngine fromClasspath() {
+    Properties rules = new Properties();
+    try (InputStream in = TariffEngine.class.getResourceAsStream("/tariff.properties")) {
+      if (in != null) {
+        rules.load(in);
+      }
+      return new TariffEngine(rules, ZoneConfig.getZone());
+    } catch (IOException | RuntimeException e) {
+      logger.error("Invalid tariff rules, using the default rates", e);
+      return new TariffEngine();
+    }
+  }
+
+  /**
+   * @param site the site of the parking, null for the default one
+   * @param parkingType the parking type
+   * @return the current tariff
+   */
+  public TariffTable getTable(String site, ParkingType parkingType) {
+    Map<String, TariffTable[]> current = tables.get();
+    TariffTable[] siteTables = (site == null) ? null : current.get(site);
+    TariffTable table = (siteTables == null) ? null : siteTables[parkingType.ordinal()];
+    return (table != null) ? table : current.get(DEFAULT_SITE)[parkingType.ordinal()];
+  }
+
+  /**
+   * Compiles the given rules, then swaps them in. The gates keep pricing with the previous tables
+   * until the new ones are ready, and keep them if the rules are invalid.
+   *
+   * @param rules the new tariff rules
+   * @throws IllegalArgumentException if a rule is invalid
+   */
+  public void reload(Properties rules) {
+    tables.set(compile(rules));
+    logger.info("Tariff rules reloaded");
+  }
+
+  /**
+   * Reloads the rules from a properties file whenever it is modified.
+   *
+   * @param file the rules file
+   * @param periodSeconds the delay between two checks of the file
+   */
+  public synchronized void watch(Path file, long periodSeconds) {
+    stopWatching();
+    watchExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "tariff-watch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long[] lastModified = {Long.MIN_VALUE};
+    watchExecutor.scheduleWithFixedDelay(() -> {
+      try {
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        if (modified != lastModified[0]) {
+          Properties rules = new Properties();
+          try (InputStream in = Files.newInputStream(file)) {
+            rules.load(in);
+          }
+          lastModified[0] = modified;
+          reload(rules);
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.error("Error reloading tariff rules from {}", file, e);
+      }
+    }, 0, periodSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops watching the rules file, if started.
+   */
+  public synchronized void stopWatching() {
+    if (watchExecutor != null) {
+      watchExecutor.shutdownNow();
+      watchExecutor = null;
+    }
+  }
+
+  private Map<String, TariffTable[]> compile(Properties rules) {
+    int freeMinutes = Integer.parseInt(
+        rules.getProperty(PREFIX + "freeMinutes", String.valueOf(DEFAULT_FREE_MINUTES)).trim());
+    TreeSet<String> sites = new TreeSet<>();
+    sites.add(DEFAULT_SITE);
+    for (String key : rules.stringPropertyNames()) {
+      if (key.startsWith(PREFIX) && key.indexOf('.', PREFIX.length()) > 0) {
+        sites.add(key.substring(PREFIX.length(), key.indexOf('.', PREFIX.length())));
+      }
+    }
+    Map<String, TariffTable[]> compiled = new HashMap<>();
+    for (String site : sites) {
+      TariffTable[] siteTables = new TariffTable[ParkingType.values().length];
+      for (ParkingType parkingType : ParkingType.values()) {
+        siteTables[parkingType.ordinal()] = compile(rules, site, parkingType, freeMinutes);
+      }
+      compiled.put(site, siteTables);
+    }
+    return compiled;
+  }
+
+  /**
+   * @return the table of the site and type, or null if the site has no rule for the type
+   */
+  private TariffTable compile(Properties rules, String site, ParkingType parkingType,
+      int freeMinutes) {
+    String prefix = PREFIX + site + "." + parkingType + ".";
+    if (!DEFAULT_SITE.equals(site)
+        && rules.stringPropertyNames().stream().noneMatch(key -> key.startsWith(prefix))) {
+      return null;
+    }
+    String ratePerHour = rules.getProperty(prefix + "ratePerHour", rules.getProperty(
+        PREFIX + DEFAULT_SITE + "." + parkingType + ".ratePerHour",
+        String.valueOf(defaultRatePerHour(parkingType))));
+    double[] ratesPerHour = new double[TariffTable.MINUTES_PER_WEEK];
+    Arrays.fill(ratesPerHour, Double.parseDouble(ratePerHour.trim()));
+    for (String key : new TreeSet<>(rules.stringPropertyNames())) {
+      if (key.startsWith(prefix + "rule.")) {
+        applyRule(ratesPerHour, rules.getProperty(key).trim(), key);
+      }
+    }
+    double dailyCap = Double.parseDouble(rules.getProperty(prefix + "dailyCap", "0").trim());
+    return new TariffTable(ratesPerHour, freeMinutes, dailyCap, zone);
+  }
+
+  private static double defaultRatePerHour(ParkingType parkingType) {
+    switch (parkingType) {
+      case CAR:
+        return Fare.CAR_RATE_PER_HOUR;
+      case BIKE:
+        return Fare.BIKE_RATE_PER_HOUR;
+      default:
+        throw new IllegalArgumentException("Unkown Parking Type");
+    }
+  }
+
+  /**
+   * Applies a rule such as {@code MON-FRI 08:00-18:00 2.0}.
+   */
+  private static void applyRule(double[] ratesPerHour, String rule, String key) {
+    String[] words = rule.split("\\s+");
+    if (words.length != 3) {
+      throw new IllegalArgumentException("Invalid tariff rule " + key + ": " + rule);
+    }
+    boolean[] days = parseDays(words[0], key);
+    String[] window = words[1].split("-");
+    if (window.length != 2) {
+      throw new IllegalArgumentException("Invalid time window in tariff rule " + key);
+    }
+    int from = parseMinuteOfDay(window[0], key);
+    int to = parseMinuteOfDay(window[1], key);
+    int length = (to > from) ? (to - from) : (TariffTable.MINUTES_PER_DAY - from + to);
+    double rate = Double.parseDouble(words[2]);
+    for (int day = 0; day < 7; day++) {
+      if (days[day]) {
+        int start = day * TariffTable.MINUTES_PER_DAY + from;
+        for (int minute = start; minute < start + length; minute++) {
+          ratesPerHour[minute % TariffTable.MINUTES_PER_WEEK] = rate;
+        }
+      }
+    }
+  }
+
+  private static boolean[] parseDays(String days, String key) {
+    boolean[] selected = new boolean[7];
+    try {
+      for (String part : days.toUpperCase(Locale.ROOT).split(",")) {
+        String[] range = part.split("-");
+        int first = parseDay(range[0]);
+        int last = (range.length > 1) ? parseDay(range[1]) : first;
+        for (int day = first;; day = (day + 1) % 7) {
+          selected[day] = true;
+          if (day == last) {
+            break;
+          }
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid days in tariff rule " + key + ": " + days, e);
+    }
+    return selected;
+  }
+
+  /**
+   * @return the day number, from 0 for Monday
+   */
+  private static int parseDay(String day) {
+    for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+      if (dayOfWeek.name().startsWith(day) && day.length() >= 3) {
+        return dayOfWeek.ordinal();
+      }
+    }
+    throw new IllegalArgumentException("Unknown day " + day);
+  }
+
+  private static int parseMinuteOfDay(String time, String key) {
+    String[] hoursAndMinutes = time.split(":");
+    int hours = Integer.parseInt(hoursAndMinutes[0]);
+    int minutes = (hoursAndMinutes.length > 1) ? Integer.parseInt(hoursAndMinutes[1]) : 0;
+    int minuteOfDay = hours * 60 + minutes;
+    if (minutes < 0 || minutes > 59 || minuteOfDay < 0
+        || minuteOfDay > TariffTable.MINUTES_PER_DAY) {
+      throw new IllegalArgumentException("Invalid time in tariff rule " + key + ": " + time);
+    }
+    return minuteOfDay % TariffTable.MINUTES_PER_DAY;
+  }
+}
@@ -0,0 +1,146 @@
+package com.parkit.parkingsystem.service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+
+/**
+ * The tariff of one parking type of one site, compiled into a piecewise constant rate over the
+ * week.
+ *
+ * The week is cut into segments of constant rate, from Monday 00:00 local time. The price of the
+ * week up to the start of each segment is precomputed, so the price of any stay is a couple of
+ * binary searches whatever the number of rules the tariff was built from. Immutable.
+ *
+ */
+public final class TariffTable {
+
+  static final int MINUTES_PER_DAY = 24 * 60;
+  static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+  private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+  /** 1970-01-01 was a Thursday: the epoch is 3 days after a Monday. */
+  private static final long EPOCH_MINUTE_OF_WEEK = 3 * MINUTES_PER_DAY;
+
+  private final int[] segmentStarts;
+  private final double[] ratesPerMinute;
+  private final double[] priceBeforeSegment;
+  private final double priceOfWeek;
+  private final double flatRatePerHour;
+  private final int freeMinutes;
+  private final double dailyCap;
+  private final ZoneRules zoneRules;
+
+  /**
+   * @param ratesPerHour the rate of each minute of the week, from Monday 00:00
+   * @param freeMinutes stays shorter than this are free
+   * @param dailyCap the maximum price of each 24 hours of a stay, 0 for none
+   * @param zone the zone the weekdays and times of day of the rules are in
+   */
+  TariffTable(double[] ratesPerHour, int freeMinutes, double dailyCap, ZoneId zone) {
+    if (ratesPerHour.length != MINUTES_PER_WEEK) {
+      throw new IllegalArgumentException("A rate is needed for each minute of the week");
+    }
+    int segments = 1;
+    for (int minute = 1; minute < MINUTES_PER_WEEK; minute++) {
+      if (ratesPerHour[minute] != ratesPerHour[minute - 1]) {
+        segments++;
+      }
+    }
+    segmentStarts = new int[segments];
+    ratesPerMinute = new double[segments];
+    priceBeforeSegment = new double[segments];
+    int segment = 0;
+    ratesPerMinute[0] = ratesPerHour[0] / 60;
+    for (int minute = 1; minute < MINUTES_PER_WEEK; minute++) {
+      if (ratesPerHour[minute] != ratesPerHour[minute - 1]) {
+        segment++;
+        segmentStarts[segment] = minute;
+        ratesPerMinute[segment] = ratesPerHour[minute] / 60;
+        priceBeforeSegment[segment] = priceBeforeSegment[segment - 1]
+            + (minute - segmentStarts[segment - 1]) * ratesPerMinute[segment - 1];
+      }
+    }
+    this.priceOfWeek = priceBefore(MINUTES_PER_WEEK);
+    this.flatRatePerHour = ratesPerHour[0];
+    this.freeMinutes = freeMinutes;
+    this.dailyCap = dailyCap;
+    this.zoneRules = zone.getRules();
+  }
+
+  /**
+   * The duration is counted in whole elapsed minutes. Each minute is charged at the rate of the
+   * time of the week it falls in, then each 24 hours from the entry are capped.
+   *
+   * @param inTimeMillis the entry time, in epoch millis
+   * @param outTimeMillis the exit time, in epoch millis, not before the entry time
+   * @return the price of the stay
+   */
+  public double price(long inTimeMillis, long outTimeMillis) {
+    long minutes = (outTimeMillis - inTimeMillis) / MILLIS_PER_MINUTE;
+    if (minutes < freeMinutes) {
+      return 0.0;
+    }
+    if (segmentStarts.length == 1) {
+      // Flat rate: no need to know when the stay started.
+      return (dailyCap > 0) ? cappedFlatPrice(minutes) : (minutes / 60.0) * flatRatePerHour;
+    }
+    int start = minuteOfWeek(inTimeMillis);
+    if (dailyCap <= 0) {
+      return (minutes / MINUTES_PER_WEEK) * priceOfWeek
+          + price(start, (int) (minutes % MINUTES_PER_WEEK));
+    }
+    double price = 0;
+    for (long remaining = minutes; remaining > 0; remaining -= MINUTES_PER_DAY) {
+      price += Math.min(dailyCap, price(start, (int) Math.min(remaining, MINUTES_PER_DAY)));
+      start = (start + MINUTES_PER_DAY) % MINUTES_PER_WEEK;
+    }
+    return price;
+  }
+
+  private double cappedFlatPrice(long minutes) {
+    double pricePerDay = Math.min(dailyCap, 24 * flatRatePerHour);
+    double priceOfLastDay =
+        Math.min(dailyCap, ((minutes % MINUTES_PER_DAY) / 60.0) * flatRatePerHour);
+    return (minutes / MINUTES_PER_DAY) * pricePerDay + priceOfLastDay;
+  }
+
+  /**
+   * @return the price of the given minutes from the given minute of the week, less than a week
+   */
+  private double price(int start, int minutes) {
+    int end = start + minutes;
+    if (end <= MINUTES_PER_WEEK) {
+      return priceBefore(end) - priceBefore(start);
+    }
+    return (priceOfWeek - priceBefore(start)) + priceBefore(end - MINUTES_PER_WEEK);
+  }
+
+  /**
+   * @return the price from Monday 00:00 to the given minute of the week
+   */
+  private double priceBefore(int minuteOfWeek) {
+    int segment = Arrays.binarySearch(segmentStarts, minuteOfWeek);
+    if (segment < 0) {
+      segment = -segment - 2;
+    }
+    return priceBeforeSegment[segment]
+        + (minuteOfWeek - segmentStarts[segment]) * ratesPerMinute[segment];
+  }
+
+  private int minuteOfWeek(long epochMillis) {
+    long offsetMillis =
+        zoneRules.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds() * 1000L;
+    long localMinutes = Math.floorDiv(epochMillis + offsetMillis, MILLIS_PER_MINUTE);
+    return (int) Math.floorMod(localMinutes + EPOCH_MINUTE_OF_WEEK, (long) MINUTES_PER_WEEK);
+  }
+
+  /**
+   * @return the number of segments of constant rate in the week
+   */
+  public int getSegmentCount() {
+    return segmentStarts.length;
+  }
+}
@@ -0,0 +1,505 @@
+package com.parkit.parkingsystem.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * In-process storage of the spots and tickets of a single site, for deployments without a MySQL
+ * server. Every read is served from memory; every write is a few bytes in a memory-mapped file.
+ *
+ * The spots are a {@link SpotTable}, the tickets an append-only {@link TicketLog}. A background
+ * thread forces both to the disk every flush interval, or as soon as a writer waits for it, so
+ * that the gates writing at the same time share a single fsync. With
+ * {@link TicketWriteBehind.Acknowledgement#AWAIT_FLUSH}, a ticket write returns once forced; with
+ * {@link TicketWriteBehind.Acknowledgement#FIRE_AND_FORGET}, it returns at once and a crash loses
+ * at most the last flush interval.
+ *
+ * On opening, the tickets are replayed from the log, and a spot is free exactly when no open
+ * ticket holds it, whatever the spot table says: spot writes never need to be forced.
+ *
+ */
+public class EmbeddedStore {
+
+  private static final Logger logger = LogManager.getLogger("EmbeddedStore");
+
+  private static final String SPOTS_FILE = "spots.dat";
+  private static final String TICKETS_FILE = "tickets.log";
+  /**
+   * The out time logged by earlier versions when a ticket was closed without one, back when
+   * {@link Ticket#NO_TIME} was -1. Such a close is skipped on replay, leaving the ticket open.
+   */
+  private static final long LEGACY_NO_TIME = -1;
+
+  /**
+   * A ticket, as kept in memory.
+   */
+  private static final class Visit {
+    private final int ticketId;
+    private final String vehicleRegNumber;
+    private final int spot;
+    private final long inTimeMillis;
+    private final long outTimeMillis;
+    private final double price;
+
+    private Visit(int ticketId, String vehicleRegNumber, int spot, long inTimeMillis,
+        long outTimeMillis, double price) {
+      this.ticketId = ticketId;
+      this.vehicleRegNumber = vehicleRegNumber;
+      this.spot = spot;
+      this.inTimeMillis = inTimeMillis;
+      this.outTimeMillis = outTimeMillis;
+      this.price = price;
+    }
+
+    private Visit close(double closedPrice, long closedOutTimeMillis) {
+      return new Visit(ticketId, vehicleRegNumber, spot, inTimeMillis, closedOutTimeMillis,
+          closedPrice);
+    }
+  }
+
+  private final SpotTable spotTable;
+  private final TicketLog ticketLog;
+  private final TicketWriteBehind.Acknowledgement acknowledgement;
+  private final long flushIntervalMillis;
+  private final Map<Integer, Integer> spotsByNumber = new HashMap<>();
+  /** Free spots of each parking type, by index in the spot table; guarded by itself. */
+  private final BitSet[] freeSpots = new BitSet[ParkingType.values().length];
+  private final ConcurrentMap<String, Visit> latestVisits = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, Visit> openVisits = new ConcurrentHashMap<>();
+  private final Set<String> recurrentUsers = ConcurrentHashMap.newKeySet();
+  private final Object ticketLock = new Object();
+  private int nextTicketId = 1;
+  /** Writers wait on flushed for the flusher, which waits on flushNeeded for them. */
+  private final Lock flushLock = new ReentrantLock();
+  private final Condition flushNeeded = flushLock.newCondition();
+  private final Condition flushed = flushLock.newCondition();
+  private long durablePosition;
+  /** The end of the log when a force last failed: writes up to it are not known to be durable. */
+  private long failedPosition;
+  private boolean flushRequested;
+  private volatile boolean closed;
+  private boolean stopped;
+  private final Thread flusher;
+
+  /**
+   * Opens the store of a directory, creating it with the given spots if it is empty.
+   *
+   * @param directory the directory of the store files
+   * @param initialSpots the spots of a new store
+   * @param acknowledgement whether ticket writes wait for the disk
+   * @param flushIntervalMillis the maximum time between two forces to the disk
+   * @return the opened store, to close
+   * @throws IOException if the store files cannot be read or created
+   */
+  public static EmbeddedStore open(Path directory, List<ParkingSpot> initialSpots,
+      TicketWriteBehind.Acknowledgement acknowledgement, long flushIntervalMillis)
+      throws IOException {
+    Files.createDirectories(directory);
+    List<ParkingSpot> spots = new ArrayList<>(initialSpots);
+    spots.sort(Comparator.comparingInt(ParkingSpot::getId));
+    SpotTable spotTable = SpotTable.open(directory.resolve(SPOTS_FILE), spots);
+    try {
+      return new EmbeddedStore(spotTable, directory.resolve(TICKETS_FILE), acknowledgement,
+          flushIntervalMillis);
+    } catch (IOException | RuntimeException e) {
+      spotTable.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @param spots the number of spots of each parking type, as {@code CAR:3,BIKE:2}
+   * @return free spots numbered from 1, in the order of the types
+   */
+  public static List<ParkingSpot> parseSpots(String spots) {
+    List<ParkingSpot> parkingSpots = new ArrayList<>();
+    for (String typeCount : spots.split(",")) {
+      String[] parts = typeCount.trim().split(":");
+      ParkingType parkingType = ParkingType.valueOf(parts[0].trim());
+      int count = Integer.parseInt(parts[1].trim());
+      for (int i = 0; i < count; i++) {
+        parkingSpots.add(new ParkingSpot(parkingSpots.size() + 1, parkingType, true));
+      }
+    }
+    return parkingSpots;
+  }
+
+  private EmbeddedStore(SpotTable spotTable, Path ticketFile,
+      TicketWriteBehind.Acknowledgement acknowledgement, long flushIntervalMillis)
+      throws IOException {
+    this.spotTable = spotTable;
+    this.acknowledgement = acknowledgement;
+    this.flushIntervalMillis = flushIntervalMillis;
+    for (int spot = 0; spot < spotTable.size(); spot++) {
+      spotsByNumber.put(spotTable.getNumber(spot), spot);
+    }
+    ticketLog = TicketLog.open(ticketFile, new TicketLog.RecordHandler() {
+      @Override
+      public void ticketOpened(int ticketId, int parkingNumber, ParkingType parkingType,
+          long inTimeMillis, String vehicleRegNumber) {
+        nextTicketId = Math.max(nextTicketId, ticketId + 1);
+        Integer spot = spotsByNumber.get(parkingNumber);
+        if (spot == null) {
+          logger.warn("Ignoring ticket {} on the unknown spot {}", ticketId, parkingNumber);
+          return;
+        }
+        opened(new Visit(ticketId, vehicleRegNumber, spot, inTimeMillis, Ticket.NO_TIME, 0));
+      }
+
+      @Override
+      public void ticketClosed(int ticketId, double price, long outTimeMillis) {
+        if (outTimeMillis == LEGACY_NO_TIME) {
+          logger.warn("Ignoring the close of ticket {} without out time", ticketId);
+          return;
+        }
+        Visit visit = openVisits.get(ticketId);
+        if (visit != null) {
+          closed(visit, price, outTimeMillis);
+        }
+      }
+    });
+    durablePosition = ticketLog.force();
+    recoverSpots();
+    flusher = new Thread(this::runFlusher, "embedded-store-flush");
+    flusher.setDaemon(true);
+    flusher.start();
+    logger.info("Opened the embedded store with {} spots and {} open tickets", spotTable.size(),
+        openVisits.size());
+  }
+
+  private void recoverSpots() {
+    for (int i = 0; i < freeSpots.length; i++) {
+      freeSpots[i] = new BitSet(spotTable.size());
+    }
+    BitSet occupied = new BitSet(spotTable.size());
+    for (Visit visit : openVisits.values()) {
+      occupied.set(visit.spot);
+    }
+    int corrected = 0;
+    for (int spot = 0; spot < spotTable.size(); spot++) {
+      boolean available = !occupied.get(spot);
+      if (spotTable.isAvailable(spot) != available) {
+        spotTable.setAvailable(spot, available);
+        corrected++;
+      }
+      if (available) {
+        freeSpots[spotTable.getParkingType(spot).ordinal()].set(spot);
+      }
+    }
+    if (corrected > 0) {
+      logger.warn("Corrected the availability of {} spots from the open tickets", corrected);
+    }
+  }
+
+  private void opened(Visit visit) {
+    latestVisits.put(visit.vehicleRegNumber, visit);
+    openVisits.put(visit.ticketId, visit);
+  }
+
+  private void closed(Visit visit, double price, long outTimeMillis) {
+    Visit closedVisit = visit.close(price, outTimeMillis);
+    latestVisits.computeIfPresent(visit.vehicleRegNumber,
+        (vehicleRegNumber, latest) -> (latest.ticketId == visit.ticketId) ? closedVisit : latest);
+    openVisits.remove(visit.ticketId);
+    recurrentUsers.add(visit.vehicleRegNumber);
+  }
+
+  /**
+   * @return every spot, by number
+   */
+  public List<ParkingSpot> getParkingSpots() {
+    List<ParkingSpot> parkingSpots = new ArrayList<>(spotTable.size());
+    synchronized (freeSpots) {
+      for (int spot = 0; spot < spotTable.size(); spot++) {
+        parkingSpots.add(toParkingSpot(spot, spotTable.isAvailable(spot)));
+      }
+    }
+    return parkingSpots;
+  }
+
+  private ParkingSpot toParkingSpot(int spot, boolean available) {
+    return new ParkingSpot(spotTable.getNumber(spot), spotTable.getParkingType(spot), available,
+        ParkingSpot.DEFAULT_SITE, spotTable.getLevel(spot));
+  }
+
+  /**
+   * @return the lowest free spot number of that type, 0 if none
+   */
+  public int getNextAvailableSlot(ParkingType parkingType) {
+    synchronized (freeSpots) {
+      int spot = freeSpots[parkingType.ordinal()].nextSetBit(0);
+      return (spot < 0) ? 0 : spotTable.getNumber(spot);
+    }
+  }
+
+  /**
+   * Takes the lowest free spot of that type.
+   *
+   * @return the taken spot number, 0 if none is free
+   */
+  public int claimNextAvailableSlot(ParkingType parkingType) {
+    synchronized (freeSpots) {
+      BitSet free = freeSpots[parkingType.ordinal()];
+      int spot = free.nextSetBit(0);
+      if (spot < 0) {
+        return 0;
+      }
+      free.clear(spot);
+      spotTable.setAvailable(spot, false);
+      return spotTable.getNumber(spot);
+    }
+  }
+
+  /**
+   * @return the spot exists and has been updated
+   */
+  public boolean updateParking(int parkingNumber, boolean available) {
+    Integer spot = spotsByNumber.get(parkingNumber);
+    if (spot == null) {
+      return false;
+    }
+    synchronized (freeSpots) {
+      freeSpots[spotTable.getParkingType(spot).ordinal()].set(spot, available);
+      spotTable.setAvailable(spot, available);
+    }
+    return true;
+  }
+
+  /**
+   * @return the vehicle has a closed ticket
+   */
+  public boolean isRecurrentUser(String vehicleRegNumber) {
+    return recurrentUsers.contains(vehicleRegNumber);
+  }
+
+  /**
+   * Appends a new ticket, and sets its ID.
+   *
+   * @return the ticket was saved, false if its spot does not exist or the log failed
+   */
+  public boolean saveTicket(Ticket ticket) {
+    if (!ticket.hasInTime()) {
+      logger.error("Unable to save a ticket without in time");
+      return false;
+    }
+    Integer spot = spotsByNumber.get(ticket.getParkingSpot().getId());
+    if (spot == null) {
+      logger.error("Unable to save a ticket on the unknown spot {}", ticket.getParkingSpot().getId());
+      return false;
+    }
+    long position;
+    synchronized (ticketLock) {
+      try {
+        int ticketId = nextTicketId;
+        position = ticketLog.appendOpened(ticketId, ticket.getParkingSpot().getId(),
+            spotTable.getParkingType(spot), ticket.getInTimeMillis(),
+            ticket.getVehicleRegNumber());
+        nextTicketId++;
+        Visit visit = new Visit(ticketId, ticket.getVehicleRegNumber(), spot,
+            ticket.getInTimeMillis(), Ticket.NO_TIME, 0);
+        opened(visit);
+        if (ticket.hasOutTime()) {
+          position = ticketLog.appendClosed(ticketId, ticket.getPrice(),
+              ticket.getOutTimeMillis());
+          closed(visit, ticket.getPrice(), ticket.getOutTimeMillis());
+        }
+        ticket.setId(ticketId);
+      } catch (IOException e) {
+        logger.error("Error appending a ticket", e);
+        return false;
+      }
+    }
+    return awaitDurable(position);
+  }
+
+  /**
+   * @return the latest ticket of the vehicle, null if none
+   */
+  public Ticket getTicket(String vehicleRegNumber) {
+    Visit visit = latestVisits.get(vehicleRegNumber);
+    return (visit == null) ? null : toTicket(visit);
+  }
+
+  /**
+   * Closes an open ticket with its price and out time.
+   *
+   * @return the ticket was closed, false if it is not open or the log failed
+   */
+  public boolean updateTicket(Ticket ticket) {
+    if (!ticket.hasOutTime()) {
+      logger.error("Unable to close ticket {} without out time", ticket.getId());
+      return false;
+    }
+    long position;
+    synchronized (ticketLock) {
+      Visit visit = openVisits.get(ticket.getId());
+      if (visit == null) {
+        logger.error("Unable to close ticket {}: it is not open", ticket.getId());
+        return false;
+      }
+      try {
+        position = ticketLog.appendClosed(visit.ticketId, ticket.getPrice(),
+            ticket.getOutTimeMillis());
+      } catch (IOException e) {
+        logger.error("Error appending a ticket", e);
+        return false;
+      }
+      closed(visit, ticket.getPrice(), ticket.getOutTimeMillis());
+    }
+    return awaitDurable(position);
+  }
+
+  /**
+   * @return the tickets without out time, oldest first
+   */
+  public List<Ticket> getOpenTickets() {
+    List<Visit> visits = new ArrayList<>(openVisits.values());
+    visits.sort(Comparator.comparingLong(visit -> visit.inTimeMillis));
+    List<Ticket> tickets = new ArrayList<>(visits.size());
+    for (Visit visit : visits) {
+      tickets.add(toTicket(visit));
+    }
+    return tickets;
+  }
+
+  private Ticket toTicket(Visit visit) {
+    Ticket ticket = new Ticket();
+    ticket.setId(visit.ticketId);
+    ticket.setParkingSpot(toParkingSpot(visit.spot, false));
+    ticket.setVehicleRegNumber(visit.vehicleRegNumber);
+    ticket.setPrice(visit.price);
+    ticket.setInTimeMillis(visit.inTimeMillis);
+    ticket.setOutTimeMillis(visit.outTimeMillis);
+    return ticket;
+  }
+
+  /**
+   * With {@link TicketWriteBehind.Acknowledgement#AWAIT_FLUSH}, waits for the log to be forced up
+   * to the given position, asking the flusher to force it now.
+   *
+   * @return the log is on the disk up to the position, false if forcing it failed or the store
+   *         was closed first
+   */
+  private boolean awaitDurable(long position) {
+    if (acknowledgement == TicketWriteBehind.Acknowledgement.FIRE_AND_FORGET) {
+      return true;
+    }
+    flushLock.lock();
+    try {
+      while (durablePosition < position) {
+        if (stopped || position <= failedPosition) {
+          return false;
+        }
+        if (!flushRequested) {
+          flushRequested = true;
+          flushNeeded.signal();
+        }
+        flushed.await();
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void runFlusher() {
+    while (!closed) {
+      flushLock.lock();
+      try {
+        if (!flushRequested && !closed) {
+          flushNeeded.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        flushRequested = false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        flushLock.unlock();
+      }
+      force();
+    }
+  }
+
+  /**
+   * Forces the spots and the tickets to the disk, and wakes up the writers waiting for it. If it
+   * fails, the writers waiting for the records appended so far are told their write failed.
+   */
+  private void force() {
+    long pending = ticketLog.getPosition();
+    try {
+      spotTable.force();
+      long forced = ticketLog.force();
+      flushLock.lock();
+      try {
+        durablePosition = Math.max(durablePosition, forced);
+        flushed.signalAll();
+      } finally {
+        flushLock.unlock();
+      }
+    } catch (RuntimeException e) {
+      logger.error("Error forcing the embedded store to the disk", e);
+      flushLock.lock();
+      try {
+        failedPosition = Math.max(failedPosition, pending);
+        flushed.signalAll();
+      } finally {
+        flushLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Stops the flusher, forces the store to the disk and closes its files.
+   */
+  public void close() {
+    flushLock.lock();
+    try {
+      closed = true;
+      flushNeeded.signal();
+    } finally {
+      flushLock.unlock();
+    }
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    force();
+    flushLock.lock();
+    try {
+      stopped = true;
+      flushed.signalAll();
+    } finally {
+      flushLock.unlock();
+    }
+    try {
+      ticketLog.close();
+      spotTable.close();
+    } catch (IOException e) {
+      logger.error("Error closing the embedded store", e);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * The spots of an {@link EmbeddedStore}, one fixed-size record per spot in a memory-mapped file,
+ * so that taking or freeing a spot is a single byte write.
+ *
+ * Layout: a header of magic, version and spot count, then per spot its number (int), parking type
+ * ordinal (byte), availability (byte) and level (short).
+ *
+ */
+final class SpotTable {
+
+  private static final int MAGIC = 0x504b5350;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 12;
+  private static final int RECORD_SIZE = 8;
+  private static final int AVAILABLE_OFFSET = 5;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int size;
+
+  private SpotTable(FileChannel channel, MappedByteBuffer buffer) {
+    this.channel = channel;
+    this.buffer = buffer;
+    this.size = buffer.getInt(8);
+  }
+
+  /**
+   * Opens the spot table, creating it with the given spots if the file does not exist.
+   *
+   * @param file the spot table file
+   * @param initialSpots the spots of a new table
+   * @return the opened table
+   * @throws IOException if the file cannot be mapped or is not a spot table
+   */
+  static SpotTable open(Path file, List<ParkingSpot> initialSpots) throws IOException {
+    boolean created = !Files.exists(file);
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long length = created ? HEADER_SIZE + (long) RECORD_SIZE * initialSpots.size()
+          : channel.size();
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+      if (created) {
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, initialSpots.size());
+        for (int i = 0; i < initialSpots.size(); i++) {
+          ParkingSpot parkingSpot = initialSpots.get(i);
+          int offset = HEADER_SIZE + i * RECORD_SIZE;
+          buffer.putInt(offset, parkingSpot.getId());
+          buffer.put(offset + 4, (byte) parkingSpot.getParkingType().ordinal());
+          buffer.put(offset + AVAILABLE_OFFSET, (byte) (parkingSpot.isAvailable() ? 1 : 0));
+          buffer.putShort(offset + 6, (short) parkingSpot.getLevel());
+        }
+        buffer.force();
+      } else if (length < HEADER_SIZE || buffer.getInt(0) != MAGIC
+          || buffer.getInt(4) != VERSION
+          || length < HEADER_SIZE + (long) RECORD_SIZE * buffer.getInt(8)) {
+        throw new IOException(file + " is not a spot table");
+      }
+      return new SpotTable(channel, buffer);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  int getNumber(int index) {
+    return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE);
+  }
+
+  ParkingType getParkingType(int index) {
+    return ParkingType.values()[buffer.get(HEADER_SIZE + index * RECORD_SIZE + 4)];
+  }
+
+  boolean isAvailable(int index) {
+    return buffer.get(HEADER_SIZE + index * RECORD_SIZE + AVAILABLE_OFFSET) != 0;
+  }
+
+  int getLevel(int index) {
+    return buffer.getShort(HEADER_SIZE + index * RECORD_SIZE + 6);
+  }
+
+  void setAvailable(int index, boolean available) {
+    buffer.put(HEADER_SIZE + index * RECORD_SIZE + AVAILABLE_OFFSET, (byte) (available ? 1 : 0));
+  }
+
+  /**
+   * Writes the changed records to the disk.
+   */
+  void force() {
+    buffer.force();
+  }
+
+  void close() throws IOException {
+    force();
+    channel.close();
+  }
+}
@@ -0,0 +1,204 @@
+package com.parkit.parkingsystem.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * The tickets of an {@link EmbeddedStore}, as an append-only log of ticket opened and ticket
+ * closed records in a memory-mapped file.
+ *
+ * Each record is its payload length (int), the CRC32 of its payload (int), then the payload. The
+ * end of the log is the first zero length. A record whose checksum does not match was torn by a
+ * crash: it and everything after it are discarded when the log is opened. The mapping grows by
+ * doubling, up to 2 GB.
+ *
+ */
+final class TicketLog {
+
+  private static final Logger logger = LogManager.getLogger("TicketLog");
+
+  private static final byte OPENED = 1;
+  private static final byte CLOSED = 2;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int CLOSED_PAYLOAD_SIZE = 1 + 4 + 8 + 8;
+  private static final int INITIAL_CAPACITY = 16 * 1024 * 1024;
+
+  /**
+   * Receives the records of the log when it is opened.
+   */
+  interface RecordHandler {
+
+    void ticketOpened(int ticketId, int parkingNumber, ParkingType parkingType,
+        long inTimeMillis, String vehicleRegNumber);
+
+    void ticketClosed(int ticketId, double price, long outTimeMillis);
+  }
+
+  private final Path file;
+  private final FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int position;
+  private final CRC32 crc = new CRC32();
+
+  private TicketLog(Path file, FileChannel channel, MappedByteBuffer buffer) {
+    this.file = file;
+    this.channel = channel;
+    this.buffer = buffer;
+  }
+
+  /**
+   * Opens the log, creating it if needed, and replays its records.
+   *
+   * @param file the log file
+   * @param handler receives every record, oldest first
+   * @return the log, ready to append after its last valid record
+   * @throws IOException if the file cannot be mapped
+   */
+  static TicketLog open(Path file, RecordHandler handler) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long capacity = Math.max(INITIAL_CAPACITY, channel.size());
+      TicketLog log = new TicketLog(file, channel,
+          channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+      log.replay(handler);
+      return log;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void replay(RecordHandler handler) {
+    int capacity = buffer.capacity();
+    while (position + RECORD_HEADER_SIZE <= capacity) {
+      int length = buffer.getInt(position);
+      if (length == 0) {
+        return;
+      }
+      if (length < 0 || length > capacity - position - RECORD_HEADER_SIZE
+          || buffer.getInt(position + 4) != checksum(position + RECORD_HEADER_SIZE, length)) {
+        logger.warn("Discarding the torn end of {} from byte {}", file, position);
+        // Later appends must never be followed by records that survived the crash out of order.
+        for (int i = position; i < capacity; i++) {
+          buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+        return;
+      }
+      ByteBuffer payload = buffer.duplicate();
+      payload.position(position + RECORD_HEADER_SIZE);
+      if (payload.get() == OPENED) {
+        int ticketId = payload.getInt();
+        int parkingNumber = payload.getInt();
+        ParkingType parkingType = ParkingType.values()[payload.get()];
+        long inTimeMillis = payload.getLong();
+        byte[] vehicleRegNumber = new byte[payload.getShort()];
+        payload.get(vehicleRegNumber);
+        handler.ticketOpened(ticketId, parkingNumber, parkingType, inTimeMillis,
+            new String(vehicleRegNumber, StandardCharsets.UTF_8));
+      } else {
+        handler.ticketClosed(payload.getInt(), payload.getDouble(), payload.getLong());
+      }
+      position += RECORD_HEADER_SIZE + length;
+    }
+  }
+
+  private int checksum(int offset, int length) {
+    ByteBuffer payload = buffer.duplicate();
+    payload.position(offset);
+    payload.limit(offset + length);
+    crc.reset();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * @return the end of the appended record, to pass to {@link EmbeddedStore} durability waits
+   */
+  synchronized long appendOpened(int ticketId, int parkingNumber, ParkingType parkingType,
+      long inTimeMillis, String vehicleRegNumber) throws IOException {
+    byte[] registration = vehicleRegNumber.getBytes(StandardCharsets.UTF_8);
+    int start = reserve(1 + 4 + 4 + 1 + 8 + 2 + registration.length);
+    buffer.put(OPENED).putInt(ticketId).putInt(parkingNumber).put((byte) parkingType.ordinal())
+        .putLong(inTimeMillis).putShort((short) registration.length).put(registration);
+    return commit(start);
+  }
+
+  /**
+   * @return the end of the appended record, to pass to {@link EmbeddedStore} durability waits
+   */
+  synchronized long appendClosed(int ticketId, double price, long outTimeMillis)
+      throws IOException {
+    int start = reserve(CLOSED_PAYLOAD_SIZE);
+    buffer.put(CLOSED).putInt(ticketId).putDouble(price).putLong(outTimeMillis);
+    return commit(start);
+  }
+
+  /**
+   * Makes room for a record and positions the buffer on its payload.
+   */
+  private int reserve(int payloadLength) throws IOException {
+    long end = (long) position + RECORD_HEADER_SIZE + payloadLength;
+    if (end > buffer.capacity()) {
+      if (end > Integer.MAX_VALUE) {
+        throw new IOException(file + " is full");
+      }
+      long capacity = Math.min(Integer.MAX_VALUE, Math.max(end, 2L * buffer.capacity()));
+      buffer.force();
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+    buffer.position(position + RECORD_HEADER_SIZE);
+    return position;
+  }
+
+  /**
+   * Writes the header of the record whose payload was just written: the length goes last, so the
+   * record only becomes part of the log once complete.
+   */
+  private long commit(int start) {
+    int length = buffer.position() - start - RECORD_HEADER_SIZE;
+    buffer.putInt(start + 4, checksum(start + RECORD_HEADER_SIZE, length));
+    buffer.putInt(start, length);
+    position = buffer.position();
+    return position;
+  }
+
+  /**
+   * @return the end of the last record appended
+   */
+  synchronized long getPosition() {
+    return position;
+  }
+
+  /**
+   * Writes the appended records to the disk.
+   *
+   * @return the end of the last record written to the disk
+   */
+  long force() {
+    MappedByteBuffer mapped;
+    long end;
+    synchronized (this) {
+      mapped = buffer;
+      end = position;
+    }
+    // Earlier mappings were forced when replaced, so the current one holds every pending record.
+    mapped.force();
+    return end;
+  }
+
+  void close() throws IOException {
+    force();
+    channel.close();
+  }
+}
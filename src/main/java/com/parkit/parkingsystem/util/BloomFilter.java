@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter of strings.
+ *
+ * {@link #mightContain(String)} never answers false for a string that has been added, and answers
+ * true for a string that has not been added with roughly the false positive probability given at
+ * construction.
+ *
+ */
+public class BloomFilter {
+
+  private final AtomicLongArray bits;
+  private final long bitCount;
+  private final int hashCount;
+
+  /**
+   * @param expectedInsertions the number of strings the filter is sized for
+   * @param falsePositiveProbability the wanted false positive probability, between 0 and 1
+   */
+  public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+    if (expectedInsertions <= 0 || falsePositiveProbability <= 0
+        || falsePositiveProbability >= 1) {
+      throw new IllegalArgumentException("Invalid Bloom filter sizing");
+    }
+    long optimalBits = (long) Math.ceil(
+        -expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) >>> 6);
+    this.bits = new AtomicLongArray(words);
+    this.bitCount = (long) words << 6;
+    this.hashCount =
+        Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+  }
+
+  /**
+   * @param value the string to add
+   */
+  public void put(String value) {
+    long hash64 = hash(value);
+    int hash1 = (int) hash64;
+    int hash2 = (int) (hash64 >>> 32);
+    for (int i = 1; i <= hashCount; i++) {
+      long index = bitIndex(hash1 + i * hash2);
+      int word = (int) (index >>> 6);
+      long mask = 1L << index;
+      long current;
+      while (((current = bits.get(word)) & mask) == 0) {
+        if (bits.compareAndSet(word, current, current | mask)) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * @param value the string to look for
+   * @return false if the string has certainly not been added
+   */
+  public boolean mightContain(String value) {
+    long hash64 = hash(value);
+    int hash1 = (int) hash64;
+    int hash2 = (int) (hash64 >>> 32);
+    for (int i = 1; i <= hashCount; i++) {
+      long index = bitIndex(hash1 + i * hash2);
+      if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long bitIndex(int combinedHash) {
+    return (combinedHash & 0x7fffffffL) % bitCount;
+  }
+
+  /**
+   * 64-bit FNV-1a of the characters, finished with a MurmurHash3 mix so both halves are usable.
+   */
+  static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
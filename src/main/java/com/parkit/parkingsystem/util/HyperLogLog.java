@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem.util;
+
+/**
+ * Estimates the number of distinct strings added, in constant memory (16 KB), within about 1%.
+ *
+ * Sketches of different parts of a stream can be merged to count the distinct strings of the
+ * whole stream. Not thread-safe: each thread fills its own sketch, then they are merged.
+ *
+ */
+public class HyperLogLog {
+
+  private static final int PRECISION = 14;
+  private static final int REGISTER_COUNT = 1 << PRECISION;
+
+  private final byte[] registers = new byte[REGISTER_COUNT];
+
+  /**
+   * @param value the string to count
+   */
+  public void add(String value) {
+    long hash = BloomFilter.hash(value);
+    int register = (int) (hash >>> (64 - PRECISION));
+    // The rank of the first set bit of the remaining bits, the sentinel bit bounding it.
+    int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+    if (rank > registers[register]) {
+      registers[register] = (byte) rank;
+    }
+  }
+
+  /**
+   * @param other a sketch whose strings are added to this one
+   */
+  public void merge(HyperLogLog other) {
+    for (int i = 0; i < REGISTER_COUNT; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct strings added
+   */
+  public long estimate() {
+    double sum = 0;
+    int emptyRegisters = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        emptyRegisters++;
+      }
+    }
+    double alpha = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+    double estimate = alpha * REGISTER_COUNT * REGISTER_COUNT / sum;
+    if (estimate <= 2.5 * REGISTER_COUNT && emptyRegisters > 0) {
+      // Few strings: linear counting of the empty registers is more accurate.
+      estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / emptyRegisters);
+    }
+    return Math.round(estimate);
+  }
+}
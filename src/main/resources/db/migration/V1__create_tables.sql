@@ -0,0 +1,17 @@
+-- Tables of resources/Data.sql, left untouched when they already exist.
+create table if not exists parking(
+ PARKING_NUMBER int PRIMARY KEY,
+ AVAILABLE bool NOT NULL,
+ TYPE varchar(10) NOT NULL
+);
+
+create table if not exists ticket(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER)
+);
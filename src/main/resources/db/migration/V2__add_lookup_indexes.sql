@@ -0,0 +1,8 @@
+-- Latest ticket of a vehicle (GET_TICKET) and recurring users look up by registration.
+create index IDX_TICKET_REG_IN_TIME on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+
+-- Open tickets are the ones without OUT_TIME (GET_OPEN_TICKETS).
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+
+-- Next available spot of a type (GET_NEXT_PARKING_SPOT), answered from the index alone.
+create index IDX_PARKING_AVAILABLE_TYPE on parking(AVAILABLE, TYPE, PARKING_NUMBER);
@@ -0,0 +1,17 @@
+-- Closed tickets moved out of the ticket table by TicketArchiver. ARCHIVE_MONTH is the yyyyMM of
+-- OUT_TIME. On MySQL the table has one partition per month of the year.
+create table if not exists ticket_archive(
+ ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ ARCHIVE_MONTH int NOT NULL,
+ PRIMARY KEY (ID, ARCHIVE_MONTH)
+);
+
+create index IDX_TICKET_ARCHIVE_REG_IN_TIME on ticket_archive(VEHICLE_REG_NUMBER, IN_TIME);
+
+-- @mysql
+alter table ticket_archive partition by hash(mod(ARCHIVE_MONTH, 100)) partitions 12;
@@ -0,0 +1,3 @@
+-- Level of the spot in its site. Each site has its own database (or schema), so the site itself is
+-- the shard and is not stored.
+alter table parking add column PARKING_LEVEL int NOT NULL default 0;
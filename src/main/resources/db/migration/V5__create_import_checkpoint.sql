@@ -0,0 +1,8 @@
+-- Progress of TicketImporter: the last line of the source file imported into each partition,
+-- committed with the tickets of that line so that a resumed import never imports a line twice.
+create table if not exists import_checkpoint(
+ SOURCE varchar(255) NOT NULL,
+ PARTITION_NUMBER int NOT NULL,
+ LINE_NUMBER bigint NOT NULL,
+ PRIMARY KEY (SOURCE, PARTITION_NUMBER)
+);
@@ -0,0 +1,11 @@
+-- Closed tickets per day, hour of exit and parking type, kept up to date by TicketSummaryService
+-- so that dashboards do not scan the ticket table.
+create table if not exists ticket_summary(
+ SUMMARY_DAY DATE NOT NULL,
+ SUMMARY_HOUR int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ TICKET_COUNT bigint NOT NULL,
+ REVENUE double NOT NULL,
+ DURATION_MILLIS bigint NOT NULL,
+ PRIMARY KEY (SUMMARY_DAY, SUMMARY_HOUR, TYPE)
+);
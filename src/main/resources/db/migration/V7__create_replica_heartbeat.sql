@@ -0,0 +1,8 @@
+-- A single row whose BEAT_TIME, in epoch milliseconds, the primary stamps every second or so.
+-- ReplicaSet reads it back from each read replica to measure how far behind the replica is.
+create table if not exists replica_heartbeat(
+ ID int PRIMARY KEY,
+ BEAT_TIME bigint NOT NULL
+);
+
+insert into replica_heartbeat(ID, BEAT_TIME) values(1, 0);
@@ -0,0 +1,5 @@
+-- Replaces the hash partitions of V3, which mixed the same month of every year, with one RANGE
+-- partition per yyyyMM of ARCHIVE_MONTH, so that the months past the retention can be dropped.
+-- TicketArchiver splits the monthly partitions off P_MAX as months go by, and drops the old ones.
+-- @mysql
+alter table ticket_archive partition by range (ARCHIVE_MONTH) (partition P_MAX values less than maxvalue);
@@ -0,0 +1,114 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ActiveTicketCache;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class ActiveTicketCacheTest {
+
+  private ActiveTicketCache activeTicketCache;
+
+  @BeforeEach
+  public void setUp() {
+    activeTicketCache = new ActiveTicketCache();
+  }
+
+  private static Ticket newTicket(int id, String vehicleRegNumber, long inTimeMillis) {
+    Ticket ticket = new Ticket();
+    ticket.setId(id);
+    ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+    ticket.setVehicleRegNumber(vehicleRegNumber);
+    ticket.setInTimeMillis(inTimeMillis);
+    return ticket;
+  }
+
+  @Test
+  public void loadKeepsTheLatestTicketOfEachVehicle() {
+    activeTicketCache.put(newTicket(1, "GONE", 500));
+
+    activeTicketCache.load(Arrays.asList(newTicket(2, "AB-1", 1_000), newTicket(3, "CD-2", 2_000),
+        newTicket(4, "AB-1", 3_000)));
+
+    assertThat(activeTicketCache.size()).isEqualTo(2);
+    assertThat(activeTicketCache.get("AB-1").getId()).isEqualTo(4);
+    assertThat(activeTicketCache.get("CD-2").getId()).isEqualTo(3);
+    assertThat(activeTicketCache.get("GONE")).isNull();
+  }
+
+  @Test
+  public void putIgnoresClosedTicketsAndRemoveForgets() {
+    Ticket closed = newTicket(1, "AB-1", 1_000);
+    closed.setOutTimeMillis(2_000);
+    activeTicketCache.put(closed);
+    assertThat(activeTicketCache.get("AB-1")).isNull();
+
+    activeTicketCache.put(newTicket(2, "AB-1", 3_000));
+    assertThat(activeTicketCache.get("AB-1").getId()).isEqualTo(2);
+    activeTicketCache.remove("AB-1");
+
+    assertThat(activeTicketCache.get("AB-1")).isNull();
+    assertThat(activeTicketCache.size()).isZero();
+  }
+
+  @Test
+  public void storesAndReturnsCopies() {
+    Ticket saved = newTicket(1, "AB-1", 1_000);
+    activeTicketCache.put(saved);
+    saved.setId(99);
+
+    Ticket exit = activeTicketCache.get("AB-1");
+    exit.setOutTimeMillis(2_000);
+    exit.getParkingSpot().setAvailable(true);
+
+    Ticket cached = activeTicketCache.get("AB-1");
+    assertThat(cached).isNotSameAs(exit);
+    assertThat(cached.getId()).isEqualTo(1);
+    assertThat(cached.hasOutTime()).isFalse();
+    assertThat(cached.getParkingSpot().isAvailable()).isFalse();
+  }
+
+  @Test
+  public void refreshOnlyReplacesTheSameVisit() {
+    Ticket saved = newTicket(0, "AB-1", 1_000);
+    activeTicketCache.put(saved);
+    saved.setId(7);
+    activeTicketCache.refresh(saved);
+    assertThat(activeTicketCache.get("AB-1").getId()).isEqualTo(7);
+
+    activeTicketCache.refresh(newTicket(8, "AB-1", 5_000));
+    activeTicketCache.refresh(newTicket(9, "CD-2", 5_000));
+
+    assertThat(activeTicketCache.get("AB-1").getId()).isEqualTo(7);
+    assertThat(activeTicketCache.get("CD-2")).isNull();
+  }
+
+  @Test
+  public void countsHitsAndMisses() {
+    activeTicketCache.put(newTicket(1, "AB-1", 1_000));
+
+    activeTicketCache.get("AB-1");
+    activeTicketCache.get("AB-1");
+    activeTicketCache.get("CD-2");
+
+    assertThat(activeTicketCache.getHitCount()).isEqualTo(2);
+    assertThat(activeTicketCache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void countersArePublishedThroughMetrics() {
+    Metrics.registerCounter("test_cache_hits_total", "Hits of the test cache",
+        activeTicketCache::getHitCount);
+    activeTicketCache.put(newTicket(1, "AB-1", 1_000));
+    activeTicketCache.get("AB-1");
+
+    assertThat(Metrics.getCounters()).containsEntry("test_cache_hits_total", 1L);
+    assertThat(Metrics.toPrometheusText()).contains("# TYPE parkingsystem_test_cache_hits_total"
+        + " counter\nparkingsystem_test_cache_hits_total 1\n");
+  }
+}
@@ -0,0 +1,37 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.util.BloomFilter;
+
+public class BloomFilterTest {
+
+  @Test
+  @DisplayName("Every added registration number is found")
+  public void addedValuesAreAlwaysFound() {
+    BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      bloomFilter.put("AB-" + i);
+    }
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(bloomFilter.mightContain("AB-" + i)).isTrue();
+    }
+  }
+
+  @Test
+  @DisplayName("Unknown registration numbers are rarely reported as present")
+  public void falsePositiveRateIsBounded() {
+    BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      bloomFilter.put("AB-" + i);
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (bloomFilter.mightContain("ZZ-" + i)) {
+        falsePositives++;
+      }
+    }
+    assertThat(falsePositives).isLessThan(300);
+  }
+}
@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.config.ConnectionPool;
+
+public class ConnectionPoolTest {
+
+  private ConnectionPool pool;
+
+  private static Connection newPhysicalConnection() throws SQLException {
+    Connection connection = mock(Connection.class);
+    when(connection.getAutoCommit()).thenReturn(true);
+    when(connection.isValid(anyInt())).thenReturn(true);
+    return connection;
+  }
+
+  @AfterEach
+  private void tearDown() {
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Closing a borrowed connection gives the same physical connection back")
+  public void closedConnectionIsReused() throws SQLException {
+    pool = new ConnectionPool("test", ConnectionPoolTest::newPhysicalConnection, 0, 2, 100,
+        60_000);
+
+    Connection first = pool.borrow();
+    first.close();
+    Connection second = pool.borrow();
+    second.close();
+
+    assertThat(first.isClosed()).isTrue();
+    assertThat(pool.getStats().getCreatedCount()).isEqualTo(1);
+    assertThat(pool.getStats().getBorrowCount()).isEqualTo(2);
+    assertThat(pool.getStats().getIdleConnections()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("The pool opens its minimum size at start-up")
+  public void minimumSizeIsOpenedEagerly() {
+    pool = new ConnectionPool("test", ConnectionPoolTest::newPhysicalConnection, 2, 4, 100,
+        60_000);
+
+    assertThat(pool.getStats().getTotalConnections()).isEqualTo(2);
+    assertThat(pool.getStats().getIdleConnections()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Borrowing from an exhausted pool times out")
+  public void exhaustedPoolTimesOut() throws SQLException {
+    pool = new ConnectionPool("test", ConnectionPoolTest::newPhysicalConnection, 0, 1, 50,
+        60_000);
+    pool.borrow();
+
+    assertThrows(SQLTimeoutException.class, () -> pool.borrow());
+    assertThat(pool.getStats().getTimeoutCount()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("A returned connection left in a transaction is rolled back")
+  public void openTransactionIsRolledBackOnClose() throws SQLException {
+    Connection physical = newPhysicalConnection();
+    when(physical.getAutoCommit()).thenReturn(false);
+    pool = new ConnectionPool("test", () -> physical, 0, 1, 100, 60_000);
+
+    pool.borrow().close();
+
+    verify(physical).rollback();
+    verify(physical).setAutoCommit(true);
+  }
+
+  @Test
+  @DisplayName("A handle cannot be used once it is given back")
+  public void closedHandleCannotBeUsed() throws SQLException {
+    pool = new ConnectionPool("test", ConnectionPoolTest::newPhysicalConnection, 0, 1, 100,
+        60_000);
+    Connection connection = pool.borrow();
+    connection.close();
+
+    assertThrows(SQLException.class, () -> connection.prepareStatement("select 1"));
+  }
+
+  @Test
+  @DisplayName("A closed prepared statement is reused by the next borrower of the connection")
+  public void preparedStatementsAreCached() throws SQLException {
+    Connection physical = newPhysicalConnection();
+    PreparedStatement select = mock(PreparedStatement.class);
+    PreparedStatement update = mock(PreparedStatement.class);
+    when(physical.prepareStatement("select 1")).thenReturn(select);
+    when(physical.prepareStatement("update 1")).thenReturn(update);
+    pool = new ConnectionPool("test", () -> physical, 0, 1, 100, 60_000, 1);
+
+    Connection connection = pool.borrow();
+    PreparedStatement first = connection.prepareStatement("select 1");
+    first.close();
+    connection.close();
+    connection = pool.borrow();
+    connection.prepareStatement("select 1").close();
+    // The cache holds a single statement: caching the update evicts the select.
+    connection.prepareStatement("update 1").close();
+    connection.close();
+
+    assertThat(first.isClosed()).isTrue();
+    verify(physical, times(1)).prepareStatement("select 1");
+    verify(select, times(2)).clearParameters();
+    verify(select).close();
+    verify(update, never()).close();
+    assertThat(pool.getStats().getStatementHitCount()).isEqualTo(1);
+    assertThat(pool.getStats().getStatementMissCount()).isEqualTo(2);
+    assertThat(pool.getStats().getStatementHitRatio()).isEqualTo(1.0 / 3);
+  }
+}
@@ -0,0 +1,114 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.EmbeddedParkingSpotDAO;
+import com.parkit.parkingsystem.dao.EmbeddedTicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+
+public class EmbeddedStoreTest {
+
+  private Path directory;
+  private EmbeddedStore embeddedStore;
+  private ParkingService parkingService;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("embedded-store");
+    open();
+  }
+
+  private void open() throws IOException {
+    embeddedStore = EmbeddedStore.open(directory, EmbeddedStore.parseSpots("CAR:2,BIKE:1"),
+        TicketWriteBehind.Acknowledgement.AWAIT_FLUSH, 100);
+    parkingService = new ParkingService(null, new EmbeddedParkingSpotDAO(embeddedStore),
+        new EmbeddedTicketDAO(embeddedStore));
+  }
+
+  private void reopen() throws IOException {
+    embeddedStore.close();
+    open();
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    embeddedStore.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void ticketsAndSpotsAreRecoveredWhenReopened() throws Exception {
+    parkingService.processIncomingVehicle(ParkingType.CAR, "AAA");
+    parkingService.processExitingVehicle("AAA");
+    Ticket parked = parkingService.processIncomingVehicle(ParkingType.CAR, "BBB");
+
+    reopen();
+
+    assertThat(embeddedStore.isRecurrentUser("AAA")).isTrue();
+    assertThat(embeddedStore.getTicket("AAA").getOutTime()).isNotNull();
+    assertThat(embeddedStore.getOpenTickets()).extracting(Ticket::getVehicleRegNumber)
+        .containsExactly("BBB");
+    assertThat(embeddedStore.getTicket("BBB").getId()).isEqualTo(parked.getId());
+    assertThat(embeddedStore.getTicket("BBB").getParkingSpot().getId())
+        .isEqualTo(parked.getParkingSpot().getId());
+    assertThat(embeddedStore.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+    Ticket next = parkingService.processIncomingVehicle(ParkingType.CAR, "CCC");
+    assertThat(next.getId()).isGreaterThan(parked.getId());
+    assertThat(embeddedStore.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(0);
+  }
+
+  @Test
+  public void parkedVehicleCannotEnterAgain() throws Exception {
+    parkingService.processIncomingVehicle(ParkingType.CAR, "AAA");
+
+    assertThatThrownBy(() -> parkingService.processIncomingVehicle(ParkingType.CAR, "AAA"))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(embeddedStore.getOpenTickets()).hasSize(1);
+    assertThat(embeddedStore.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+  }
+
+  @Test
+  public void tornEndOfTheLogIsDiscarded() throws Exception {
+    parkingService.processIncomingVehicle(ParkingType.BIKE, "AAA");
+    embeddedStore.close();
+    try (RandomAccessFile log = new RandomAccessFile(directory.resolve("tickets.log").toFile(),
+        "rw")) {
+      long end = 0;
+      for (long i = 0; i < 4096; i++) {
+        log.seek(i);
+        if (log.read() != 0) {
+          end = i + 1;
+        }
+      }
+      // A closed record whose payload never reached the disk.
+      log.seek(end);
+      log.writeInt(21);
+      log.writeInt(0x12345678);
+      log.write(2);
+    }
+
+    open();
+
+    assertThat(embeddedStore.getOpenTickets()).extracting(Ticket::getVehicleRegNumber)
+        .containsExactly("AAA");
+    parkingService.processExitingVehicle("AAA");
+    reopen();
+    assertThat(embeddedStore.getOpenTickets()).isEmpty();
+    assertThat(embeddedStore.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(3);
+  }
+}
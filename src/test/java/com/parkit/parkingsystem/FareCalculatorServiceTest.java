@@ -2,6 +2,7 @@ package com.parkit.parkingsystem;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Calendar;
 import java.util.Date;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -57,6 +58,24 @@ public class FareCalculatorServiceTest {
     assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(ticket));
   }
 
+  @Test
+  @DisplayName("Throws an IllegalArgumentException when the InTime is not set.")
+  public void calculateFareWithoutInTime() {
+    ticket.setOutTime(new Date());
+    ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+    assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(ticket));
+  }
+
+  @Test
+  @DisplayName("An OutTime of -1 millis is a valid instant.")
+  public void calculateFareWithOutTimeJustBeforeTheEpoch() {
+    ticket.setInTimeMillis(-60 * 60 * 1000 - 1);
+    ticket.setOutTimeMillis(-1);
+    ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+    assertThat(ticket.hasOutTime()).isTrue();
+    fareCalculatorService.calculateFare(ticket);
+    assertThat(ticket.getPrice()).isPositive();
+  }
 
   // Use of DisplayName tag and assertThat to better read the test.
   @Test
@@ -292,4 +311,37 @@ public class FareCalculatorServiceTest {
     // THEN
     assertThat(priceAfter).isEqualTo(priceBefore - (priceBefore * 0.05));
   }
+
+  @Test
+  @Tag("CAR")
+  @DisplayName("2 hours of car parking across the new year are 2 hours of the fare")
+  public void calculateFareCarAcrossYearBoundary() {
+    ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+    Calendar calendar = Calendar.getInstance();
+    calendar.set(2019, Calendar.DECEMBER, 31, 23, 0, 0);
+    ticket.setInTime(calendar.getTime());
+    calendar.set(2020, Calendar.JANUARY, 1, 1, 0, 0);
+    ticket.setOutTime(calendar.getTime());
+    ticket.setParkingSpot(parkingSpot);
+
+    fareCalculatorService.calculateFare(ticket);
+
+    assertThat(ticket.getPrice()).isEqualTo(2 * Fare.CAR_RATE_PER_HOUR);
+  }
+
+  @Test
+  @DisplayName("Tickets held column by column are priced and discounted in one call")
+  public void calculateFaresOfColumns() {
+    long now = System.currentTimeMillis();
+    ParkingType[] parkingTypes = {ParkingType.CAR, ParkingType.BIKE, ParkingType.CAR};
+    long[] inTimes = {now - 60 * 60 * 1000, now - 60 * 60 * 1000, now - 10 * 60 * 1000};
+    long[] outTimes = {now, now, now};
+    boolean[] recurringUsers = {false, true, false};
+    double[] prices = new double[3];
+
+    fareCalculatorService.calculateFares(parkingTypes, inTimes, outTimes, recurringUsers, prices);
+
+    assertThat(prices).containsExactly(Fare.CAR_RATE_PER_HOUR,
+        fareCalculatorService.discount(Fare.BIKE_RATE_PER_HOUR), 0.0);
+  }
 }
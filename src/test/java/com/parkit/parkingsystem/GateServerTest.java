@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateServer;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class GateServerTest {
+
+  private ParkingService parkingService;
+  private GateServer gateServer;
+
+  @BeforeEach
+  private void setUpPerTest() throws Exception {
+    parkingService = mock(ParkingService.class);
+    Ticket ticket = new Ticket();
+    ticket.setParkingSpot(new ParkingSpot(3, ParkingType.CAR, false));
+    ticket.setVehicleRegNumber("ABCDEF");
+    ticket.setInTime(new Date(1000));
+    when(parkingService.processIncomingVehicle(ParkingType.CAR, "ABCDEF")).thenReturn(ticket);
+    gateServer = new GateServer(parkingService, 0, 4);
+  }
+
+  @Test
+  @DisplayName("An entering vehicle is given its spot number")
+  public void enterAnswersTheSpotNumber() {
+    assertThat(gateServer.handleRequest("ENTER car ABCDEF")).isEqualTo("OK 3 1000");
+  }
+
+  @Test
+  @DisplayName("Malformed requests are answered with an error")
+  public void malformedRequestsAreRejected() {
+    assertThat(gateServer.handleRequest("ENTER CAR")).startsWith("ERROR");
+    assertThat(gateServer.handleRequest("ENTER TRUCK ABCDEF")).startsWith("ERROR");
+    assertThat(gateServer.handleRequest("PARK ABCDEF")).startsWith("ERROR");
+  }
+
+  @Test
+  @DisplayName("Requests are served over the local socket")
+  public void requestsAreServedOverTheSocket() throws Exception {
+    gateServer.start();
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateServer.getLocalPort());
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+      out.println("ENTER CAR ABCDEF");
+      assertThat(in.readLine()).isEqualTo("OK 3 1000");
+      out.println("QUIT");
+    } finally {
+      gateServer.stop();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.Phase;
+
+public class LatencyHistogramTest {
+
+  @AfterEach
+  private void tearDown() {
+    Metrics.setEnabled(false);
+    Metrics.reset();
+  }
+
+  @Test
+  @DisplayName("Percentiles are within 3% of the recorded values, whatever their magnitude")
+  public void percentilesAreAccurate() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 100_000; value++) {
+      histogram.record(value * 1_000);
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(100_000);
+    assertThat(histogram.getMax()).isEqualTo(100_000_000);
+    assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(50_000_000, within(1.5e6));
+    assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(99_000_000, within(3e6));
+    assertThat(histogram.getValueAtPercentile(0)).isBetween(970L, 1_000L);
+  }
+
+  @Test
+  @DisplayName("Nothing is recorded while metrics are disabled")
+  public void disabledMetricsRecordNothing() {
+    Metrics.stop(Phase.TICKET_SAVE, Metrics.start());
+    Metrics.fail(Phase.TICKET_SAVE);
+    assertThat(Metrics.getHistogram(Phase.TICKET_SAVE).getCount()).isZero();
+
+    Metrics.setEnabled(true);
+    Metrics.stop(Phase.TICKET_SAVE, Metrics.start());
+    Metrics.fail(Phase.TICKET_SAVE);
+    assertThat(Metrics.getHistogram(Phase.TICKET_SAVE).getCount()).isEqualTo(1);
+    assertThat(Metrics.toPrometheusText())
+        .contains("parkingsystem_phase_duration_seconds_count{phase=\"ticket_save\"} 1")
+        .contains("parkingsystem_phase_failures_total{phase=\"ticket_save\"} 1");
+  }
+}
@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.LoadGenerator;
+import com.parkit.parkingsystem.service.LoadReport;
+import com.parkit.parkingsystem.service.OccupancyService;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+
+public class LoadGeneratorTest {
+
+  private InMemoryTicketDAO ticketDAO;
+  private InMemoryParkingSpotDAO parkingSpotDAO;
+  private ParkingService parkingService;
+
+  @BeforeEach
+  public void setUp() {
+    ticketDAO = new InMemoryTicketDAO();
+    parkingSpotDAO =
+        new InMemoryParkingSpotDAO(EmbeddedStore.parseSpots("CAR:40,BIKE:40"), ticketDAO);
+    parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+  }
+
+  @Test
+  public void gatesKeepTheirVehiclesParkedThenLetThemAllOut() throws Exception {
+    OccupancyService occupancyService = new OccupancyService(parkingSpotDAO);
+
+    LoadReport report = new LoadGenerator(parkingService, 4, 10).run(2_000, 500);
+
+    assertThat(report.getFailureCount()).isZero();
+    assertThat(report.getEntryCount()).isGreaterThan(40);
+    assertThat(report.getExitCount()).isEqualTo(report.getEntryCount() - 40);
+    assertThat(report.getEntryLatency().getCount()).isEqualTo(report.getEntryCount());
+    assertThat(ticketDAO.getOpenTickets()).isEmpty();
+    assertThat(occupancyService.getFreeSpots(ParkingType.CAR)).isEqualTo(40);
+    assertThat(occupancyService.getFreeSpots(ParkingType.BIKE)).isEqualTo(40);
+  }
+
+  @Test
+  public void inMemoryTicketsAreCopiedInAndOut() throws Exception {
+    Ticket parked = parkingService.processIncomingVehicle(ParkingType.CAR, "ABC");
+    Ticket read = ticketDAO.getTicket("ABC");
+    read.setPrice(42);
+    assertThat(ticketDAO.getTicket("ABC").getPrice()).isZero();
+    assertThat(parkingSpotDAO.recurrentUser("ABC")).isFalse();
+
+    parkingService.processExitingVehicle("ABC");
+    parkingService.processIncomingVehicle(ParkingType.CAR, "ABC");
+
+    // The first ticket is no longer the latest one of the vehicle.
+    assertThat(ticketDAO.updateTicket(parked)).isFalse();
+    assertThat(parkingSpotDAO.recurrentUser("ABC")).isTrue();
+    assertThat(ticketDAO.getOpenTickets()).extracting(Ticket::getId)
+        .containsExactly(parked.getId() + 1);
+    assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+  }
+
+  @Test
+  public void inMemoryTicketIsNotSavedOverAnOpenOne() throws Exception {
+    Ticket parked = parkingService.processIncomingVehicle(ParkingType.CAR, "ABC");
+    Ticket again = ticketDAO.getTicket("ABC");
+    again.setId(0);
+
+    assertThat(ticketDAO.saveTicket(again)).isFalse();
+    assertThat(again.getId()).isZero();
+    assertThat(ticketDAO.getOpenTickets()).extracting(Ticket::getId)
+        .containsExactly(parked.getId());
+
+    parkingService.processExitingVehicle("ABC");
+    assertThat(ticketDAO.saveTicket(again)).isTrue();
+    assertThat(again.getId()).isEqualTo(parked.getId() + 1);
+  }
+}
@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.OccupancyService;
+
+public class OccupancyServiceTest {
+
+  private H2DataBaseConfig dataBaseConfig;
+  private JdbcParkingSpotDAO parkingSpotDAO;
+  private OccupancyService occupancyService;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    dataBaseConfig = H2DataBaseConfig.withSchema("occupancy", 3, 2);
+    parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    occupancyService = new OccupancyService(parkingSpotDAO);
+  }
+
+  @Test
+  public void spotsTakenAndFreedThroughTheDAOAreCountedAndPushed() {
+    List<String> changes = new ArrayList<>();
+    occupancyService.subscribe((parkingType, free, occupied) -> changes
+        .add(parkingType + " " + free + "/" + occupied));
+
+    assertThat(occupancyService.getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+    int slot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+    parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE);
+    assertThat(occupancyService.getFreeSpots(ParkingType.CAR)).isEqualTo(2);
+    assertThat(occupancyService.getOccupiedSpots(ParkingType.CAR)).isEqualTo(1);
+    assertThat(occupancyService.getFreeSpots(ParkingType.BIKE)).isEqualTo(1);
+
+    parkingSpotDAO.updateParking(new ParkingSpot(slot, ParkingType.CAR, true));
+    assertThat(occupancyService.getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+    assertThat(changes).containsExactly("CAR 2/1", "BIKE 1/1", "CAR 3/0");
+  }
+
+  @Test
+  public void reconcileCatchesUpWithSpotsChangedInTheDB() throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      connection.createStatement()
+          .executeUpdate("update parking set AVAILABLE = false where TYPE = 'CAR'");
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+    assertThat(occupancyService.getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+
+    assertThat(occupancyService.reconcile()).isTrue();
+    assertThat(occupancyService.getFreeSpots(ParkingType.CAR)).isZero();
+    assertThat(occupancyService.getOccupiedSpots(ParkingType.CAR)).isEqualTo(3);
+    assertThat(occupancyService.getFreeSpots(ParkingType.BIKE)).isEqualTo(2);
+  }
+
+  @Test
+  public void reconcileRetakesASnapshotReadWhileASpotWasTaken() {
+    JdbcParkingSpotDAO racingDAO = new JdbcParkingSpotDAO() {
+      private int reads;
+
+      @Override
+      public List<ParkingSpot> getParkingSpots() {
+        List<ParkingSpot> parkingSpots = super.getParkingSpots();
+        // The first read is the one of the constructor, once the changes are followed.
+        if (++reads == 1) {
+          claimNextAvailableSlot(ParkingType.CAR);
+        }
+        return parkingSpots;
+      }
+    };
+    racingDAO.dataBaseConfig = dataBaseConfig;
+    OccupancyService racedService = new OccupancyService(racingDAO);
+
+    assertThat(racedService.getFreeSpots(ParkingType.CAR)).isEqualTo(2);
+    assertThat(racedService.getOccupiedSpots(ParkingType.CAR)).isEqualTo(1);
+    assertThat(racedService.reconcile()).isTrue();
+    assertThat(racedService.getFreeSpots(ParkingType.CAR)).isEqualTo(2);
+    assertThat(racedService.getOccupiedSpots(ParkingType.CAR)).isEqualTo(1);
+  }
+}
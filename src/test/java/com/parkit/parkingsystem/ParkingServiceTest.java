@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.verify;
@@ -8,6 +9,7 @@ import java.util.Date;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -58,4 +60,15 @@ public class ParkingServiceTest {
     parkingService.processExitingVehicle();
     verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
   }
+
+  @Test
+  public void processExitingVehicleOfRecurringUserTest() {
+    when(parkingSpotDAO.recurrentUser("ABCDEF")).thenReturn(true);
+
+    parkingService.processExitingVehicle();
+
+    ArgumentCaptor<Ticket> updated = ArgumentCaptor.forClass(Ticket.class);
+    verify(ticketDAO).updateTicket(updated.capture());
+    assertThat(updated.getValue().isDiscounted()).isTrue();
+  }
 }
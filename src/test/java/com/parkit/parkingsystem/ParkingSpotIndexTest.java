@@ -0,0 +1,270 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotIndex;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class ParkingSpotIndexTest {
+
+  private ParkingSpotIndex parkingSpotIndex;
+
+  @BeforeEach
+  private void setUpPerTest() {
+    parkingSpotIndex = new ParkingSpotIndex();
+    parkingSpotIndex.load(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, false),
+        new ParkingSpot(2, ParkingType.CAR, true), new ParkingSpot(3, ParkingType.CAR, true),
+        new ParkingSpot(4, ParkingType.BIKE, true), new ParkingSpot(5, ParkingType.BIKE, true)));
+  }
+
+  @Test
+  @DisplayName("The lowest free spot of the requested type is returned")
+  public void nextAvailableSlotIsTheLowestFreeSpot() {
+    assertThat(parkingSpotIndex.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+    assertThat(parkingSpotIndex.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("Spot updates are written through to the index")
+  public void updateIsWrittenThrough() {
+    parkingSpotIndex.update(new ParkingSpot(2, ParkingType.CAR, false));
+    assertThat(parkingSpotIndex.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(3);
+
+    parkingSpotIndex.update(new ParkingSpot(1, ParkingType.CAR, true));
+    assertThat(parkingSpotIndex.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+    assertThat(parkingSpotIndex.countAvailableSlots(ParkingType.CAR)).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("0 is returned when every spot of the type is taken")
+  public void fullParkingReturnsZero() {
+    parkingSpotIndex.update(new ParkingSpot(4, ParkingType.BIKE, false));
+    parkingSpotIndex.update(new ParkingSpot(5, ParkingType.BIKE, false));
+    assertThat(parkingSpotIndex.getNextAvailableSlot(ParkingType.BIKE)).isZero();
+  }
+
+  @Test
+  @DisplayName("Claimed spots are taken out of the index")
+  public void claimTakesTheLowestFreeSpot() {
+    assertThat(parkingSpotIndex.claim(ParkingType.CAR)).isEqualTo(2);
+    assertThat(parkingSpotIndex.claim(ParkingType.CAR)).isEqualTo(3);
+    assertThat(parkingSpotIndex.claim(ParkingType.CAR)).isZero();
+    assertThat(parkingSpotIndex.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("Concurrent gates never claim the same spot twice")
+  public void concurrentClaimsNeverDoubleAllocate() throws Exception {
+    int spots = 20_000;
+    int gates = 48;
+    List<ParkingSpot> parkingSpots = new ArrayList<>();
+    for (int number = 1; number <= spots; number++) {
+      parkingSpots.add(new ParkingSpot(number, (number % 2 == 0) ? ParkingType.CAR
+          : ParkingType.BIKE, true));
+    }
+    parkingSpotIndex.load(parkingSpots);
+
+    Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+    Set<Integer> released = ConcurrentHashMap.newKeySet();
+    AtomicInteger doubleAllocations = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(gates);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int gate = 0; gate < gates; gate++) {
+      ParkingType parkingType = (gate % 2 == 0) ? ParkingType.CAR : ParkingType.BIKE;
+      futures.add(executor.submit(() -> {
+        start.await();
+        int slot;
+        while ((slot = parkingSpotIndex.claim(parkingType)) > 0) {
+          if (!claimed.add(slot)) {
+            doubleAllocations.incrementAndGet();
+          }
+          // Every tenth vehicle leaves straight away, once, and its spot is claimed again.
+          if (slot % 10 == 0 && released.add(slot) && claimed.remove(slot)) {
+            parkingSpotIndex.update(new ParkingSpot(slot, parkingType, true));
+          }
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertThat(doubleAllocations.get()).isZero();
+    assertThat(parkingSpotIndex.countAvailableSlots(ParkingType.CAR)
+        + parkingSpotIndex.countAvailableSlots(ParkingType.BIKE) + claimed.size())
+            .isEqualTo(spots);
+  }
+
+  private static final int DB_SPOTS = 60;
+  private static final int DB_GATES = 8;
+
+  private static int count(H2DataBaseConfig dataBaseConfig, String sql) throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      ResultSet rs = connection.createStatement().executeQuery(sql);
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  /**
+   * Has every gate claim spots until the parking is full.
+   *
+   * @return the claimed spots, with the number of times each was claimed
+   */
+  private static Map<Integer, Integer> claimConcurrently(JdbcParkingSpotDAO parkingSpotDAO)
+      throws Exception {
+    Map<Integer, Integer> claims = new ConcurrentHashMap<>();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(DB_GATES);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int gate = 0; gate < DB_GATES; gate++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        int slot;
+        // -1 is a lost race on the DB query of every attempt: the gate tries again.
+        while ((slot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)) != 0) {
+          if (slot > 0) {
+            claims.merge(slot, 1, Integer::sum);
+          }
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    return claims;
+  }
+
+  @Test
+  @DisplayName("Concurrent gates never claim the same DB spot twice through the index")
+  public void concurrentDataBaseClaimsThroughTheIndexNeverDoubleAllocate() throws Exception {
+    H2DataBaseConfig dataBaseConfig = H2DataBaseConfig.withSchema("indexClaims", DB_SPOTS, 0);
+    JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    parkingSpotDAO.enableSpotIndex(3600);
+    // Taken behind the back of the index, which still has them free.
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      statement.execute("update parking set AVAILABLE = false where PARKING_NUMBER <= 5");
+      statement.close();
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+
+    Map<Integer, Integer> claims;
+    try {
+      claims = claimConcurrently(parkingSpotDAO);
+    } finally {
+      parkingSpotDAO.disableSpotIndex();
+    }
+
+    assertThat(claims.values()).allMatch(times -> times == 1);
+    assertThat(claims).hasSize(DB_SPOTS - 5).doesNotContainKeys(1, 2, 3, 4, 5);
+    assertThat(count(dataBaseConfig, "select count(*) from parking where AVAILABLE = true"))
+        .isZero();
+  }
+
+  @Test
+  @DisplayName("Concurrent gates never claim the same DB spot twice without the index")
+  public void concurrentDataBaseClaimsWithoutTheIndexNeverDoubleAllocate() throws Exception {
+    H2DataBaseConfig dataBaseConfig = H2DataBaseConfig.withSchema("dbClaims", DB_SPOTS, 0);
+    JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+
+    Map<Integer, Integer> claims = claimConcurrently(parkingSpotDAO);
+
+    assertThat(claims.values()).allMatch(times -> times == 1);
+    assertThat(claims).hasSize(DB_SPOTS);
+    assertThat(count(dataBaseConfig, "select count(*) from parking where AVAILABLE = true"))
+        .isZero();
+  }
+
+  @Test
+  @DisplayName("Vehicles entering through concurrent gates never get the same spot")
+  public void concurrentEntriesNeverShareASpot() throws Exception {
+    H2DataBaseConfig dataBaseConfig = H2DataBaseConfig.withSchema("entryClaims", DB_SPOTS, 0);
+    JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    parkingSpotDAO.enableSpotIndex(3600);
+    JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+    ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+
+    Set<Integer> spots = ConcurrentHashMap.newKeySet();
+    AtomicInteger sharedSpots = new AtomicInteger();
+    AtomicInteger refused = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(DB_GATES);
+    List<Future<?>> futures = new ArrayList<>();
+    // More vehicles than spots: the last ones are refused.
+    int vehiclesPerGate = DB_SPOTS / DB_GATES + 2;
+    for (int gate = 0; gate < DB_GATES; gate++) {
+      String prefix = "G" + gate + "-";
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int vehicle = 0; vehicle < vehiclesPerGate; vehicle++) {
+          try {
+            Ticket ticket =
+                parkingService.processIncomingVehicle(ParkingType.CAR, prefix + vehicle);
+            if (!spots.add(ticket.getParkingSpot().getId())) {
+              sharedSpots.incrementAndGet();
+            }
+          } catch (Exception e) {
+            refused.incrementAndGet();
+          }
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    try {
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+      parkingSpotDAO.disableSpotIndex();
+    }
+
+    assertThat(sharedSpots.get()).isZero();
+    assertThat(spots).hasSize(DB_SPOTS);
+    assertThat(refused.get()).isEqualTo(DB_GATES * vehiclesPerGate - DB_SPOTS);
+    assertThat(count(dataBaseConfig, "select count(distinct PARKING_NUMBER) from ticket"))
+        .isEqualTo(DB_SPOTS);
+    assertThat(count(dataBaseConfig, "select count(*) from ticket")).isEqualTo(DB_SPOTS);
+  }
+}
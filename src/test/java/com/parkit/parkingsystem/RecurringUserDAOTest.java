@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.dao.RecurringUserDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+
+public class RecurringUserDAOTest {
+
+  private H2DataBaseConfig dataBaseConfig;
+  private RecurringUserDAO recurringUserDAO;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    dataBaseConfig = spy(H2DataBaseConfig.withSchema("recurringUsers", 2, 0));
+    recurringUserDAO = new RecurringUserDAO();
+    recurringUserDAO.dataBaseConfig = dataBaseConfig;
+  }
+
+  private void insertTicket(String vehicleRegNumber, boolean closed) throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME,"
+          + " OUT_TIME) values(1, '" + vehicleRegNumber + "', 1.5, dateadd('HOUR', -2, now()), "
+          + (closed ? "dateadd('HOUR', -1, now())" : "null") + ")");
+      statement.close();
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  @Test
+  public void findsCompletedVisitsOnly() throws Exception {
+    insertTicket("DONE", true);
+    insertTicket("PARKED", false);
+
+    assertThat(recurringUserDAO.isRecurrentUser("DONE")).isTrue();
+    assertThat(recurringUserDAO.isRecurrentUser("PARKED")).isFalse();
+    assertThat(recurringUserDAO.isRecurrentUser("UNKNOWN")).isFalse();
+  }
+
+  @Test
+  public void noIsNotCached() throws Exception {
+    assertThat(recurringUserDAO.isRecurrentUser("AB-1")).isFalse();
+
+    // Written by another process, without recordCompletedVisit.
+    insertTicket("AB-1", true);
+
+    assertThat(recurringUserDAO.isRecurrentUser("AB-1")).isTrue();
+  }
+
+  @Test
+  public void dataBaseErrorIsNotCached() throws Exception {
+    insertTicket("AB-1", true);
+    doThrow(new SQLException("Connection refused")).doCallRealMethod().when(dataBaseConfig)
+        .getReadConnection();
+
+    assertThat(recurringUserDAO.isRecurrentUser("AB-1")).isFalse();
+    assertThat(recurringUserDAO.isRecurrentUser("AB-1")).isTrue();
+  }
+
+  @Test
+  public void yesIsCached() throws Exception {
+    insertTicket("AB-1", true);
+    assertThat(recurringUserDAO.isRecurrentUser("AB-1")).isTrue();
+    doThrow(new SQLException("Connection refused")).when(dataBaseConfig).getReadConnection();
+
+    assertThat(recurringUserDAO.isRecurrentUser("AB-1")).isTrue();
+  }
+
+  @Test
+  public void completedVisitIsRecordedInTheLoadedFilter() throws Exception {
+    insertTicket("DONE", true);
+    assertThat(recurringUserDAO.load()).isTrue();
+    doThrow(new SQLException("Connection refused")).when(dataBaseConfig).getReadConnection();
+
+    assertThat(recurringUserDAO.isRecurrentUser("NEW")).isFalse();
+    recurringUserDAO.recordCompletedVisit("NEW");
+
+    assertThat(recurringUserDAO.isRecurrentUser("NEW")).isTrue();
+  }
+}
@@ -0,0 +1,131 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ReplicaSet;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+public class ReplicaSetTest {
+
+  private static final String REPLICA_URL =
+      "jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+  private H2DataBaseConfig primary;
+  private H2DataBaseConfig replica;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    primary = new H2DataBaseConfig("primary") {
+      @Override
+      protected List<String> getReplicaUrls() {
+        return Collections.singletonList(REPLICA_URL);
+      }
+
+      @Override
+      protected long getReplicaMaxLagMillis() {
+        return 60_000;
+      }
+    };
+    primary.createSchema(3, 2);
+    replica = H2DataBaseConfig.withSchema("replica", 3, 2);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    DataBaseConfig.closeConnectionPools();
+  }
+
+  private static long query(DataBaseConfig dataBaseConfig, String sql) throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try (Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery(sql)) {
+      return rs.next() ? rs.getLong(1) : -1;
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  private static void execute(DataBaseConfig dataBaseConfig, String sql) throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  /**
+   * Stands for the replication of the heartbeat row.
+   */
+  private void replicateHeartbeat() throws Exception {
+    execute(replica, "update replica_heartbeat set BEAT_TIME = "
+        + query(primary, "select BEAT_TIME from replica_heartbeat"));
+  }
+
+  private static String urlOf(Connection connection) throws Exception {
+    try {
+      return connection.getMetaData().getURL();
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void stalenessTolerantReadsGoToTheReplicaOnceInSyncAndWritesToThePrimary()
+      throws Exception {
+    assertThat(urlOf(primary.getReadConnection())).contains("primary");
+
+    replicateHeartbeat();
+    assertThat(primary.getReplicaSet().checkLag()).isEqualTo(1);
+    assertThat(urlOf(primary.getReadConnection())).contains("replica");
+
+    execute(replica, "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME,"
+        + " OUT_TIME) values(1, 'ABC', 1.5, '2024-01-01 10:00:00', '2024-01-01 11:00:00')");
+    JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = primary;
+    assertThat(parkingSpotDAO.recurrentUser("ABC")).isTrue();
+    assertThat(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+    assertThat(query(primary, "select count(*) from parking where AVAILABLE = false"))
+        .isEqualTo(1);
+    assertThat(query(replica, "select count(*) from parking where AVAILABLE = false"))
+        .isZero();    assertThat(parkingSpotDAO.getParkingSpots()).filteredOn(spot -> !spot.isAvailable())
+        .extracting(ParkingSpot::getId).containsExactly(1);
+  }
+
+  @Test
+  public void laggingOrUnreachableReplicasStopServingReads() throws Exception {
+    H2DataBaseConfig unreachable = new H2DataBaseConfig("unreachable") {
+      @Override
+      protected String getUrl() {
+        return "jdbc:h2:tcp://localhost:1/unreachable";
+      }
+    };
+    ReplicaSet replicaSet = new ReplicaSet(primary, Collections.singletonList(replica), 200);
+    assertThat(replicaSet.borrow()).isNull();
+
+    assertThat(replicaSet.checkLag()).isZero();
+    replicateHeartbeat();
+    assertThat(replicaSet.checkLag()).isEqualTo(1);
+    Connection connection = replicaSet.borrow();
+    assertThat(urlOf(connection)).contains("replica");
+
+    Thread.sleep(300);
+    assertThat(replicaSet.checkLag()).isZero();
+    assertThat(replicaSet.borrow()).isNull();
+
+    replicaSet = new ReplicaSet(primary, Collections.singletonList(unreachable), 60_000);
+    assertThat(replicaSet.checkLag()).isZero();
+    assertThat(replicaSet.borrow()).isNull();
+  }
+}
@@ -0,0 +1,145 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ReportDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.TicketBatch;
+import com.parkit.parkingsystem.report.ParkingReport;
+import com.parkit.parkingsystem.report.ReportEngine;
+
+public class ReportEngineTest {
+
+  private H2DataBaseConfig dataBaseConfig;
+  private ReportDAO reportDAO;
+  private ReportEngine reportEngine;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    dataBaseConfig = H2DataBaseConfig.withSchema("report", 3, 1);
+    reportDAO = new ReportDAO();
+    reportDAO.dataBaseConfig = dataBaseConfig;
+    reportEngine = new ReportEngine(reportDAO, ZoneId.systemDefault());
+
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      PreparedStatement ps = connection.prepareStatement(
+          "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)");
+      addTicket(ps, 1, "AAA", 3.75, "2019-01-01 10:00:00", "2019-01-01 12:30:00");
+      addTicket(ps, 2, "BBB", 1.75, "2019-01-01 11:00:00", "2019-01-01 12:10:00");
+      addTicket(ps, 4, "CCC", 0, "2019-01-01 09:00:00", null);
+      addTicket(ps, 3, "DDD", 1.5, "2019-01-02 08:00:00", "2019-01-02 09:00:00");
+      addTicket(ps, 2, "EEE", 3, "2018-12-31 23:00:00", "2019-01-01 01:00:00");
+      ps.executeBatch();
+      ps.close();
+      ps = connection.prepareStatement(
+          "insert into ticket_archive(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, ARCHIVE_MONTH) values(100,?,?,?,?,?,201901)");
+      addTicket(ps, 1, "AAA", 1.5, "2019-01-01 14:00:00", "2019-01-01 15:00:00");
+      ps.executeBatch();
+      ps.close();
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  private static void addTicket(PreparedStatement ps, int parkingNumber, String vehicleRegNumber,
+      double price, String inTime, String outTime) throws Exception {
+    ps.setInt(1, parkingNumber);
+    ps.setString(2, vehicleRegNumber);
+    ps.setDouble(3, price);
+    ps.setTimestamp(4, Timestamp.valueOf(inTime));
+    ps.setTimestamp(5, (outTime == null) ? null : Timestamp.valueOf(outTime));
+    ps.addBatch();
+  }
+
+  @Test
+  public void revenueDwellAndPeakAreReportedPerTypeAndHour() {
+    ParkingReport report =
+        reportEngine.report(LocalDate.parse("2019-01-01"), LocalDate.parse("2019-01-02"));
+
+    assertThat(report.isComplete()).isTrue();
+    assertThat(report.getRevenue(ParkingType.CAR, 0, 1)).isEqualTo(3.0);
+    assertThat(report.getRevenue(ParkingType.CAR, 0, 12)).isEqualTo(5.5);
+    assertThat(report.getExits(ParkingType.CAR, 0, 12)).isEqualTo(2);
+    assertThat(report.getRevenue(ParkingType.CAR, 0, 15)).isEqualTo(1.5);
+    assertThat(report.getDailyRevenue(ParkingType.CAR, 0)).isEqualTo(10.0);
+    assertThat(report.getDailyRevenue(ParkingType.CAR, 1)).isEqualTo(1.5);
+    assertThat(report.getClosedTickets(ParkingType.CAR)).isEqualTo(5);
+    assertThat(report.getAverageDwellMinutes(ParkingType.CAR)).isCloseTo(92.0, within(0.001));
+    assertThat(report.getPeakOccupancy(ParkingType.CAR)).isEqualTo(2);
+    assertThat(report.getPeakTimeMillis(ParkingType.CAR))
+        .isEqualTo(Timestamp.valueOf("2019-01-01 11:00:00").getTime());
+    assertThat(report.getClosedTickets(ParkingType.BIKE)).isEqualTo(0);
+    assertThat(report.getPeakOccupancy(ParkingType.BIKE)).isEqualTo(1);
+    assertThat(report.getPeakTimeMillis(ParkingType.BIKE))
+        .isEqualTo(Timestamp.valueOf("2019-01-01 09:00:00").getTime());
+    assertThat(report.getRecurringCustomerShare()).isCloseTo(0.2, within(0.001));
+  }
+
+  @Test
+  public void ticketsAreSplitAcrossTheDaysTheyTouch() {
+    ParkingReport report =
+        reportEngine.report(LocalDate.parse("2018-12-31"), LocalDate.parse("2019-01-02"));
+
+    assertThat(report.getDailyRevenue(ParkingType.CAR, 0)).isZero();
+    assertThat(report.getRevenue(ParkingType.CAR, 1, 1)).isEqualTo(3.0);
+    assertThat(report.getDailyRevenue(ParkingType.CAR, 2)).isEqualTo(1.5);
+    assertThat(report.getPeakOccupancy(ParkingType.CAR)).isEqualTo(2);
+    assertThat(report.getPeakTimeMillis(ParkingType.CAR))
+        .isEqualTo(Timestamp.valueOf("2019-01-01 11:00:00").getTime());
+
+    ParkingReport secondDay =
+        reportEngine.report(LocalDate.parse("2019-01-02"), LocalDate.parse("2019-01-02"));
+    assertThat(secondDay.getPeakOccupancy(ParkingType.BIKE)).isEqualTo(1);
+    assertThat(secondDay.getPeakTimeMillis(ParkingType.BIKE))
+        .isEqualTo(Timestamp.valueOf("2019-01-02 00:00:00").getTime());
+  }
+
+  @Test
+  public void reportOfALoadedBatchIsTheStreamedOne() throws Exception {
+    TicketBatch tickets = reportDAO.loadTickets(Timestamp.valueOf("2019-01-01 00:00:00"),
+        Timestamp.valueOf("2019-01-03 00:00:00"));
+    assertThat(tickets.size()).isEqualTo(6);
+    assertThat(tickets.getVehicleCount()).isEqualTo(5);
+
+    ParkingReport report =
+        reportEngine.report(LocalDate.parse("2019-01-01"), LocalDate.parse("2019-01-02"));
+    ParkingReport batchReport = reportEngine.report(tickets, LocalDate.parse("2019-01-01"),
+        LocalDate.parse("2019-01-02"));
+    StringWriter streamed = new StringWriter();
+    report.writeJson(streamed);
+    report.writeCsv(streamed);
+    StringWriter fromBatch = new StringWriter();
+    batchReport.writeJson(fromBatch);
+    batchReport.writeCsv(fromBatch);
+
+    assertThat(fromBatch.toString()).isEqualTo(streamed.toString());
+  }
+
+  @Test
+  public void reportIsWrittenAsCsvAndJson() throws Exception {
+    ParkingReport report =
+        reportEngine.report(LocalDate.parse("2019-01-01"), LocalDate.parse("2019-01-02"));
+    StringWriter csv = new StringWriter();
+    StringWriter json = new StringWriter();
+
+    report.writeCsv(csv);
+    report.writeJson(json);
+
+    assertThat(csv.toString()).startsWith("day,hour,parkingType,exits,revenue\n")
+        .contains("2019-01-01,12,CAR,2,5.50\n").contains("2019-01-02,9,CAR,1,1.50\n");
+    assertThat(csv.toString().split("\n")).hasSize(5);
+    assertThat(json.toString()).contains("\"recurringCustomerShare\":0.2000")
+        .contains("\"CAR\":{\"revenue\":11.50,\"closedTickets\":5")
+        .contains("\"dailyRevenue\":[10.00,1.50]");
+  }
+}
@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+
+public class SchemaMigratorTest {
+
+  @Test
+  public void migrationsAreAppliedOnceAndInOrder() throws Exception {
+    H2DataBaseConfig dataBaseConfig = new H2DataBaseConfig("migrator");
+    dataBaseConfig.createSchema(3, 2, 1);
+    SchemaMigrator schemaMigrator = new SchemaMigrator(dataBaseConfig);
+
+    assertThat(schemaMigrator.migrate()).isEqualTo(SchemaMigrator.getLatestVersion());
+    assertThat(schemaMigrator.migrate()).isEqualTo(SchemaMigrator.getLatestVersion());
+
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      ResultSet rs = connection.createStatement()
+          .executeQuery("select count(*) from information_schema.indexes"
+              + " where lower(index_name) = 'idx_ticket_reg_in_time'");
+      rs.next();
+      assertThat(rs.getInt(1)).isEqualTo(1);
+      rs = connection.createStatement().executeQuery("select count(*) from schema_version");
+      rs.next();
+      assertThat(rs.getInt(1)).isEqualTo(SchemaMigrator.getLatestVersion());
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  private static int count(H2DataBaseConfig dataBaseConfig, String sql) throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      ResultSet rs = connection.createStatement().executeQuery(sql);
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  private static void execute(H2DataBaseConfig dataBaseConfig, String sql) throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      statement.execute(sql);
+      statement.close();
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  @Test
+  public void migrationFailedPartWayResumesAfterItsLastAppliedStatement() throws Exception {
+    H2DataBaseConfig dataBaseConfig = new H2DataBaseConfig("migratorResume");
+    dataBaseConfig.createSchema(3, 2, 1);
+    // Makes the second index of V2 fail, once the first one has been created.
+    execute(dataBaseConfig, "create index IDX_TICKET_OUT_TIME on parking(TYPE)");
+    SchemaMigrator schemaMigrator = new SchemaMigrator(dataBaseConfig);
+
+    assertThat(schemaMigrator.migrate()).isEqualTo(-1);
+    assertThat(count(dataBaseConfig, "select max(VERSION) from schema_version")).isEqualTo(1);
+    assertThat(count(dataBaseConfig,
+        "select STATEMENTS from schema_migration_progress where VERSION = 2")).isEqualTo(1);
+
+    execute(dataBaseConfig, "drop index IDX_TICKET_OUT_TIME");
+
+    assertThat(schemaMigrator.migrate()).isEqualTo(SchemaMigrator.getLatestVersion());
+    assertThat(count(dataBaseConfig, "select count(*) from information_schema.indexes"
+        + " where lower(index_name) = 'idx_ticket_out_time'"
+        + " and lower(table_name) = 'ticket'")).isEqualTo(1);
+    assertThat(count(dataBaseConfig, "select count(*) from schema_migration_progress")).isZero();
+  }
+
+  @Test
+  public void concurrentStartupsMigrateOnce() throws Exception {
+    H2DataBaseConfig dataBaseConfig = new H2DataBaseConfig("migratorConcurrent");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> versions = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        Callable<Integer> startup = () -> new SchemaMigrator(dataBaseConfig).migrate();
+        versions.add(executor.submit(startup));
+      }
+      for (Future<Integer> version : versions) {
+        assertThat(version.get()).isEqualTo(SchemaMigrator.getLatestVersion());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(count(dataBaseConfig, "select count(*) from schema_version"))
+        .isEqualTo(SchemaMigrator.getLatestVersion());
+  }
+}
@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+import java.sql.Connection;
+import java.util.Date;
+import java.util.Properties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.SiteRouter;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class SiteRouterTest {
+
+  private SiteRouter siteRouter;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    Properties sites = new Properties();
+    for (String site : new String[] {"north", "south"}) {
+      sites.setProperty("site." + site + ".url", "jdbc:h2:mem:" + site + System.nanoTime()
+          + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+      sites.setProperty("site." + site + ".user", "sa");
+    }
+    siteRouter = SiteRouter.fromProperties(sites);
+    assertThat(siteRouter.migrate()).isTrue();
+    addSpots("north", "(1, true, 'CAR', 0), (2, true, 'CAR', 1)");
+    addSpots("south", "(1, true, 'CAR', 0), (2, true, 'CAR', 0), (3, true, 'BIKE', 0)");
+  }
+
+  private void addSpots(String site, String values) throws Exception {
+    DataBaseConfig dataBaseConfig = siteRouter.getParkingSpotDAO(site).dataBaseConfig;
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      connection.createStatement().execute(
+          "insert into parking(PARKING_NUMBER, AVAILABLE, TYPE, PARKING_LEVEL) values " + values);
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  @AfterEach
+  public void tearDown() {
+    siteRouter.close();
+  }
+
+  private Ticket park(String site, String vehicleRegNumber, long inTime) {
+    int slot = siteRouter.getParkingSpotDAO(site).claimNextAvailableSlot(ParkingType.CAR);
+    Ticket ticket = new Ticket();
+    ticket.setParkingSpot(new ParkingSpot(slot, ParkingType.CAR, false, site, 0));
+    ticket.setVehicleRegNumber(vehicleRegNumber);
+    ticket.setInTime(new Date(inTime));
+    assertThat(siteRouter.getTicketDAO(site).saveTicket(ticket)).isTrue();
+    return ticket;
+  }
+
+  @Test
+  public void eachSiteIsStoredInItsOwnDatabase() {
+    park("north", "ABC", 1_000_000);
+
+    assertThat(siteRouter.getSites()).containsExactly("north", "south");
+    assertThat(siteRouter.getParkingSpots()).extracting(ParkingSpot::getSite,
+        ParkingSpot::getLevel, ParkingSpot::isAvailable).containsExactly(
+            tuple("north", 0, false),
+            tuple("north", 1, true),
+            tuple("south", 0, true),
+            tuple("south", 0, true),
+            tuple("south", 0, true));
+    assertThat(siteRouter.getTicketDAO("south").getTicket("ABC")).isNull();
+    assertThatThrownBy(() -> siteRouter.getTicketDAO("east"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void crossSiteQueriesMergeEverySite() {
+    park("south", "OLD", 1_000_000);
+    park("north", "ABC", 2_000_000);
+    park("south", "ABC", 3_000_000);
+
+    assertThat(siteRouter.getOpenTickets()).extracting(Ticket::getVehicleRegNumber,
+        Ticket::getSite).containsExactly(tuple("OLD", "south"),
+            tuple("ABC", "north"),
+            tuple("ABC", "south"));
+    Ticket latest = siteRouter.getTicket("ABC");
+    assertThat(latest.getSite()).isEqualTo("south");
+    assertThat(latest.getInTime().getTime()).isEqualTo(3_000_000);
+  }
+
+  @Test
+  public void crossSiteQueriesFailWhenASiteIsDown() throws Exception {
+    park("north", "ABC", 1_000_000);
+    DataBaseConfig south = siteRouter.getParkingSpotDAO("south").dataBaseConfig;
+    Connection connection = south.getConnection();
+    try {
+      connection.createStatement().execute("drop table ticket");
+      connection.createStatement().execute("drop table parking");
+    } finally {
+      south.closeConnection(connection);
+    }
+
+    assertThatThrownBy(() -> siteRouter.getTicket("ABC"))
+        .isInstanceOf(IllegalStateException.class).hasMessageContaining("south");
+    assertThatThrownBy(() -> siteRouter.recurrentUser("ABC"))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> siteRouter.getParkingSpots())
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.TariffEngine;
+import com.parkit.parkingsystem.service.TariffTable;
+
+public class TariffEngineTest {
+
+  private static final ZoneId ZONE = ZoneOffset.UTC;
+
+  private static long millis(LocalDateTime time) {
+    return time.atZone(ZONE).toInstant().toEpochMilli();
+  }
+
+  private static double price(TariffEngine engine, String site, LocalDateTime in,
+      LocalDateTime out) {
+    return engine.getTable(site, ParkingType.CAR).price(millis(in), millis(out));
+  }
+
+  @Test
+  @DisplayName("Without rules, the Fare rates are charged and 30 minutes are free")
+  public void defaultRates() {
+    TariffEngine engine = new TariffEngine();
+    LocalDateTime in = LocalDateTime.of(2020, 3, 2, 10, 0);
+
+    assertThat(price(engine, null, in, in.plusMinutes(29))).isZero();
+    assertThat(price(engine, null, in, in.plusHours(2))).isEqualTo(2 * Fare.CAR_RATE_PER_HOUR);
+    assertThat(engine.getTable(null, ParkingType.BIKE).getSegmentCount()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Each minute is charged at the rate of its weekday and time of day")
+  public void timeWindows() {
+    Properties rules = new Properties();
+    rules.setProperty("tariff.default.CAR.ratePerHour", "1");
+    rules.setProperty("tariff.default.CAR.rule.1-peak", "MON-FRI 08:00-18:00 3");
+    rules.setProperty("tariff.default.CAR.rule.2-night", "SAT,SUN 22:00-06:00 0");
+    TariffEngine engine = new TariffEngine(rules, ZONE);
+
+    // Monday 2020-03-02, 07:00 to 09:00: one hour at 1, one hour at 3.
+    assertThat(price(engine, null, LocalDateTime.of(2020, 3, 2, 7, 0),
+        LocalDateTime.of(2020, 3, 2, 9, 0))).isEqualTo(4.0);
+    // Saturday 21:00 to Sunday 07:00: one hour at 1, 8 free hours, one hour at 1.
+    assertThat(price(engine, null, LocalDateTime.of(2020, 3, 7, 21, 0),
+        LocalDateTime.of(2020, 3, 8, 7, 0))).isEqualTo(2.0);
+    // Friday 23:00 to Saturday 01:00: the night of Saturday starts on Saturday evening.
+    assertThat(price(engine, null, LocalDateTime.of(2020, 3, 6, 23, 0),
+        LocalDateTime.of(2020, 3, 7, 1, 0))).isEqualTo(2.0);
+    // Sunday 23:00 to Monday 01:00: the night of Sunday goes on until Monday morning.
+    assertThat(price(engine, null, LocalDateTime.of(2020, 3, 8, 23, 0),
+        LocalDateTime.of(2020, 3, 9, 1, 0))).isZero();
+  }
+
+  @Test
+  @DisplayName("Each 24 hours of a stay are capped, and a week is priced the same from any start")
+  public void dailyCapAndLongStays() {
+    Properties rules = new Properties();
+    rules.setProperty("tariff.default.CAR.ratePerHour", "1");
+    rules.setProperty("tariff.default.CAR.dailyCap", "10");
+    rules.setProperty("tariff.airport.CAR.rule.1", "MON 00:00-24:00 2");
+    TariffEngine engine = new TariffEngine(rules, ZONE);
+    LocalDateTime in = LocalDateTime.of(2020, 3, 4, 12, 0);
+
+    assertThat(price(engine, null, in, in.plusHours(8))).isEqualTo(8.0);
+    assertThat(price(engine, null, in, in.plusHours(30))).isEqualTo(16.0);
+    // The airport charges 2 per hour on Mondays, 1 otherwise, with the default base rate.
+    assertThat(price(engine, "airport", in, in.plusWeeks(1)))
+        .isEqualTo(price(engine, "airport", in.plusDays(3), in.plusDays(10)));
+    assertThat(price(engine, "airport", LocalDateTime.of(2020, 3, 2, 1, 0),
+        LocalDateTime.of(2020, 3, 2, 5, 0))).isEqualTo(8.0);
+    // No rule for bikes at the airport: the default bike tariff applies.
+    assertThat(engine.getTable("airport", ParkingType.BIKE))
+        .isSameAs(engine.getTable(TariffEngine.DEFAULT_SITE, ParkingType.BIKE));
+  }
+
+  @Test
+  @DisplayName("Reloading swaps the tables, and invalid rules keep the previous ones")
+  public void reload() {
+    TariffEngine engine = new TariffEngine(new Properties(), ZONE);
+    TariffTable before = engine.getTable(null, ParkingType.CAR);
+    LocalDateTime in = LocalDateTime.of(2020, 3, 2, 10, 0);
+
+    Properties rules = new Properties();
+    rules.setProperty("tariff.default.CAR.ratePerHour", "4");
+    engine.reload(rules);
+    assertThat(price(engine, null, in, in.plusHours(1))).isEqualTo(4.0);
+    assertThat(before.price(millis(in), millis(in.plusHours(1))))
+        .isEqualTo(Fare.CAR_RATE_PER_HOUR);
+
+    rules.setProperty("tariff.default.CAR.rule.1", "NOPE 08:00-18:00 3");
+    assertThrows(IllegalArgumentException.class, () -> engine.reload(rules));
+    assertThat(price(engine, null, in, in.plusHours(1))).isEqualTo(4.0);
+  }
+}
@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.TicketArchiver;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class TicketArchiverTest {
+
+  private H2DataBaseConfig dataBaseConfig;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    dataBaseConfig = H2DataBaseConfig.withSchema("archiver", 3, 2);
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      // 5 tickets closed a year ago, one closed an hour ago, one still open.
+      for (int i = 1; i <= 5; i++) {
+        statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME,"
+            + " OUT_TIME) values(1, 'OLD" + i + "', 1.5, dateadd('DAY', -366, now()),"
+            + " dateadd('DAY', -365, now()))");
+      }
+      statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME,"
+          + " OUT_TIME) values(2, 'RECENT', 1.5, dateadd('HOUR', -2, now()),"
+          + " dateadd('HOUR', -1, now()))");
+      statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME,"
+          + " OUT_TIME) values(3, 'OLD1', 0, dateadd('HOUR', -1, now()), null)");
+      statement.close();
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  private int count(String table) throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      ResultSet rs = connection.createStatement().executeQuery("select count(*) from " + table);
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  @Test
+  public void archivesOldClosedTicketsInBatches() throws Exception {
+    TicketArchiver ticketArchiver = new TicketArchiver(TimeUnit.DAYS.toMillis(90), 2, 0);
+    ticketArchiver.dataBaseConfig = dataBaseConfig;
+
+    assertThat(ticketArchiver.archive()).isEqualTo(5);
+    assertThat(ticketArchiver.archive()).isZero();
+
+    assertThat(count("ticket")).isEqualTo(2);
+    assertThat(count("ticket_archive")).isEqualTo(5);
+  }
+
+  @Test
+  public void lookupsFallBackToTheArchive() {
+    TicketArchiver ticketArchiver = new TicketArchiver(TimeUnit.DAYS.toMillis(90), 100, 0);
+    ticketArchiver.dataBaseConfig = dataBaseConfig;
+    ticketArchiver.archive();
+    JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+    JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+
+    Ticket archived = ticketDAO.getTicket("OLD2");
+    assertThat(archived).isNotNull();
+    assertThat(archived.getOutTime()).isNotNull();
+    // The open ticket of the hot table wins over the archived one.
+    assertThat(ticketDAO.getTicket("OLD1").getOutTime()).isNull();
+    assertThat(ticketDAO.getTicket("NEVER")).isNull();
+
+    assertThat(parkingSpotDAO.recurrentUser("OLD3")).isTrue();
+    assertThat(parkingSpotDAO.recurrentUser("RECENT")).isTrue();
+    assertThat(parkingSpotDAO.recurrentUser("NEVER")).isFalse();
+  }
+
+  @Test
+  public void partitionsAreSplitMonthByMonthOffTheLastOne() {
+    assertThat(TicketArchiver.partitionChanges(Collections.emptyList(), YearMonth.of(2025, 11),
+        YearMonth.of(2026, 1), null)).containsExactly("alter table ticket_archive reorganize"
+            + " partition P_MAX into (partition P202511 values less than (202512),"
+            + " partition P202512 values less than (202513),"
+            + " partition P202601 values less than (202602),"
+            + " partition P_MAX values less than maxvalue)");
+
+    assertThat(TicketArchiver.partitionChanges(Arrays.asList(202511, 202512, 202601),
+        YearMonth.of(2025, 1), YearMonth.of(2026, 1), null)).isEmpty();
+  }
+
+  @Test
+  public void partitionsPastTheRetentionAreDropped() {
+    assertThat(TicketArchiver.partitionChanges(Arrays.asList(202510, 202511, 202512),
+        YearMonth.of(2025, 1), YearMonth.of(2026, 1), YearMonth.of(2025, 12))).containsExactly(
+            "alter table ticket_archive reorganize partition P_MAX into"
+                + " (partition P202601 values less than (202602),"
+                + " partition P_MAX values less than maxvalue)",
+            "alter table ticket_archive drop partition P202510, P202511");
+  }
+}
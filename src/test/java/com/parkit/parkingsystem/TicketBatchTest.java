@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketBatch;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+
+public class TicketBatchTest {
+
+  private static final long HOUR = 60 * 60 * 1000;
+
+  @Test
+  public void registrationNumbersAreStoredOnceAndColumnsGrow() {
+    TicketBatch tickets = new TicketBatch(ParkingSpot.DEFAULT_SITE, 2);
+    tickets.add(1, ParkingType.CAR, "AAA", 1.5, 0, HOUR);
+    tickets.add(4, ParkingType.BIKE, "BBB", 0, HOUR, Ticket.NO_TIME);
+    tickets.add(2, ParkingType.CAR, "AAA", 3, 2 * HOUR, 4 * HOUR);
+
+    assertThat(tickets.size()).isEqualTo(3);
+    assertThat(tickets.getVehicleCount()).isEqualTo(2);
+    assertThat(tickets.getVehicleCode(2)).isEqualTo(tickets.getVehicleCode(0))
+        .isEqualTo(tickets.findVehicleCode("AAA"));
+    assertThat(tickets.decodeVehicle(tickets.findVehicleCode("BBB"))).isEqualTo("BBB");
+    assertThat(tickets.findVehicleCode("CCC")).isEqualTo(-1);
+    assertThat(tickets.hasOutTime(1)).isFalse();
+
+    Ticket ticket = tickets.toTicket(2);
+    assertThat(ticket.getParkingSpot().getId()).isEqualTo(2);
+    assertThat(ticket.getParkingSpot().getParkingType()).isEqualTo(ParkingType.CAR);
+    assertThat(ticket.getVehicleRegNumber()).isEqualTo("AAA");
+    assertThat(ticket.getInTimeMillis()).isEqualTo(2 * HOUR);
+    assertThat(ticket.getOutTimeMillis()).isEqualTo(4 * HOUR);
+    assertThat(tickets.toTicket(1).getOutTime()).isNull();
+  }
+
+  @Test
+  public void closedTicketsArePricedInPlaceWithTheRecurringDiscount() {
+    TicketBatch tickets = new TicketBatch(ParkingSpot.DEFAULT_SITE);
+    tickets.add(1, ParkingType.CAR, "AAA", 0, 0, HOUR);
+    tickets.add(4, ParkingType.BIKE, "BBB", 0, 0, HOUR);
+    tickets.add(2, ParkingType.CAR, "CCC", 0, 0, Ticket.NO_TIME);
+    boolean[] recurringVehicles = new boolean[tickets.getVehicleCount()];
+    recurringVehicles[tickets.findVehicleCode("BBB")] = true;
+
+    double total = new FareCalculatorService().calculateFares(tickets, recurringVehicles);
+
+    assertThat(tickets.getPrice(0)).isEqualTo(Fare.CAR_RATE_PER_HOUR);
+    assertThat(tickets.getPrice(1)).isCloseTo(0.95 * Fare.BIKE_RATE_PER_HOUR, within(0.001));
+    assertThat(tickets.getPrice(2)).isZero();
+    assertThat(total).isCloseTo(tickets.getPrice(0) + tickets.getPrice(1), within(0.001));
+
+    double[] prices = new double[2];
+    new FareCalculatorService().calculateFares(new ParkingType[] {ParkingType.CAR,
+        ParkingType.BIKE}, new long[] {0, 0}, new long[] {HOUR, HOUR}, new boolean[] {false, true},
+        prices);
+    assertThat(prices).containsExactly(tickets.getPrice(0), tickets.getPrice(1));
+  }
+}
@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.dao.ImportReport;
+import com.parkit.parkingsystem.dao.TicketImporter;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+
+public class TicketImporterTest {
+
+  private H2DataBaseConfig dataBaseConfig;
+  private TicketImporter ticketImporter;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    dataBaseConfig = H2DataBaseConfig.withSchema("importer", 3, 2);
+    ticketImporter = new TicketImporter(2, 2);
+    ticketImporter.dataBaseConfig = dataBaseConfig;
+  }
+
+  private int countTickets() throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      ResultSet rs = connection.createStatement().executeQuery("select count(*) from ticket");
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+  }
+
+  @Test
+  public void validCsvTicketsAreImportedAndOthersRejected() throws Exception {
+    String csv = "vehicleRegNumber,parkingNumber,parkingType,price,inTime,outTime\n"
+        + "AAA,1,CAR,1.5,2019-01-01T10:00:00,2019-01-01T11:00:00\n"
+        + "BBB,4,BIKE,1.0,1546340400000,1546344000000\n"
+        + "CCC,2,BIKE,1.0,2019-01-01T10:00:00,2019-01-01T11:00:00\n"
+        + "DDD,2,CAR,1.0,2019-01-01T10:00:00,2019-01-01T09:00:00\n"
+        + "EEE,3,CAR,,2019-01-01T10:00:00,\n";
+
+    ImportReport report =
+        ticketImporter.importTickets("tickets.csv", new BufferedReader(new StringReader(csv)));
+
+    assertThat(report.isComplete()).isTrue();
+    assertThat(report.getImportedCount()).isEqualTo(2);
+    assertThat(report.getRejectedCount()).isEqualTo(3);
+    assertThat(countTickets()).isEqualTo(2);
+  }
+
+  @Test
+  public void truncatedImportIsResumedWithoutDuplicates() throws Exception {
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      ndjson.append("{\"vehicleRegNumber\": \"V").append(i)
+          .append("\", \"parkingNumber\": 1, \"parkingType\": \"CAR\", \"price\": 1.5,")
+          .append(" \"inTime\": \"2019-01-01T10:00:00\", \"outTime\": \"2019-01-01T11:00:00\"}\n");
+    }
+    String firstLines = ndjson.substring(0, ndjson.indexOf("V12"));
+    ticketImporter.importTickets("tickets.ndjson",
+        new BufferedReader(new StringReader(firstLines.substring(0, firstLines.lastIndexOf('\n')))));
+    assertThat(countTickets()).isEqualTo(12);
+
+    ImportReport report = ticketImporter.importTickets("tickets.ndjson",
+        new BufferedReader(new StringReader(ndjson.toString())));
+
+    assertThat(report.getSkippedCount()).isEqualTo(12);
+    assertThat(report.getImportedCount()).isEqualTo(8);
+    assertThat(countTickets()).isEqualTo(20);
+  }
+}
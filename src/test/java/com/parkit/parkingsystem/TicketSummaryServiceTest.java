@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.ReportDAO;
+import com.parkit.parkingsystem.dao.TicketSummaryDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.report.SummaryBucket;
+import com.parkit.parkingsystem.report.TicketSummaryService;
+
+public class TicketSummaryServiceTest {
+
+  private static final ZoneId ZONE = ZoneId.systemDefault();
+
+  private H2DataBaseConfig dataBaseConfig;
+  private TicketSummaryDAO ticketSummaryDAO;
+  private ReportDAO reportDAO;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    dataBaseConfig = H2DataBaseConfig.withSchema("summary", 3, 1);
+    ticketSummaryDAO = new TicketSummaryDAO();
+    ticketSummaryDAO.dataBaseConfig = dataBaseConfig;
+    reportDAO = new ReportDAO();
+    reportDAO.dataBaseConfig = dataBaseConfig;
+  }
+
+  private TicketSummaryService newService() {
+    return new TicketSummaryService(ticketSummaryDAO, reportDAO, ZONE, 7);
+  }
+
+  private static Ticket ticket(int parkingNumber, ParkingType parkingType, String vehicleRegNumber,
+      double price, long inTime, long outTime) {
+    Ticket ticket = new Ticket();
+    ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+    ticket.setVehicleRegNumber(vehicleRegNumber);
+    ticket.setPrice(price);
+    ticket.setInTime(new Date(inTime));
+    ticket.setOutTime(new Date(outTime));
+    return ticket;
+  }
+
+  @Test
+  public void ticketsClosedThroughTheDaoAreSummedAndFlushed() {
+    TicketSummaryService ticketSummaryService = newService();
+    JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+    ticketDAO.setTicketCloseListener(ticketSummaryService::ticketClosed);
+    long outTime = System.currentTimeMillis();
+    Ticket[] tickets = {ticket(1, ParkingType.CAR, "AAA", 1.5, outTime - 3_600_000, outTime),
+        ticket(2, ParkingType.CAR, "BBB", 0.75, outTime - 1_800_000, outTime),
+        ticket(4, ParkingType.BIKE, "CCC", 1.0, outTime - 3_600_000, outTime)};
+    for (Ticket ticket : tickets) {
+      assertThat(ticketDAO.saveTicket(ticket)).isTrue();
+      assertThat(ticketDAO.updateTicket(ticket)).isTrue();
+    }
+    // Closed long ago, so read back from the table once flushed.
+    long oldOutTime = outTime - 10 * 86_400_000L;
+    ticketSummaryService.ticketClosed(
+        ticket(1, ParkingType.CAR, "DDD", 2, oldOutTime - 3_600_000, oldOutTime));
+
+    LocalDate today = LocalDate.now(ZONE);
+    List<SummaryBucket> summaries = ticketSummaryService.getSummaries(today, today);
+    assertThat(summaries).hasSize(2);
+    assertThat(summaries.get(0).getParkingType()).isEqualTo(ParkingType.CAR);
+    assertThat(summaries.get(0).getTicketCount()).isEqualTo(2);
+    assertThat(summaries.get(0).getRevenue()).isEqualTo(2.25);
+    assertThat(summaries.get(0).getDurationMillis()).isEqualTo(5_400_000);
+    assertThat(summaries.get(1).getParkingType()).isEqualTo(ParkingType.BIKE);
+    assertThat(summaries.get(1).getTicketCount()).isEqualTo(1);
+
+    assertThat(ticketSummaryService.flush()).isTrue();
+    assertThat(ticketSummaryService.getSummaries(today.minusDays(10), today.minusDays(10)))
+        .extracting(SummaryBucket::getTicketCount).containsExactly(1L);
+    List<SummaryBucket> reloaded = newService().getSummaries(today, today);
+    assertThat(reloaded).hasSize(2);
+    assertThat(reloaded.get(0).getTicketCount()).isEqualTo(2);
+    assertThat(reloaded.get(0).getRevenue()).isEqualTo(2.25);
+  }
+
+  @Test
+  public void summariesAreRebuiltFromTheTickets() throws Exception {
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      connection.createStatement().execute(
+          "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values"
+              + "(1,'AAA',1.5,'2019-01-01 09:00:00','2019-01-01 10:00:00'),"
+              + "(2,'BBB',3,'2019-01-01 08:00:00','2019-01-01 10:30:00'),"
+              + "(3,'CCC',1.5,'2019-01-01 11:00:00','2019-01-01 12:00:00'),"
+              + "(3,'DDD',1.5,'2019-01-02 11:00:00','2019-01-02 12:00:00')");
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+    TicketSummaryService ticketSummaryService = newService();
+    ticketSummaryDAO.addSummaries(Collections.singletonList(
+        new SummaryBucket(LocalDate.parse("2019-01-01"), 23, ParkingType.CAR, 5, 5, 5)));
+
+    assertThat(ticketSummaryService.rebuild(LocalDate.parse("2019-01-01"),
+        LocalDate.parse("2019-01-01"))).isTrue();
+
+    List<SummaryBucket> summaries = ticketSummaryService
+        .getSummaries(LocalDate.parse("2019-01-01"), LocalDate.parse("2019-01-02"));
+    assertThat(summaries).extracting(SummaryBucket::getHour).containsExactly(10, 12);
+    assertThat(summaries.get(0).getTicketCount()).isEqualTo(2);
+    assertThat(summaries.get(0).getRevenue()).isEqualTo(4.5);
+    assertThat(summaries.get(0).getDurationMillis())
+        .isEqualTo(Timestamp.valueOf("2019-01-01 10:30:00").getTime()
+            - Timestamp.valueOf("2019-01-01 08:00:00").getTime() + 3_600_000);
+  }
+}
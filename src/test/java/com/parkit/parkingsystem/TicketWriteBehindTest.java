@@ -0,0 +1,170 @@
+package com.parkit.parkingsystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class TicketWriteBehindTest {
+
+  private DataBaseConfig dataBaseConfig;
+  private PreparedStatement insertStatement;
+  private PreparedStatement updateStatement;
+
+  @BeforeEach
+  private void setUpPerTest() throws Exception {
+    dataBaseConfig = mock(DataBaseConfig.class);
+    Connection connection = mock(Connection.class);
+    insertStatement = mock(PreparedStatement.class);
+    updateStatement = mock(PreparedStatement.class);
+    ResultSet generatedKeys = mock(ResultSet.class);
+    when(dataBaseConfig.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement(anyString(), anyInt())).thenReturn(insertStatement);
+    when(connection.prepareStatement(anyString())).thenReturn(updateStatement);
+    when(insertStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+    when(generatedKeys.next()).thenReturn(true);
+    when(generatedKeys.getInt(1)).thenReturn(42);
+    when(insertStatement.executeBatch()).thenReturn(updateCounts(10, 1));
+    when(updateStatement.executeBatch()).thenReturn(updateCounts(1, 1));
+  }
+
+  private static int[] updateCounts(int writes, int updateCount) {
+    int[] updateCounts = new int[writes];
+    Arrays.fill(updateCounts, updateCount);
+    return updateCounts;
+  }
+
+  private static Ticket newTicket(String vehicleRegNumber) {
+    Ticket ticket = new Ticket();
+    ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+    ticket.setVehicleRegNumber(vehicleRegNumber);
+    ticket.setInTime(new Date());
+    return ticket;
+  }
+
+  @Test
+  @DisplayName("Queued inserts are written in one batch and drained on close")
+  public void insertsAreBatchedAndDrainedOnClose() throws Exception {
+    TicketWriteBehind writeBehind =
+        new TicketWriteBehind(dataBaseConfig, 100, 50, 10_000, 1_000);
+    List<CompletableFuture<Boolean>> flushed = new ArrayList<>();
+    List<Ticket> tickets = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      Ticket ticket = newTicket("AB-" + i);
+      tickets.add(ticket);
+      flushed.add(writeBehind.submitInsert(ticket));
+    }
+
+    writeBehind.close();
+
+    for (CompletableFuture<Boolean> future : flushed) {
+      assertThat(future.get()).isTrue();
+    }
+    assertThat(tickets.get(0).getId()).isEqualTo(42);
+    verify(insertStatement, times(10)).addBatch();
+    verify(insertStatement, times(1)).executeBatch();
+  }
+
+  @Test
+  @DisplayName("An update queued after its insert is flushed after it")
+  public void updateFollowsInsert() throws Exception {
+    TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig, 100, 2, 10_000, 1_000);
+    Ticket ticket = newTicket("AB-1");
+    CompletableFuture<Boolean> inserted = writeBehind.submitInsert(ticket);
+    ticket.setOutTime(new Date());
+    CompletableFuture<Boolean> updated = writeBehind.submitUpdate(ticket);
+
+    assertThat(inserted.get()).isTrue();
+    assertThat(updated.get()).isTrue();
+    writeBehind.close();
+
+    verify(updateStatement).setInt(3, 42);
+    verify(updateStatement, times(1)).executeBatch();
+  }
+
+  @Test
+  @DisplayName("An update matching no row is reported as failed")
+  public void updateMatchingNoRowFails() throws Exception {
+    when(insertStatement.executeBatch()).thenReturn(new int[] {Statement.SUCCESS_NO_INFO});
+    when(updateStatement.executeBatch()).thenReturn(updateCounts(1, 0));
+    TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig, 100, 1, 10_000, 1_000);
+    Ticket ticket = newTicket("AB-1");
+    CompletableFuture<Boolean> inserted = writeBehind.submitInsert(ticket);
+    ticket.setOutTime(new Date());
+    CompletableFuture<Boolean> updated = writeBehind.submitUpdate(ticket);
+
+    assertThat(inserted.get()).isTrue();
+    assertThat(updated.get()).isFalse();
+    writeBehind.close();
+  }
+
+  @Test
+  @DisplayName("Writes submitted after close are refused")
+  public void writesAfterCloseAreRefused() throws Exception {
+    TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig, 100, 2, 10, 1_000);
+    writeBehind.close();
+
+    assertThat(writeBehind.submitInsert(newTicket("AB-1")).get()).isFalse();
+  }
+
+  @Test
+  @DisplayName("A ticket whose insert fails to flush is dropped from the active ticket cache")
+  public void failedInsertLeavesTheActiveTicketCache() throws Exception {
+    when(updateStatement.executeQuery()).thenReturn(mock(ResultSet.class));
+    when(insertStatement.executeBatch()).thenThrow(new SQLException("Disk full"));
+    JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+    ticketDAO.enableActiveTicketCache();
+    TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig, 100, 1, 10_000, 1_000);
+    ticketDAO.enableWriteBehind(writeBehind, TicketWriteBehind.Acknowledgement.FIRE_AND_FORGET);
+
+    ticketDAO.saveTicket(newTicket("AB-1"));
+    writeBehind.close();
+
+    assertThat(ticketDAO.getActiveTicketCache().get("AB-1")).isNull();
+    assertThat(ticketDAO.getActiveTicketCache().size()).isZero();
+  }
+
+  @Test
+  @DisplayName("An exit read from the active ticket cache before the insert is flushed updates it")
+  public void cachedTicketUpdatedBeforeItsInsertIsFlushed() throws Exception {
+    when(updateStatement.executeQuery()).thenReturn(mock(ResultSet.class));
+    JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+    ticketDAO.enableActiveTicketCache();
+    TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig, 100, 2, 10_000, 1_000);
+    ticketDAO.enableWriteBehind(writeBehind, TicketWriteBehind.Acknowledgement.FIRE_AND_FORGET);
+
+    assertThat(ticketDAO.saveTicket(newTicket("AB-1"))).isTrue();
+    Ticket exit = ticketDAO.getTicket("AB-1");
+    assertThat(exit.getId()).isZero();
+    exit.setOutTime(new Date());
+    assertThat(ticketDAO.updateTicket(exit)).isTrue();
+    writeBehind.close();
+
+    verify(updateStatement).setInt(3, 42);
+    assertThat(ticketDAO.getActiveTicketCache().size()).isZero();
+  }
+}
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotIndex;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Spot allocation under contention: claim a spot then give it back, from 16 gates at once.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class AllocationBenchmark {
+
+  private static final int SPOTS = 2_000;
+
+  private ParkingSpotIndex parkingSpotIndex;
+  private JdbcParkingSpotDAO parkingSpotDAO;
+
+  @Setup
+  public void setUp() throws Exception {
+    List<ParkingSpot> spots = new ArrayList<>();
+    for (int number = 1; number <= SPOTS; number++) {
+      spots.add(new ParkingSpot(number, ParkingType.CAR, true));
+    }
+    parkingSpotIndex = new ParkingSpotIndex();
+    parkingSpotIndex.load(spots);
+
+    H2DataBaseConfig dataBaseConfig = H2DataBaseConfig.withSchema("allocation", SPOTS, 0);
+    parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    parkingSpotDAO.enableSpotIndex(3600);
+  }
+
+  @Benchmark
+  public int claimAndReleaseInMemory() {
+    int slot = parkingSpotIndex.claim(ParkingType.CAR);
+    if (slot > 0) {
+      parkingSpotIndex.update(new ParkingSpot(slot, ParkingType.CAR, true));
+    }
+    return slot;
+  }
+
+  @Benchmark
+  public int claimAndReleaseThroughDAO() {
+    int slot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+    if (slot > 0) {
+      parkingSpotDAO.updateParking(new ParkingSpot(slot, ParkingType.CAR, true));
+    }
+    return slot;
+  }
+}
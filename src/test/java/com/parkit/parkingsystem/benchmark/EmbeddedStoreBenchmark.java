@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.EmbeddedParkingSpotDAO;
+import com.parkit.parkingsystem.dao.EmbeddedTicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+
+/**
+ * Entry and exit of a vehicle through {@link ParkingService} over an {@link EmbeddedStore}, with
+ * ticket writes waiting for the disk or not.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddedStoreBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SharedService {
+
+    @Param({"FIRE_AND_FORGET", "AWAIT_FLUSH"})
+    private TicketWriteBehind.Acknowledgement acknowledgement;
+
+    private Path directory;
+    private EmbeddedStore embeddedStore;
+    private ParkingService parkingService;
+
+    @Setup
+    public void setUp() throws Exception {
+      directory = Files.createTempDirectory("embedded-store-benchmark");
+      embeddedStore = EmbeddedStore.open(directory, EmbeddedStore.parseSpots("CAR:1000,BIKE:1000"),
+          acknowledgement, 100);
+      parkingService = new ParkingService(null, new EmbeddedParkingSpotDAO(embeddedStore),
+          new EmbeddedTicketDAO(embeddedStore));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+      embeddedStore.close();
+      try (Stream<Path> files = Files.walk(directory)) {
+        files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Gate {
+    private static final AtomicInteger gates = new AtomicInteger();
+    private String vehicleRegNumber;
+
+    @Setup
+    public void setUp() {
+      vehicleRegNumber = "GATE-" + gates.incrementAndGet();
+    }
+  }
+
+  @Benchmark
+  public Ticket enterAndExit(SharedService shared, Gate gate) throws Exception {
+    shared.parkingService.processIncomingVehicle(ParkingType.CAR, gate.vehicleRegNumber);
+    return shared.parkingService.processExitingVehicle(gate.vehicleRegNumber);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Ticket enterAndExitFromEightGates(SharedService shared, Gate gate) throws Exception {
+    return enterAndExit(shared, gate);
+  }
+}
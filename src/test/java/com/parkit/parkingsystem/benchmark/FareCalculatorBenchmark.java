@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketBatch;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+
+/**
+ * Throughput of {@link FareCalculatorService#calculateFare(Ticket)}, one ticket at a time and in
+ * bulk over columns and over a {@link TicketBatch} of {@value #BULK_SIZE} tickets.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareCalculatorBenchmark {
+
+  @Param({"CAR", "BIKE"})
+  private ParkingType parkingType;
+
+  private static final int BULK_SIZE = 10_000;
+
+  private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+  private Ticket ticket;
+  private ParkingType[] parkingTypes;
+  private long[] inTimes;
+  private long[] outTimes;
+  private boolean[] recurringUsers;
+  private double[] prices;
+  private TicketBatch tickets;
+  private boolean[] recurringVehicles;
+
+  @Setup
+  public void setUp() {
+    long now = System.currentTimeMillis();
+    ticket = new Ticket();
+    ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+    ticket.setVehicleRegNumber("ABCDEF");
+    ticket.setInTimeMillis(now - 3 * 60 * 60 * 1000 - 17 * 60 * 1000);
+    ticket.setOutTimeMillis(now);
+
+    parkingTypes = new ParkingType[BULK_SIZE];
+    inTimes = new long[BULK_SIZE];
+    outTimes = new long[BULK_SIZE];
+    recurringUsers = new boolean[BULK_SIZE];
+    prices = new double[BULK_SIZE];
+    for (int i = 0; i < BULK_SIZE; i++) {
+      parkingTypes[i] = parkingType;
+      inTimes[i] = now - i * 60 * 1000L;
+      outTimes[i] = now;
+      recurringUsers[i] = (i % 3) == 0;
+    }
+
+    tickets = new TicketBatch(ParkingSpot.DEFAULT_SITE, BULK_SIZE);
+    for (int i = 0; i < BULK_SIZE; i++) {
+      tickets.add(1, parkingType, "VEHICLE-" + (i % 1_000), 0, inTimes[i], outTimes[i]);
+    }
+    recurringVehicles = new boolean[tickets.getVehicleCount()];
+    for (int vehicleCode = 0; vehicleCode < recurringVehicles.length; vehicleCode += 3) {
+      recurringVehicles[vehicleCode] = true;
+    }
+  }
+
+  @Benchmark
+  public double calculateFare() {
+    fareCalculatorService.calculateFare(ticket);
+    return ticket.getPrice();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BULK_SIZE)
+  public double[] calculateFaresOfColumns() {
+    fareCalculatorService.calculateFares(parkingTypes, inTimes, outTimes, recurringUsers, prices);
+    return prices;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BULK_SIZE)
+  public double calculateFaresOfBatch() {
+    return fareCalculatorService.calculateFares(tickets, recurringVehicles);
+  }
+}
@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+
+/**
+ * Entry and exit of a vehicle, in memory and through the JDBC DAOs, for the allocation per gate
+ * event. Run it with the GC profiler, which reports it as {@code gc.alloc.rate.norm}:
+ *
+ * <pre>
+ * java -cp &lt;test classpath&gt; org.openjdk.jmh.Main GateEvent -prof gc
+ * </pre>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GateEventBenchmark {
+
+  private static final String VEHICLE_REG_NUMBER = "GATE-1";
+
+  private ParkingService inMemoryService;
+  private ParkingService jdbcService;
+  private int jdbcVehicles;
+
+  @Setup
+  public void setUp() throws Exception {
+    InMemoryTicketDAO inMemoryTicketDAO = new InMemoryTicketDAO();
+    inMemoryService = new ParkingService(null, new InMemoryParkingSpotDAO(
+        EmbeddedStore.parseSpots("CAR:10,BIKE:10"), inMemoryTicketDAO), inMemoryTicketDAO);
+
+    H2DataBaseConfig dataBaseConfig = H2DataBaseConfig.withSchema("gate-event", 10, 10);
+    JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+    jdbcService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+  }
+
+  @TearDown
+  public void tearDown() {
+    DataBaseConfig.closeConnectionPools();
+  }
+
+  @Benchmark
+  public Ticket enterAndExitInMemory() throws Exception {
+    inMemoryService.processIncomingVehicle(ParkingType.CAR, VEHICLE_REG_NUMBER);
+    return inMemoryService.processExitingVehicle(VEHICLE_REG_NUMBER);
+  }
+
+  /**
+   * A new vehicle each time, as DATETIME columns keep whole seconds: the latest ticket of a
+   * vehicle entering twice in a second would be ambiguous.
+   */
+  @Benchmark
+  public Ticket enterAndExitThroughJdbc() throws Exception {
+    String vehicleRegNumber = "JDBC-" + jdbcVehicles++;
+    jdbcService.processIncomingVehicle(ParkingType.CAR, vehicleRegNumber);
+    return jdbcService.processExitingVehicle(vehicleRegNumber);
+  }
+}
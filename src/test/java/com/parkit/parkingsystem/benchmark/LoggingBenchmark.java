@@ -0,0 +1,59 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+
+/**
+ * Cost of logging on a DAO round trip against an embedded H2 database, from several gates.
+ *
+ * {@code sync} logs every connection, statement and result set closing synchronously to a file,
+ * {@code async} runs with the shipped {@code log4j2.xml}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class LoggingBenchmark {
+
+  @Param({"sync", "async"})
+  public String logging;
+
+  private JdbcParkingSpotDAO parkingSpotDAO;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    if ("sync".equals(logging)) {
+      ((LoggerContext) LogManager.getContext(false)).setConfigLocation(
+          LoggingBenchmark.class.getResource("/benchmark/log4j2-sync-verbose.xml").toURI());
+    }
+    H2DataBaseConfig dataBaseConfig = H2DataBaseConfig.withSchema("logging", 10, 10);
+    parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+  }
+
+  @Benchmark
+  public int getNextAvailableSlot() {
+    return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+  }
+}
@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.store.EmbeddedStore;
+
+/**
+ * Entry and exit of a vehicle through {@link ParkingService}, with in-memory DAOs so that only the
+ * service logic is measured.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingServiceBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SharedService {
+    private ParkingService parkingService;
+
+    @Setup
+    public void setUp() {
+      InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO();
+      parkingService = new ParkingService(null, new InMemoryParkingSpotDAO(
+          EmbeddedStore.parseSpots("CAR:1000,BIKE:1000"), ticketDAO), ticketDAO);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Gate {
+    private static final AtomicInteger gates = new AtomicInteger();
+    private String vehicleRegNumber;
+
+    @Setup
+    public void setUp() {
+      vehicleRegNumber = "GATE-" + gates.incrementAndGet();
+    }
+  }
+
+  @Benchmark
+  public Ticket enterAndExit(SharedService shared, Gate gate) throws Exception {
+    shared.parkingService.processIncomingVehicle(ParkingType.CAR, gate.vehicleRegNumber);
+    return shared.parkingService.processExitingVehicle(gate.vehicleRegNumber);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Ticket enterAndExitFromEightGates(SharedService shared, Gate gate) throws Exception {
+    return enterAndExit(shared, gate);
+  }
+}
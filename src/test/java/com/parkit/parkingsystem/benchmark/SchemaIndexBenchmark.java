@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Latency of the gate queries on a large ticket table, without and with the lookup indexes of
+ * the V2 schema migration.
+ *
+ * Run with {@code -Djmh.include=SchemaIndexBenchmark}; the table size can be changed with JMH's
+ * {@code -p ticketCount=<rows>}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SchemaIndexBenchmark {
+
+  private static final int SPOTS = 1_000;
+  private static final int VEHICLES = 200_000;
+  private static final int OPEN_TICKETS = 500;
+
+  @Param({"false", "true"})
+  private boolean lookupIndexes;
+
+  @Param({"2000000"})
+  private int ticketCount;
+
+  private JdbcTicketDAO ticketDAO;
+  private JdbcParkingSpotDAO parkingSpotDAO;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    H2DataBaseConfig dataBaseConfig = H2DataBaseConfig.withSchema("schema" + lookupIndexes, SPOTS, SPOTS);
+    Connection connection = dataBaseConfig.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      if (!lookupIndexes) {
+        statement.execute("drop index IDX_TICKET_REG_IN_TIME");
+        statement.execute("drop index IDX_TICKET_OUT_TIME");
+        statement.execute("drop index IDX_PARKING_AVAILABLE_TYPE");
+      }
+      // One ticket a minute from 2019, spread over the vehicles; the last ones are still open.
+      statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME,"
+          + " OUT_TIME) select 1 + mod(n, " + (2 * SPOTS) + "), concat('V', mod(n, " + VEHICLES
+          + ")), 1.5, dateadd('MINUTE', n, timestamp '2019-01-01 00:00:00'), case when n > "
+          + (ticketCount - OPEN_TICKETS) + " then null else dateadd('MINUTE', n + 60,"
+          + " timestamp '2019-01-01 00:00:00') end from system_range(1, " + ticketCount + ") as r(n)");
+      statement.execute("update parking set AVAILABLE = false where PARKING_NUMBER <= "
+          + (SPOTS - 1));
+      statement.close();
+    } finally {
+      dataBaseConfig.closeConnection(connection);
+    }
+    ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+    parkingSpotDAO = new JdbcParkingSpotDAO();
+    parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+  }
+
+  @Benchmark
+  public Ticket getTicket() {
+    return ticketDAO.getTicket("V" + ThreadLocalRandom.current().nextInt(VEHICLES));
+  }
+
+  @Benchmark
+  public boolean recurrentUser() {
+    return parkingSpotDAO.recurrentUser("V" + ThreadLocalRandom.current().nextInt(VEHICLES));
+  }
+
+  @Benchmark
+  public int getOpenTickets() {
+    return ticketDAO.getOpenTickets().size();
+  }
+
+  @Benchmark
+  public int getNextAvailableSlot() {
+    return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+  }
+}
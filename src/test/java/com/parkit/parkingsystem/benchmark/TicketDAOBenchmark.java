@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Round trips of {@link JdbcTicketDAO} against an embedded H2 database.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketDAOBenchmark {
+
+  private JdbcTicketDAO ticketDAO;
+  private int vehicleNumber;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    H2DataBaseConfig dataBaseConfig = H2DataBaseConfig.withSchema("ticketdao", 10, 10);
+    ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+  }
+
+  private Ticket newTicket() {
+    Ticket ticket = new Ticket();
+    ticket.setParkingSpot(new ParkingSpot(1 + (vehicleNumber % 10), ParkingType.CAR, false));
+    ticket.setVehicleRegNumber("V" + (vehicleNumber++ % 100_000));
+    ticket.setInTime(new Date());
+    return ticket;
+  }
+
+  @Benchmark
+  public boolean saveTicket() {
+    return ticketDAO.saveTicket(newTicket());
+  }
+
+  @Benchmark
+  public boolean saveGetAndUpdateTicket() {
+    Ticket ticket = newTicket();
+    ticketDAO.saveTicket(ticket);
+    Ticket saved = ticketDAO.getTicket(ticket.getVehicleRegNumber());
+    saved.setOutTime(new Date());
+    saved.setPrice(1.5);
+    return ticketDAO.updateTicket(saved);
+  }
+}
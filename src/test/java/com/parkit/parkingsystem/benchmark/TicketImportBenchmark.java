@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ImportReport;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.TicketImporter;
+import com.parkit.parkingsystem.integration.config.H2DataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Time to load a file of historical tickets into an embedded H2 database, one
+ * {@link TicketDAO#saveTicket(Ticket)} per ticket or with the {@link TicketImporter}, whose
+ * multi-row inserts are what is measured here.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class TicketImportBenchmark {
+
+  private static final int SPOTS = 100;
+
+  @Param({"saveTicket", "importer"})
+  private String writer;
+
+  @Param({"100000"})
+  private int ticketCount;
+
+  /**
+   * Embedded H2 serializes concurrent writers to a table, so the importer gets a single partition
+   * here. On MySQL, use one per core of the DB server.
+   */
+  @Param({"1"})
+  private int partitions;
+
+  private H2DataBaseConfig dataBaseConfig;
+  private String csv;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    StringBuilder file =
+        new StringBuilder("vehicleRegNumber,parkingNumber,parkingType,price,inTime,outTime\n");
+    long inTime = Timestamp.valueOf("2019-01-01 00:00:00").getTime();
+    for (int i = 0; i < ticketCount; i++) {
+      file.append('V').append(i % 50_000).append(',').append(1 + i % SPOTS).append(",CAR,1.5,")
+          .append(inTime + i * 60_000L).append(',').append(inTime + i * 60_000L + 3_600_000L)
+          .append('\n');
+    }
+    csv = file.toString();
+  }
+
+  @Setup(Level.Iteration)
+  public void setUp() throws Exception {
+    dataBaseConfig = H2DataBaseConfig.withSchema("import", SPOTS, 0);
+  }
+
+  @Benchmark
+  public long load() throws Exception {
+    if ("importer".equals(writer)) {
+      TicketImporter ticketImporter = new TicketImporter(partitions, 1_000);
+      ticketImporter.dataBaseConfig = dataBaseConfig;
+      ImportReport report =
+          ticketImporter.importTickets("tickets.csv", new BufferedReader(new StringReader(csv)));
+      return report.getImportedCount();
+    }
+    JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+    ticketDAO.dataBaseConfig = dataBaseConfig;
+    BufferedReader reader = new BufferedReader(new StringReader(csv));
+    reader.readLine();
+    long saved = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String[] fields = line.split(",");
+      Ticket ticket = new Ticket();
+      ticket.setParkingSpot(new ParkingSpot(Integer.parseInt(fields[1]), ParkingType.CAR, false));
+      ticket.setVehicleRegNumber(fields[0]);
+      ticket.setPrice(Double.parseDouble(fields[3]));
+      ticket.setInTimeMillis(Long.parseLong(fields[4]));
+      ticket.setOutTimeMillis(Long.parseLong(fields[5]));
+      if (ticketDAO.saveTicket(ticket)) {
+        saved++;
+      }
+    }
+    return saved;
+  }
+}
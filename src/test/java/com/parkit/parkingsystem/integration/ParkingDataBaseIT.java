@@ -13,8 +13,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
 import com.parkit.parkingsystem.service.ParkingService;
@@ -24,8 +24,8 @@ import com.parkit.parkingsystem.util.InputReaderUtil;
 public class ParkingDataBaseIT {
 
   private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
-  private static ParkingSpotDAO parkingSpotDAO;
-  private static TicketDAO ticketDAO;
+  private static JdbcParkingSpotDAO parkingSpotDAO;
+  private static JdbcTicketDAO ticketDAO;
   private static DataBasePrepareService dataBasePrepareService;
 
   @Mock
@@ -33,9 +33,9 @@ public class ParkingDataBaseIT {
 
   @BeforeAll
   private static void setUp() throws Exception {
-    parkingSpotDAO = new ParkingSpotDAO();
+    parkingSpotDAO = new JdbcParkingSpotDAO();
     parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
-    ticketDAO = new TicketDAO();
+    ticketDAO = new JdbcTicketDAO();
     ticketDAO.dataBaseConfig = dataBaseTestConfig;
     dataBasePrepareService = new DataBasePrepareService();
   }
@@ -1,62 +1,17 @@
 package com.parkit.parkingsystem.integration.config;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.TimeZone;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import java.time.ZoneId;
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ZoneConfig;
 
 public class DataBaseTestConfig extends DataBaseConfig {
 
-  private static final Logger logger = LogManager.getLogger("DataBaseTestConfig");
-
-  public Connection getConnection() throws ClassNotFoundException, SQLException {
-    TimeZone timeZone = TimeZone.getTimeZone("Europe/Brussels");
-    TimeZone.setDefault(timeZone);
-
-    logger.info("Create DB connection");
-    Class.forName("com.mysql.cj.jdbc.Driver");
-    // return DriverManager.getConnection("jdbc:mysql://localhost:3306/test", "root", "rootroot");
-    return DriverManager.getConnection(
-        "jdbc:mysql://localhost:3306/test?useUnicode=true&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&serverTimezone=Europe/Brussels",
-        "root", "rootroot");
-
-  }
-
-  public void closeConnection(Connection con) {
-    if (con != null) {
-      try {
-        con.close();
-        logger.info("Closing DB connection");
-      } catch (SQLException e) {
-        logger.error("Error while closing connection", e);
-      }
-    }
-  }
-
-  public void closePreparedStatement(PreparedStatement ps) {
-    if (ps != null) {
-      try {
-        ps.close();
-        logger.info("Closing Prepared Statement");
-      } catch (SQLException e) {
-        logger.error("Error while closing prepared statement", e);
-      }
-    }
+  static {
+    ZoneConfig.apply(ZoneId.of("Europe/Brussels"));
   }
 
-  public void closeResultSet(ResultSet rs) {
-    if (rs != null) {
-      try {
-        rs.close();
-        logger.info("Closing Result Set");
-      } catch (SQLException e) {
-        logger.error("Error while closing result set", e);
-      }
-    }
+  @Override
+  protected String getUrl() {
+    return "jdbc:mysql://localhost:3306/test?useUnicode=true&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&serverTimezone=Europe/Brussels&useServerPrepStmts=true&useCursorFetch=true";
   }
 }
@@ -0,0 +1,110 @@
+package com.parkit.parkingsystem.integration.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+
+/**
+ * Embedded in-memory H2 database, in MySQL mode, used by the unit tests and benchmarks instead of
+ * MySQL.
+ *
+ */
+public class H2DataBaseConfig extends DataBaseConfig {
+
+  private final String name;
+
+  /**
+   * @param name the name of the in-memory database, kept until the JVM exits
+   */
+  public H2DataBaseConfig(String name) {
+    this.name = name;
+  }
+
+  @Override
+  protected String getDriverClassName() {
+    return "org.h2.Driver";
+  }
+
+  @Override
+  protected String getUrl() {
+    return "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+  }
+
+  @Override
+  protected String getUser() {
+    return "sa";
+  }
+
+  @Override
+  protected String getPassword() {
+    return "";
+  }
+
+  @Override
+  protected int getPoolMaxSize() {
+    return 32;
+  }
+
+  /**
+   * @param name the name of the in-memory database, kept until the JVM exits
+   * @param carSpots the number of car spots, numbered from 1
+   * @param bikeSpots the number of bike spots, numbered after the car spots
+   * @return the database, with the tables (re)created as {@link #createSchema(int, int)} does
+   */
+  public static H2DataBaseConfig withSchema(String name, int carSpots, int bikeSpots)
+      throws Exception {
+    H2DataBaseConfig dataBaseConfig = new H2DataBaseConfig(name);
+    dataBaseConfig.createSchema(carSpots, bikeSpots);
+    return dataBaseConfig;
+  }
+
+  /**
+   * (Re)creates the tables with every schema migration and the given number of free spots.
+   *
+   * @param carSpots the number of car spots, numbered from 1
+   * @param bikeSpots the number of bike spots, numbered after the car spots
+   */
+  public void createSchema(int carSpots, int bikeSpots) throws Exception {
+    createSchema(carSpots, bikeSpots, SchemaMigrator.getLatestVersion());
+  }
+
+  /**
+   * (Re)creates the tables with the schema migrations up to the given version and the given
+   * number of free spots.
+   *
+   * @param carSpots the number of car spots, numbered from 1
+   * @param bikeSpots the number of bike spots, numbered after the car spots
+   * @param schemaVersion the last schema migration to apply
+   */
+  public void createSchema(int carSpots, int bikeSpots, int schemaVersion) throws Exception {
+    Connection connection = getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      statement.execute("drop table if exists replica_heartbeat");
+      statement.execute("drop table if exists ticket_summary");
+      statement.execute("drop table if exists import_checkpoint");
+      statement.execute("drop table if exists ticket_archive");
+      statement.execute("drop table if exists ticket");
+      statement.execute("drop table if exists parking");
+      statement.execute("drop table if exists schema_version");
+      statement.execute("drop table if exists schema_migration_progress");
+      statement.close();
+      if (new SchemaMigrator(this).migrate(schemaVersion) != schemaVersion) {
+        throw new IllegalStateException("Schema migration failed");
+      }
+      PreparedStatement ps = connection
+          .prepareStatement("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)");
+      for (int number = 1; number <= carSpots + bikeSpots; number++) {
+        ps.setInt(1, number);
+        ps.setString(2, (number <= carSpots) ? "CAR" : "BIKE");
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+    } finally {
+      closeConnection(connection);
+    }
+  }
+}
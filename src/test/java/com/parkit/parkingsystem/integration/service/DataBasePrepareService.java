@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem.integration.service;
 
+import com.parkit.parkingsystem.config.SchemaMigrator;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 
 import java.sql.Connection;
@@ -11,6 +12,7 @@ public class DataBasePrepareService {
     public void clearDataBaseEntries(){
         Connection connection = null;
         try{
+            new SchemaMigrator(dataBaseTestConfig).migrate();
             connection = dataBaseTestConfig.getConnection();
 
             //set parking entries to available
@@ -18,6 +20,7 @@ public class DataBasePrepareService {
 
             //clear ticket entries;
             connection.prepareStatement("truncate table ticket").execute();
+            connection.prepareStatement("truncate table ticket_archive").execute();
 
         }catch(Exception e){
             e.printStackTrace();